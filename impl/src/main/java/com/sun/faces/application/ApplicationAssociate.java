@@ -19,7 +19,10 @@ package com.sun.faces.application;
 import static com.sun.faces.RIConstants.FACES_CONFIG_VERSION;
 import static com.sun.faces.RIConstants.FACES_PREFIX;
 import static com.sun.faces.config.ConfigManager.getAnnotatedClasses;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.CompactComponentIds;
 import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.EnableFaceletsResourceResolverResolveCompositeComponents;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.FaceletsCoalesceStaticMarkup;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.FaceletsFoldConstantExpressions;
 import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.FaceletsSkipComments;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.FaceletCache;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.FaceletsDecorators;
@@ -724,6 +727,7 @@ public class ApplicationAssociate {
         }
 
         DefaultFaceletFactory toReturn = new DefaultFaceletFactory();
+        toReturn.setCompactIds(webConfig.isOptionEnabled(CompactComponentIds));
         toReturn.init(compiler, resolver, period, cache);
 
         return toReturn;
@@ -737,6 +741,8 @@ public class ApplicationAssociate {
 
         // Skip params?
         newCompiler.setTrimmingComments(webConfig.isOptionEnabled(FaceletsSkipComments));
+        newCompiler.setCoalescingMarkup(webConfig.isOptionEnabled(FaceletsCoalesceStaticMarkup));
+        newCompiler.setFoldingConstants(webConfig.isOptionEnabled(FaceletsFoldConstantExpressions));
 
         addTagLibraries(newCompiler);
 
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+/**
+ * <p>A single byte range of a resource requested with a <code>Range</code>
+ * header, see RFC 7233.  Requests for several ranges are answered with the
+ * whole resource, which the RFC allows.</p>
+ */
+final class ByteRange {
+
+    /**
+     * Returned by {@link #parse(String, long)} for ranges that lie outside
+     * of the resource.
+     */
+    static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long start;
+    private final long end;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param header the value of the <code>Range</code> header
+     * @param length the length of the resource
+     * @return the requested range, {@link #UNSATISFIABLE}, or
+     *  <code>null</code> if the whole resource should be sent
+     */
+    static ByteRange parse(String header, long length) {
+
+        if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        if (spec.indexOf(',') != -1) {
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // suffix range: the last n bytes
+                long suffix = Long.parseLong(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = (last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last));
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                if (start >= length) {
+                    return UNSATISFIABLE;
+                }
+                end = Math.min(end, length - 1);
+            }
+            if (start == 0 && end == length - 1) {
+                return null;
+            }
+            return new ByteRange(start, end);
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+
+    }
+
+
+    /**
+     * @return the offset of the first byte of the range
+     */
+    long getStart() {
+        return start;
+    }
+
+
+    /**
+     * @return the number of bytes in the range
+     */
+    long getLength() {
+        return end - start + 1;
+    }
+
+
+    /**
+     * @param length the length of the resource
+     * @return the value of the <code>Content-Range</code> header for this
+     *  range
+     */
+    String getContentRange(long length) {
+        if (this == UNSATISFIABLE) {
+            return "bytes */" + length;
+        }
+        return "bytes " + start + '-' + end + '/' + length;
+    }
+
+}
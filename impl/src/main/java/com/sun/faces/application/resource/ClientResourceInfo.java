@@ -20,12 +20,24 @@ import static javax.faces.application.ResourceHandler.JSF_SCRIPT_LIBRARY_NAME;
 import static javax.faces.application.ResourceHandler.JSF_SCRIPT_RESOURCE_NAME;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 
 import com.sun.faces.util.FacesLogger;
+import com.sun.faces.util.Util;
 
 /**
  * <p/>
@@ -38,12 +50,15 @@ public class ClientResourceInfo extends ResourceInfo {
     private static final Logger LOGGER = FacesLogger.RESOURCE.getLogger();
     private static final String COMPRESSED_CONTENT_DIRECTORY =
           "jsf-compressed";
+    private static final int MAX_EVALUATED_CONTENTS = 16;
     boolean cacheTimestamp;
     boolean isDevStage;
     String compressedPath;
     boolean compressible;
     boolean supportsEL;
     private volatile long lastModified = Long.MIN_VALUE;
+    private volatile String entityTag;
+    private volatile ConcurrentMap<String,byte[]> evaluatedContents;
 
 
     /**
@@ -131,6 +146,8 @@ public class ClientResourceInfo extends ResourceInfo {
         this.isDevStage = other.isDevStage;
         this.lastModified = other.lastModified;
         this.supportsEL = other.supportsEL;
+        this.entityTag = other.entityTag;
+        this.evaluatedContents = other.evaluatedContents;
     }
 
 
@@ -197,6 +214,86 @@ public class ClientResourceInfo extends ResourceInfo {
         
     }
 
+    /**
+     * Returns a strong entity tag derived from a hash of the content of this
+     * resource, computed once for the lifetime of this
+     * <code>ClientResourceInfo</code> instance.  Resources that are subject to
+     * EL evaluation, and all resources in the <code>Development</code> stage,
+     * have no strong entity tag.
+     *
+     * @param ctx the {@link FacesContext} for the current request
+     *
+     * @return the quoted entity tag, or <code>null</code> if this resource
+     *  has none
+     */
+    public String getEntityTag(FacesContext ctx) {
+
+        if (isDevStage || supportsEL) {
+            return null;
+        }
+        String tag = entityTag;
+        if (tag == null) {
+            synchronized (this) {
+                tag = entityTag;
+                if (tag == null) {
+                    tag = computeEntityTag(ctx);
+                    entityTag = tag;
+                }
+            }
+        }
+        return (tag.isEmpty() ? null : tag);
+
+    }
+
+    /**
+     * @param ctx the {@link FacesContext} for the current request
+     * @param compressed <code>true</code> for the gzip compressed content
+     *
+     * @return the content of this resource after EL evaluation for the
+     *  current request, as stored by
+     *  {@link #setEvaluatedContent(FacesContext, boolean, byte[])}, or
+     *  <code>null</code> if it hasn't been cached
+     */
+    byte[] getEvaluatedContent(FacesContext ctx, boolean compressed) {
+
+        Map<String,byte[]> contents = evaluatedContents;
+        return ((contents != null) ? contents.get(getEvaluatedContentKey(ctx, compressed)) : null);
+
+    }
+
+    /**
+     * Caches the content of this resource after EL evaluation, for the
+     * lifetime of this <code>ClientResourceInfo</code> instance.  This is
+     * only correct if the expressions were all <code>resource[...]</code>
+     * lookups, whose values depend on nothing but the request properties
+     * making up the cache key.  Nothing is cached in the
+     * <code>Development</code> stage.
+     *
+     * @param ctx the {@link FacesContext} for the current request
+     * @param compressed <code>true</code> for the gzip compressed content
+     * @param content the evaluated content
+     */
+    void setEvaluatedContent(FacesContext ctx, boolean compressed, byte[] content) {
+
+        if (isDevStage) {
+            return;
+        }
+        ConcurrentMap<String,byte[]> contents = evaluatedContents;
+        if (contents == null) {
+            synchronized (this) {
+                contents = evaluatedContents;
+                if (contents == null) {
+                    contents = new ConcurrentHashMap<>(4);
+                    evaluatedContents = contents;
+                }
+            }
+        }
+        if (contents.size() < MAX_EVALUATED_CONTENTS) {
+            contents.put(getEvaluatedContentKey(ctx, compressed), content);
+        }
+
+    }
+
     @Override
     public String toString() {
         return "ResourceInfo{" +
@@ -215,6 +312,68 @@ public class ClientResourceInfo extends ResourceInfo {
     // --------------------------------------------------------- Private Methods
 
 
+    /**
+     * @return the properties of the current request the request paths of
+     *  resources depend on: the context path, the mapping of the
+     *  <code>FacesServlet</code>, the locale and the contracts
+     */
+    private static String getEvaluatedContentKey(FacesContext ctx, boolean compressed) {
+
+        ExternalContext extContext = ctx.getExternalContext();
+        Map<String,String> params = extContext.getRequestParameterMap();
+        UIViewRoot viewRoot = ctx.getViewRoot();
+        String localePrefix = params.get("loc");
+        Object locale = null;
+        if (localePrefix == null && ctx.getApplication().getMessageBundle() != null) {
+            locale = ((viewRoot != null)
+                      ? viewRoot.getLocale()
+                      : ctx.getApplication().getViewHandler().calculateLocale(ctx));
+        }
+        Object contracts = ((viewRoot != null) ? ctx.getResourceLibraryContracts() : params.get("con"));
+
+        StringBuilder key = new StringBuilder(64);
+        key.append(extContext.getRequestContextPath())
+           .append('\n').append(Util.getFacesMapping(ctx))
+           .append('\n').append(localePrefix)
+           .append('\n').append(locale)
+           .append('\n').append(contracts);
+        if (compressed) {
+            key.append("\ngzip");
+        }
+        return key.toString();
+
+    }
+
+
+
+    /**
+     * @return the quoted entity tag, or an empty string if the content
+     *  can't be read
+     */
+    private String computeEntityTag(FacesContext ctx) {
+
+        try (InputStream in = helper.getNonCompressedInputStream(this, ctx)) {
+            if (in == null) {
+                return "";
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[4096];
+            for (int read = in.read(buf); read != -1; read = in.read(buf)) {
+                digest.update(buf, 0, read);
+            }
+            // 128 bits are plenty to tell versions of a resource apart
+            byte[] hash = Arrays.copyOf(digest.digest(), 16);
+            return '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + '"';
+        } catch (IOException | NoSuchAlgorithmException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Unable to compute the entity tag of " + this, e);
+            }
+            return "";
+        }
+
+    }
+
+
     /**
      * Create the full path to the resource.  If the resource can be compressed,
      * setup the compressedPath ivar so that the path refers to the
@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.DefaultResourceMaxAge;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyMap;
+import static java.util.Locale.US;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.application.Resource;
+import javax.faces.context.FacesContext;
+
+import com.sun.faces.application.ApplicationAssociate;
+import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.util.FacesLogger;
+
+/**
+ * <p>A script or stylesheet made of several component resources, served
+ * as a single response with their content concatenated in order.</p>
+ *
+ * <p>The resource name encodes the library and resource names of the
+ * members, so any node of a cluster, or the same node after a restart, can
+ * serve a combined resource rendered elsewhere.  Only resources without EL
+ * expressions, locale prefix or contract can be combined, and, because
+ * their relative URLs have to keep working, only stylesheets at the root of
+ * their library that don't use <code>@import</code>.</p>
+ *
+ * <p>The concatenated content is cached per application, in the
+ * {@link ContentCache} of the {@link ResourceManager}, for as long as the
+ * members' {@link ResourceInfo} instances stay in the
+ * {@link ResourceCache}.</p>
+ *
+ * <p>Combined resources are only served if
+ * <code>com.sun.faces.combineHeadResources</code> is enabled and the project
+ * stage is <code>Production</code>, see
+ * {@link ResourceHandlerImpl#createResource(String, String, String)}.</p>
+ */
+public class CombinedResource extends Resource {
+
+    private static final Logger LOGGER = FacesLogger.RESOURCE.getLogger();
+
+    /**
+     * The library name identifying combined resources in resource requests.
+     */
+    public static final String LIBRARY_NAME = "jsf.combined";
+
+    // Long resource names may exceed the URL limits of proxies
+    private static final int MAX_NAME_LENGTH = 1024;
+
+    private static final char LIBRARY_SEPARATOR = ':';
+    private static final char MEMBER_SEPARATOR = '|';
+
+    private static final byte[] SCRIPT_SEPARATOR = "\n;\n".getBytes(ISO_8859_1);
+    private static final byte[] STYLESHEET_SEPARATOR = "\n".getBytes(ISO_8859_1);
+
+    private static final String RFC1123_DATE_PATTERN = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private final Content content;
+
+    private Map<String,String> responseHeaders;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private CombinedResource(String resourceName, String contentType, Content content) {
+
+        this.content = content;
+        setResourceName(resourceName);
+        setLibraryName(LIBRARY_NAME);
+        setContentType(contentType);
+
+    }
+
+
+    // ---------------------------------------------------------- Static Methods
+
+
+    /**
+     * @param context the <code>FacesContext</code> for the current request
+     * @param resources the resources to combine, which must all have the
+     *  same extension
+     * @return a resource serving the content of all of <code>resources</code>,
+     *  or <code>null</code> if they can't be combined
+     */
+    public static Resource combine(FacesContext context, List<Resource> resources) {
+
+        if (resources.size() < 2) {
+            return null;
+        }
+        String extension = getExtension(resources.get(0).getResourceName());
+        if (extension == null) {
+            return null;
+        }
+
+        ResourceInfo[] infos = new ResourceInfo[resources.size()];
+        StringBuilder members = new StringBuilder(64 * infos.length);
+        for (int i = 0; i < infos.length; i++) {
+            Resource resource = resources.get(i);
+            if (!(resource instanceof ResourceImpl)
+                || !extension.equals(getExtension(resource.getResourceName()))) {
+                return null;
+            }
+            ResourceInfo info = ((ResourceImpl) resource).getResourceInfo();
+            if (!isCombinable(info, extension)) {
+                return null;
+            }
+            String libraryName = resource.getLibraryName();
+            String resourceName = resource.getResourceName();
+            if ((libraryName != null && !isEncodable(libraryName)) || !isEncodable(resourceName)) {
+                return null;
+            }
+            if (i > 0) {
+                members.append(MEMBER_SEPARATOR);
+            }
+            if (libraryName != null) {
+                members.append(libraryName);
+            }
+            members.append(LIBRARY_SEPARATOR).append(resourceName);
+            infos[i] = info;
+        }
+
+        String name = Base64.getUrlEncoder().withoutPadding()
+                            .encodeToString(members.toString().getBytes(UTF_8))
+                      + extension;
+        if (name.length() > MAX_NAME_LENGTH) {
+            return null;
+        }
+        ContentCache contents = ApplicationAssociate.getInstance(context.getExternalContext())
+                                                    .getResourceManager()
+                                                    .getCombinedContents();
+        Content content = getContent(context, contents, name, infos);
+        return ((content != null)
+                ? new CombinedResource(name, resources.get(0).getContentType(), content)
+                : null);
+
+    }
+
+
+    /**
+     * @return the combined resource named by <code>resourceName</code>, or
+     *  <code>null</code> if the name doesn't denote resources that can be
+     *  combined
+     */
+    static Resource create(FacesContext context,
+                           ResourceManager manager,
+                           String resourceName,
+                           String contentType) {
+
+        if (resourceName.length() > MAX_NAME_LENGTH) {
+            return null;
+        }
+        String extension = getExtension(resourceName);
+        if (extension == null) {
+            return null;
+        }
+        String members;
+        try {
+            members = new String(Base64.getUrlDecoder()
+                                       .decode(resourceName.substring(0, resourceName.length() - extension.length())),
+                                 UTF_8);
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+
+        List<ResourceInfo> infos = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int start = 0, end; start <= members.length(); start = end + 1) {
+            end = members.indexOf(MEMBER_SEPARATOR, start);
+            if (end == -1) {
+                end = members.length();
+            }
+            if (!seen.add(members.substring(start, end))) {
+                // combine() never renders a member twice
+                return null;
+            }
+            int sep = members.indexOf(LIBRARY_SEPARATOR, start);
+            if (sep == -1 || sep > end) {
+                return null;
+            }
+            String libraryName = ((sep > start) ? members.substring(start, sep) : null);
+            String name = members.substring(sep + 1, end);
+            if ((libraryName != null && !ResourceHandlerImpl.libraryNameIsSafe(libraryName))
+                || !extension.equals(getExtension(name))) {
+                return null;
+            }
+            ResourceInfo info = manager.findResource(libraryName, name, contentType, context);
+            if (info == null || !isCombinable(info, extension)) {
+                return null;
+            }
+            infos.add(info);
+        }
+        if (infos.size() < 2) {
+            return null;
+        }
+
+        Content content = getContent(context,
+                                     manager.getCombinedContents(),
+                                     resourceName,
+                                     infos.toArray(new ResourceInfo[infos.size()]));
+        return ((content != null)
+                ? new CombinedResource(resourceName, contentType, content)
+                : null);
+
+    }
+
+
+    // --------------------------------------------------- Methods from Resource
+
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return new ByteArrayInputStream(content.bytes);
+    }
+
+
+    @Override
+    public Map<String, String> getResponseHeaders() {
+
+        FacesContext context = FacesContext.getCurrentInstance();
+        if (!context.getApplication().getResourceHandler().isResourceRequest(context)) {
+            return emptyMap();
+        }
+        if (responseHeaders == null) {
+            responseHeaders = new HashMap<>(4, 1.0f);
+            long maxAge = Long.parseLong(WebConfiguration.getInstance(context.getExternalContext())
+                                                         .getOptionValue(DefaultResourceMaxAge));
+            SimpleDateFormat format = new SimpleDateFormat(RFC1123_DATE_PATTERN, US);
+            format.setTimeZone(GMT);
+            responseHeaders.put("Expires", format.format(new Date(System.currentTimeMillis() + maxAge)));
+            responseHeaders.put("ETag", content.entityTag);
+        }
+        return responseHeaders;
+
+    }
+
+
+    @Override
+    public String getRequestPath() {
+
+        FacesContext context = FacesContext.getCurrentInstance();
+        String uri = ResourceImpl.getResourcePath(context, getResourceName()) + "?ln=" + LIBRARY_NAME;
+        return context.getApplication().getViewHandler().getResourceURL(context, uri);
+
+    }
+
+
+    /**
+     * @return <code>null</code>, the content of a combined resource doesn't
+     *  come from a single URL
+     */
+    @Override
+    public URL getURL() {
+        return null;
+    }
+
+
+    @Override
+    public boolean userAgentNeedsUpdate(FacesContext context) {
+
+        String ifNoneMatch = context.getExternalContext().getRequestHeaderMap().get("If-None-Match");
+        return (ifNoneMatch == null || !ResourceImpl.matchesEntityTag(ifNoneMatch, content.entityTag));
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static boolean isCombinable(ResourceInfo info, String extension) {
+
+        if (!(info instanceof ClientResourceInfo)
+            || ((ClientResourceInfo) info).supportsEL()
+            || info.getLocalePrefix() != null
+            || info.getContract() != null) {
+            return false;
+        }
+        // url() references are resolved relative to the stylesheet
+        return (!".css".equals(extension) || info.getName().indexOf('/') == -1);
+
+    }
+
+
+    private static boolean isEncodable(String name) {
+        return (name.indexOf(LIBRARY_SEPARATOR) == -1 && name.indexOf(MEMBER_SEPARATOR) == -1);
+    }
+
+
+    private static String getExtension(String resourceName) {
+
+        int dot = resourceName.lastIndexOf('.');
+        return ((dot > 0 && resourceName.indexOf('/', dot) == -1) ? resourceName.substring(dot) : null);
+
+    }
+
+
+    /**
+     * @return the concatenated content of the resources described by
+     *  <code>infos</code>, or <code>null</code> if it can't be combined
+     */
+    private static Content getContent(FacesContext context,
+                                      ContentCache contents,
+                                      String name,
+                                      ResourceInfo[] infos) {
+
+        Content content = contents.get(name);
+        if (content == null || !content.isFor(infos)) {
+            content = load(context, name, infos);
+            contents.put(name, content);
+        }
+        return ((content.bytes != null) ? content : null);
+
+    }
+
+
+    private static Content load(FacesContext context, String name, ResourceInfo[] infos) {
+
+        boolean stylesheet = name.endsWith(".css");
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        try {
+            for (int i = 0; i < infos.length; i++) {
+                ClientResourceInfo info = (ClientResourceInfo) infos[i];
+                byte[] bytes;
+                try (InputStream in = info.getHelper().getNonCompressedInputStream(info, context)) {
+                    if (in == null) {
+                        return new Content(infos, null, null);
+                    }
+                    bytes = read(in);
+                }
+                // @import rules are ignored unless they come first
+                if (stylesheet && i > 0 && new String(bytes, ISO_8859_1).contains("@import")) {
+                    return new Content(infos, null, null);
+                }
+                // skip the UTF-8 byte order mark
+                int start = ((bytes.length >= 3 && bytes[0] == (byte) 0xEF
+                              && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF) ? 3 : 0);
+                out.write(bytes, start, bytes.length - start);
+                out.write(stylesheet ? STYLESHEET_SEPARATOR : SCRIPT_SEPARATOR);
+            }
+            byte[] bytes = out.toByteArray();
+            byte[] hash = Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(bytes), 16);
+            return new Content(infos,
+                               bytes,
+                               '"' + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + '"');
+        } catch (IOException | NoSuchAlgorithmException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Unable to combine resources " + name, e);
+            }
+            return new Content(infos, null, null);
+        }
+
+    }
+
+
+    private static byte[] read(InputStream in) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        byte[] buf = new byte[4096];
+        for (int read = in.read(buf); read != -1; read = in.read(buf)) {
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * <p>The concatenated content of the members of a combined resource, or
+     * a marker that they can't be combined if <code>bytes</code> is
+     * <code>null</code>.</p>
+     */
+    static final class Content {
+
+        private final ResourceInfo[] infos;
+        private final byte[] bytes;
+        private final String entityTag;
+
+        Content(ResourceInfo[] infos, byte[] bytes, String entityTag) {
+            this.infos = infos;
+            this.bytes = bytes;
+            this.entityTag = entityTag;
+        }
+
+        /**
+         * @return <code>true</code> if this content was loaded from the
+         *  same <code>ResourceInfo</code> instances, which are replaced in
+         *  the {@link ResourceCache} when the resources may have changed
+         */
+        private boolean isFor(ResourceInfo[] current) {
+            if (infos.length != current.length) {
+                return false;
+            }
+            for (int i = 0; i < infos.length; i++) {
+                if (infos[i] != current[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long getSize() {
+            return ((bytes != null) ? bytes.length : 0);
+        }
+
+    } // END Content
+
+
+    /**
+     * <p>The combined contents of an application, least recently used
+     * first, bounded by the number of entries and their total size.</p>
+     */
+    static final class ContentCache {
+
+        private static final int MAX_ENTRIES = 256;
+
+        private static final long MAX_SIZE = 8L * 1024L * 1024L;
+
+        private final LinkedHashMap<String,Content> contents = new LinkedHashMap<>(16, 0.75f, true);
+        private final int maxEntries;
+        private final long maxSize;
+        private long size;
+
+        ContentCache() {
+            this(MAX_ENTRIES, MAX_SIZE);
+        }
+
+        // this one is for unit tests
+        ContentCache(int maxEntries, long maxSize) {
+            this.maxEntries = maxEntries;
+            this.maxSize = maxSize;
+        }
+
+        synchronized Content get(String name) {
+            return contents.get(name);
+        }
+
+        synchronized void put(String name, Content content) {
+            Content previous = contents.remove(name);
+            if (previous != null) {
+                size -= previous.getSize();
+            }
+            if (content.getSize() > maxSize) {
+                return;
+            }
+            contents.put(name, content);
+            size += content.getSize();
+            for (Iterator<Content> i = contents.values().iterator();
+                 i.hasNext() && (contents.size() > maxEntries || size > maxSize);) {
+                Content eldest = i.next();
+                if (eldest != content) {
+                    size -= eldest.getSize();
+                    i.remove();
+                }
+            }
+        }
+
+    } // END ContentCache
+
+}
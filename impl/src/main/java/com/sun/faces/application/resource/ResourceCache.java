@@ -25,6 +25,8 @@ import com.sun.faces.util.Util;
 import javax.servlet.ServletContext;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,11 +46,24 @@ import java.util.logging.Logger;
  * then no caching will be perfomed.  Otherwise, the value of the option will
  * be the number of minutes between modification checks.
  * </p>
+ *
+ * <p>
+ * Resources and libraries that could not be found are remembered as well,
+ * for the same period, so requests for missing resources don't repeat the
+ * lookup across all {@link ResourceHelper}s.  At most {@link #MAX_MISSING}
+ * of them are kept.
+ * </p>
  */
 public class ResourceCache {
 
     private static final Logger LOGGER = FacesLogger.RESOURCE.getLogger();
 
+    /**
+     * The maximum number of missing resources, and of missing libraries,
+     * remembered.
+     */
+    static final int MAX_MISSING = 1024;
+
 
     /**
      * The <code>ResourceInfo<code> cache.
@@ -56,6 +71,18 @@ public class ResourceCache {
     private MultiKeyConcurrentHashMap<Object,ResourceInfoCheckPeriodProxy> resourceCache;
 
 
+    /**
+     * The expiration times of the missing resources.
+     */
+    private MultiKeyConcurrentHashMap<Object,Long> missingResources;
+
+
+    /**
+     * The expiration times of the missing libraries.
+     */
+    private ConcurrentMap<String,Long> missingLibraries;
+
+
     /**
      * Resource check period in minutes.
      */
@@ -87,6 +114,8 @@ public class ResourceCache {
     ResourceCache(long period) {
         checkPeriod = ((period != -1) ? period * 1000L * 60L : -1);
         resourceCache = new MultiKeyConcurrentHashMap<>(30);
+        missingResources = new MultiKeyConcurrentHashMap<>(30);
+        missingLibraries = new ConcurrentHashMap<>();
     }
 
     // ---------------------------------------------------------- Public Methods
@@ -145,12 +174,93 @@ public class ResourceCache {
     }
 
 
+    /**
+     * @param name the resource name
+     * @param libraryName the library name
+     * @param localePrefix the locale prefix
+     * @param contracts the contracts
+     * @return <code>true</code> if the resource was recently looked up with
+     *  these arguments and not found
+     */
+    public boolean isMissing(String name, String libraryName, String localePrefix, List<String> contracts) {
+
+        Long checkTime = missingResources.get(name, libraryName, localePrefix, contracts);
+        if (checkTime != null && isExpired(checkTime)) {
+            missingResources.remove(name, libraryName, localePrefix, contracts);
+            return false;
+        }
+        return (checkTime != null);
+
+    }
+
+
+    /**
+     * Remember that no resource was found for the specified arguments.
+     *
+     * @param name the resource name
+     * @param libraryName the library name
+     * @param localePrefix the locale prefix
+     * @param contracts the contracts
+     */
+    public void addMissing(String name, String libraryName, String localePrefix, List<String> contracts) {
+
+        Util.notNull("name", name);
+
+        if (missingResources.size() >= MAX_MISSING) {
+            // most likely someone probing for resources, start over
+            missingResources.clear();
+        }
+        missingResources.put(name,
+                             libraryName,
+                             localePrefix,
+                             new ArrayList(contracts),
+                             getCheckTime());
+
+    }
+
+
+    /**
+     * @param libraryName the library name
+     * @return <code>true</code> if the library was recently looked up and
+     *  not found
+     */
+    public boolean isLibraryMissing(String libraryName) {
+
+        Long checkTime = missingLibraries.get(libraryName);
+        if (checkTime != null && isExpired(checkTime)) {
+            missingLibraries.remove(libraryName, checkTime);
+            return false;
+        }
+        return (checkTime != null);
+
+    }
+
+
+    /**
+     * Remember that the specified library doesn't exist.
+     *
+     * @param libraryName the library name
+     */
+    public void addMissingLibrary(String libraryName) {
+
+        Util.notNull("libraryName", libraryName);
+
+        if (missingLibraries.size() >= MAX_MISSING) {
+            missingLibraries.clear();
+        }
+        missingLibraries.put(libraryName, getCheckTime());
+
+    }
+
+
     /**
      * <p>Empty the cache.</p>
      */
     public void clear() {
 
         resourceCache.clear();
+        missingResources.clear();
+        missingLibraries.clear();
         if (LOGGER.isLoggable(Level.FINE)) {
             LOGGER.log(Level.FINE, "Cache Cleared");
         }
@@ -161,6 +271,20 @@ public class ResourceCache {
     // --------------------------------------------------------- Private Methods
 
 
+    private long getCheckTime() {
+
+        return ((checkPeriod != -1L) ? System.currentTimeMillis() + checkPeriod : -1L);
+
+    }
+
+
+    private static boolean isExpired(long checkTime) {
+
+        return (checkTime != -1L && checkTime < System.currentTimeMillis());
+
+    }
+
+
     private static Long getCheckPeriod(WebConfiguration webConfig) {
 
         String val = webConfig.getOptionValue(WebContextInitParameter.ResourceUpdateCheckPeriod);
@@ -0,0 +1,328 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.faces.context.FacesContext;
+
+import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.config.WebConfiguration.WebContextInitParameter;
+import com.sun.faces.util.FacesLogger;
+
+/**
+ * <p>Holds the bytes of static resources in memory, along with a gzip
+ * compressed copy for the resources whose content type is listed in
+ * <code>com.sun.faces.compressableMimeTypes</code>, so
+ * {@link ResourceHandlerImpl#handleResourceRequest(FacesContext)} doesn't
+ * have to open and copy the resource for every request.</p>
+ *
+ * <p>The total size of the cached content is bounded by
+ * <code>com.sun.faces.resourceContentCacheSize</code>; no single resource
+ * may take more than an eighth of it.  When a new entry doesn't fit, the
+ * entries used least recently are evicted.  Entries expire after
+ * <code>com.sun.faces.resourceUpdateCheckPeriod</code>, like the
+ * {@link ResourceInfo} instances in the {@link ResourceCache}, except for
+ * resources loaded from the classpath, which never change.</p>
+ *
+ * <p>Only {@link ClientResourceInfo} instances not subject to EL evaluation
+ * are cached.</p>
+ */
+final class ResourceContentCache {
+
+    private static final Logger LOGGER = FacesLogger.RESOURCE.getLogger();
+
+    private static final int BUFFER_SIZE = 4096;
+
+    // Marks resources too large to be cached, so they aren't read again
+    // until the entry expires
+    private static final byte[] TOO_LARGE = new byte[0];
+
+    private final ConcurrentMap<ResourceInfo, Content> contents = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final long maxSize;
+    private final int maxContentSize;
+    private final long checkPeriod;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    ResourceContentCache(long maxSize, long checkPeriod) {
+
+        this.maxSize = maxSize;
+        this.maxContentSize = (int) Math.min(Integer.MAX_VALUE - 8, maxSize / 8);
+        this.checkPeriod = ((checkPeriod != -1) ? checkPeriod * 1000L * 60L : -1);
+
+    }
+
+
+    // ---------------------------------------------------------- Static Methods
+
+
+    /**
+     * @return a new <code>ResourceContentCache</code> configured from the
+     *  specified {@link WebConfiguration}, or <code>null</code> if the
+     *  cache is disabled
+     */
+    static ResourceContentCache create(WebConfiguration config) {
+
+        long maxSize = parse(config, WebContextInitParameter.ResourceContentCacheSize);
+        if (maxSize <= 0) {
+            return null;
+        }
+        return new ResourceContentCache(maxSize,
+                                        parse(config, WebContextInitParameter.ResourceUpdateCheckPeriod));
+
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return the cached content of the specified resource, loading it if
+     *  necessary, or <code>null</code> if it can't be cached
+     */
+    Content get(FacesContext ctx, ResourceInfo info) throws IOException {
+
+        if (!(info instanceof ClientResourceInfo) || ((ClientResourceInfo) info).supportsEL()) {
+            return null;
+        }
+
+        Content content = contents.get(info);
+        if (content != null && content.isExpired()) {
+            remove(info, content);
+            content = null;
+        }
+        if (content == null) {
+            content = load(ctx, (ClientResourceInfo) info);
+            if (content == null) {
+                return null;
+            }
+            Content existing = contents.putIfAbsent(info, content);
+            if (existing != null) {
+                content = existing;
+            } else if (size.addAndGet(content.getSize()) > maxSize) {
+                evict();
+            }
+        }
+        content.touch();
+
+        return (content.isTooLarge() ? null : content);
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private void remove(ResourceInfo info, Content content) {
+
+        if (contents.remove(info, content)) {
+            size.addAndGet(-content.getSize());
+            content.removed = true;
+        }
+
+    }
+
+
+    /*
+     * Remove the entries used least recently until the content fits into
+     * the cache again.  Only called when an entry has been added to a full
+     * cache, so scanning all entries is acceptable.
+     */
+    private synchronized void evict() {
+
+        while (size.get() > maxSize) {
+            Map.Entry<ResourceInfo, Content> eldest = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<ResourceInfo, Content> entry : contents.entrySet()) {
+                long access = entry.getValue().lastAccess;
+                if (eldest == null || access - eldestAccess < 0) {
+                    eldest = entry;
+                    eldestAccess = access;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            remove(eldest.getKey(), eldest.getValue());
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE,
+                           "Resource content cache full, evicted {0}",
+                           eldest.getKey());
+            }
+        }
+
+    }
+
+
+    private Content load(FacesContext ctx, ClientResourceInfo info) throws IOException {
+
+        byte[] bytes;
+        try (InputStream in = info.getHelper().getNonCompressedInputStream(info, ctx)) {
+            if (in == null) {
+                return null;
+            }
+            bytes = read(in, maxContentSize);
+        }
+
+        long checkTime = ((checkPeriod != -1 && !(info.getHelper() instanceof ClasspathResourceHelper))
+                          ? System.currentTimeMillis() + checkPeriod
+                          : -1);
+        if (bytes == null) {
+            return new Content(TOO_LARGE, null, checkTime);
+        }
+
+        byte[] compressed = null;
+        if (info.isCompressable()) {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 2 + 32);
+            try (GZIPOutputStream out = new GZIPOutputStream(baos)) {
+                out.write(bytes);
+            }
+            // only worth sending if it is actually smaller
+            if (baos.size() < bytes.length) {
+                compressed = baos.toByteArray();
+            }
+        }
+
+        return new Content(bytes, compressed, checkTime);
+
+    }
+
+
+    /**
+     * @return the content of <code>in</code>, or <code>null</code> if it is
+     *  longer than <code>limit</code>
+     */
+    private static byte[] read(InputStream in, int limit) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buf = new byte[BUFFER_SIZE];
+        for (int read = in.read(buf); read != -1; read = in.read(buf)) {
+            if (out.size() + read > limit) {
+                return null;
+            }
+            out.write(buf, 0, read);
+        }
+        return out.toByteArray();
+
+    }
+
+
+    private static long parse(WebConfiguration config, WebContextInitParameter param) {
+
+        String val = config.getOptionValue(param);
+        try {
+            return Long.parseLong(val.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            return Long.parseLong(param.getDefaultValue());
+        }
+
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * <p>The cached content of a resource.</p>
+     */
+    static final class Content {
+
+        private final byte[] bytes;
+        private final byte[] compressed;
+        private final long checkTime;
+        private volatile long lastAccess;
+        private volatile boolean removed;
+
+
+        // -------------------------------------------------------- Constructors
+
+
+        Content(byte[] bytes, byte[] compressed, long checkTime) {
+
+            this.bytes = bytes;
+            this.compressed = compressed;
+            this.checkTime = checkTime;
+            this.lastAccess = System.nanoTime();
+
+        }
+
+
+        // ---------------------------------------------------------- Methods
+
+
+        /**
+         * @return the uncompressed content
+         */
+        byte[] getBytes() {
+            return bytes;
+        }
+
+
+        /**
+         * @return the gzip compressed content, or <code>null</code> if the
+         *  resource isn't compressed
+         */
+        byte[] getCompressedBytes() {
+            return compressed;
+        }
+
+
+        void touch() {
+            lastAccess = System.nanoTime();
+        }
+
+
+        private boolean isTooLarge() {
+            return (bytes == TOO_LARGE);
+        }
+
+
+        boolean isExpired() {
+            return (checkTime != -1 && checkTime < System.currentTimeMillis());
+        }
+
+
+        /**
+         * @return <code>true</code> if this content has expired or has been
+         *  evicted from the cache, so it must not be served anymore without
+         *  asking the cache again
+         */
+        boolean isStale() {
+            return (removed || isExpired());
+        }
+
+
+        private long getSize() {
+            return bytes.length + ((compressed != null) ? compressed.length : 0);
+        }
+
+    } // END Content
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static java.util.Locale.US;
+import static javax.faces.application.ResourceHandler.RESOURCE_IDENTIFIER;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.context.FacesContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>The responses to resource requests that can be repeated without a
+ * <code>FacesContext</code>.  After {@link ResourceHandlerImpl} has served a
+ * resource from the {@link ResourceContentCache}, it publishes the content
+ * and the headers here, keyed by everything in the request that took part
+ * in finding the resource.  The {@link ResourceFastPathFilter} then answers
+ * identical requests straight from the servlet API.</p>
+ *
+ * <p>Anything that isn't published, such as resources subject to EL
+ * evaluation, resources served by a custom <code>ResourceHandler</code>, or
+ * resources whose lookup depends on the locale of the request, is left to
+ * the <code>FacesServlet</code>, as are requests for byte ranges and
+ * conditional requests that can't be answered with the entity tag.</p>
+ *
+ * <p>An entry is dropped as soon as its content expires or is evicted from
+ * the {@link ResourceContentCache}, so the next request goes through the
+ * <code>FacesServlet</code> again, which reloads the content and publishes
+ * it anew.</p>
+ */
+final class ResourceFastPath {
+
+    /**
+     * The application scoped attribute the instance is stored under.
+     */
+    static final String KEY = ResourceFastPath.class.getName();
+
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final String PREFIX = RESOURCE_IDENTIFIER + '/';
+
+    private static final String RFC1123_DATE_PATTERN =
+          "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+    private final ConcurrentMap<List<String>,Entry> entries = new ConcurrentHashMap<>();
+    private final long maxAge;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    /**
+     * @param maxAge the number of milliseconds resources may be cached for,
+     *  see <code>com.sun.faces.defaultResourceMaxAge</code>
+     */
+    ResourceFastPath(long maxAge) {
+
+        this.maxAge = maxAge;
+
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * <p>Remembers the response just sent for <code>resource</code>, so that
+     * the next identical request can be answered without the
+     * <code>FacesServlet</code>.</p>
+     *
+     * @param context the {@link FacesContext} for the current request
+     * @param resourceName the resource name of the request
+     * @param libraryName the library name of the request, or
+     *  <code>null</code>
+     * @param resource the resource that has been served
+     * @param content the cached content of <code>resource</code>
+     * @param lastModified the value of the <code>Last-Modified</code>
+     *  header that has been sent
+     */
+    void publish(FacesContext context,
+                 String resourceName,
+                 String libraryName,
+                 ResourceImpl resource,
+                 ResourceContentCache.Content content,
+                 String lastModified) {
+
+        Map<String,String> params = context.getExternalContext().getRequestParameterMap();
+        String localePrefix = params.get("loc");
+        if (localePrefix == null && context.getApplication().getMessageBundle() != null) {
+            // the locale prefix depends on the Accept-Language header
+            return;
+        }
+        ClientResourceInfo info = (ClientResourceInfo) resource.getResourceInfo();
+        String entityTag = info.getEntityTag(context);
+        if (entityTag == null) {
+            return;
+        }
+
+        List<String> key = key(resourceName, libraryName, localePrefix, params.get("con"));
+        Entry entry = entries.get(key);
+        if (entry != null && entry.content == content) {
+            return;
+        }
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(key, new Entry(resource.getContentType(),
+                                   content,
+                                   entityTag,
+                                   lastModified));
+
+    }
+
+
+    /**
+     * <p>Writes the response to <code>request</code> if it has been
+     * published.</p>
+     *
+     * @return <code>true</code> if the response has been written, otherwise
+     *  <code>false</code> if the request has to go through the
+     *  <code>FacesServlet</code>
+     */
+    boolean serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        if (!"GET".equals(request.getMethod()) || request.getHeader("Range") != null) {
+            return false;
+        }
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null && request.getHeader("If-Modified-Since") != null) {
+            return false;
+        }
+
+        String path = request.getPathInfo();
+        if (path == null) {
+            // extension mapped, strip off the extension
+            path = request.getServletPath();
+            int i = path.lastIndexOf('.');
+            if (0 < i) {
+                path = path.substring(0, i);
+            }
+        }
+        if (!path.startsWith(PREFIX) || path.length() == PREFIX.length()) {
+            return false;
+        }
+
+        List<String> key = key(path.substring(PREFIX.length()),
+                               request.getParameter("ln"),
+                               request.getParameter("loc"),
+                               request.getParameter("con"));
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.content.isStale()) {
+            entries.remove(key, entry);
+            return false;
+        }
+        // keep the content from being evicted while it is served from here
+        entry.content.touch();
+
+        Enumeration<String> encodings = request.getHeaders("Accept-Encoding");
+        boolean acceptsGzip = (encodings != null
+                               && ResourceHelper.acceptsGzip(Collections.list(encodings).toArray(new String[0])));
+        boolean compressed = (acceptsGzip && entry.content.getCompressedBytes() != null);
+        String entityTag = (compressed ? ResourceImpl.withGzipSuffix(entry.entityTag) : entry.entityTag);
+        if (ifNoneMatch != null && ResourceImpl.matchesEntityTag(ifNoneMatch, entityTag)) {
+            response.setStatus(SC_NOT_MODIFIED);
+            return true;
+        }
+
+        if (entry.contentType != null) {
+            response.setContentType(entry.contentType);
+        }
+        long expiresTime;
+        if (entry.getFingerprint().equals(request.getParameter(ResourceImpl.FINGERPRINT_PARAM))) {
+            expiresTime = System.currentTimeMillis() + (ResourceImpl.IMMUTABLE_MAX_AGE * 1000L);
+            response.setHeader("Cache-Control",
+                               "public, max-age=" + ResourceImpl.IMMUTABLE_MAX_AGE + ", immutable");
+        } else {
+            expiresTime = System.currentTimeMillis() + maxAge;
+        }
+        SimpleDateFormat format = new SimpleDateFormat(RFC1123_DATE_PATTERN, US);
+        format.setTimeZone(GMT);
+        response.setHeader("Expires", format.format(new Date(expiresTime)));
+        if (entry.lastModified != null) {
+            response.setHeader("Last-Modified", entry.lastModified);
+        }
+        response.setHeader("ETag", entityTag);
+
+        byte[] bytes = entry.content.getBytes();
+        if (entry.content.getCompressedBytes() != null) {
+            // the response depends on the Accept-Encoding request header
+            response.setHeader("Vary", "Accept-Encoding");
+            if (compressed) {
+                response.setHeader("Content-Encoding", "gzip");
+                bytes = entry.content.getCompressedBytes();
+            }
+        }
+        if (bytes == entry.content.getBytes()) {
+            response.setHeader("Accept-Ranges", "bytes");
+        }
+
+        response.setContentLength(bytes.length);
+        try (OutputStream out = response.getOutputStream()) {
+            out.write(bytes);
+        }
+
+        return true;
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static List<String> key(String resourceName,
+                                    String libraryName,
+                                    String localePrefix,
+                                    String contract) {
+
+        return Arrays.asList(resourceName, libraryName, localePrefix, contract);
+
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * <p>A published response.</p>
+     */
+    private static final class Entry {
+
+        private final String contentType;
+        private final ResourceContentCache.Content content;
+        private final String entityTag;
+        private final String lastModified;
+
+        private Entry(String contentType,
+                      ResourceContentCache.Content content,
+                      String entityTag,
+                      String lastModified) {
+            this.contentType = contentType;
+            this.content = content;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * @return the entity tag without quotes, like
+         *  {@link ResourceImpl#FINGERPRINT_PARAM} carries it
+         */
+        private String getFingerprint() {
+            return entityTag.substring(1, entityTag.length() - 1);
+        }
+
+    } // END Entry
+
+}
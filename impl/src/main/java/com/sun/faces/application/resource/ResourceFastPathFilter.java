@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>Answers repeated requests for resources without creating a
+ * <code>FacesContext</code>, from the responses the
+ * {@link ResourceHandlerImpl} published to the {@link ResourceFastPath}.
+ * Every other request is passed on to the <code>FacesServlet</code>.</p>
+ *
+ * <p>This filter is registered for the <code>FacesServlet</code> by
+ * {@link com.sun.faces.config.FacesInitializer} if
+ * <code>com.sun.faces.enableResourceFastPath</code> is
+ * <code>true</code>.</p>
+ */
+public class ResourceFastPathFilter implements Filter {
+
+    private ServletContext servletContext;
+
+
+    // ------------------------------------------------------ Methods from Filter
+
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+
+        servletContext = filterConfig.getServletContext();
+
+    }
+
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+    throws IOException, ServletException {
+
+        ResourceFastPath fastPath = (ResourceFastPath) servletContext.getAttribute(ResourceFastPath.KEY);
+        if (fastPath == null
+            || !(request instanceof HttpServletRequest)
+            || !(response instanceof HttpServletResponse)
+            || !fastPath.serve((HttpServletRequest) request, (HttpServletResponse) response)) {
+            chain.doFilter(request, response);
+        }
+
+    }
+
+
+    @Override
+    public void destroy() {
+
+        servletContext = null;
+
+    }
+
+}
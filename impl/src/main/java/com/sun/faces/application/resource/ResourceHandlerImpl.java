@@ -18,6 +18,9 @@ package com.sun.faces.application.resource;
 
 import com.sun.faces.application.ApplicationAssociate;
 import com.sun.faces.config.WebConfiguration;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.CombineHeadResources;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.EnableResourceFastPath;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.ServeFileResources;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.DefaultResourceMaxAge;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.ResourceBufferSize;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.ResourceExcludes;
@@ -31,11 +34,20 @@ import static com.sun.faces.util.Util.notNegative;
 import static com.sun.faces.util.Util.notNull;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import static java.lang.Boolean.FALSE;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +66,8 @@ import javax.faces.context.ExternalContext;
 import javax.faces.context.FacesContext;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
 
 /**
  * This is the default implementation of {@link ResourceHandler}.
@@ -68,6 +82,10 @@ public class ResourceHandlerImpl extends ResourceHandler {
     private long creationTime;
     private long maxAge;
     private WebConfiguration webconfig;
+    private ResourceContentCache contentCache;
+    private ResourceFastPath fastPath;
+    private boolean combineResources;
+    private boolean serveFileResources;
 
     // ------------------------------------------------------------ Constructors
 
@@ -83,6 +101,26 @@ public class ResourceHandlerImpl extends ResourceHandler {
         manager = ApplicationAssociate.getInstance(extContext).getResourceManager();
         initExclusions(extContext.getApplicationMap());
         initMaxAge();
+        combineResources = (webconfig.isOptionEnabled(CombineHeadResources)
+                            && FacesContext.getCurrentInstance().isProjectStage(Production));
+        if (!FacesContext.getCurrentInstance().isProjectStage(Development)) {
+            contentCache = ResourceContentCache.create(webconfig);
+            serveFileResources = webconfig.isOptionEnabled(ServeFileResources);
+            if (webconfig.isOptionEnabled(EnableResourceFastPath)) {
+                fastPath = new ResourceFastPath(maxAge);
+                extContext.getApplicationMap().put(ResourceFastPath.KEY, fastPath);
+            }
+        }
+    }
+
+
+    // this one is for unit tests
+    ResourceHandlerImpl(ResourceContentCache contentCache, ResourceFastPath fastPath) {
+
+        creationTime = System.currentTimeMillis();
+        this.contentCache = contentCache;
+        this.fastPath = fastPath;
+
     }
 
 
@@ -116,6 +154,9 @@ public class ResourceHandlerImpl extends ResourceHandler {
         FacesContext ctx = FacesContext.getCurrentInstance();
 
         String ctype = contentType != null ? contentType : getContentType(ctx, resourceName);
+        if (combineResources && CombinedResource.LIBRARY_NAME.equals(libraryName)) {
+            return CombinedResource.create(ctx, manager, resourceName, ctype);
+        }
         ResourceInfo info = manager.findResource(libraryName, resourceName, ctype, ctx);
         
         if (info == null) {
@@ -191,6 +232,10 @@ public class ResourceHandlerImpl extends ResourceHandler {
             return false;
         }
         
+        if (manager.isLibraryMissing(libraryName)) {
+            return false;
+        }
+
         FacesContext context = FacesContext.getCurrentInstance();
         // PENDING(fcaputo) do we need to iterate over the contracts here? I don't think so.
         LibraryInfo info = manager.findLibrary(libraryName, null, null, context);
@@ -198,6 +243,9 @@ public class ResourceHandlerImpl extends ResourceHandler {
             info = manager.findLibraryOnClasspathWithZipDirectoryEntryScan(libraryName, null, null, context, true);
 
         }
+        if (info == null) {
+            manager.addMissingLibrary(libraryName);
+        }
         
         return info != null;
     }
@@ -288,6 +336,11 @@ public class ResourceHandlerImpl extends ResourceHandler {
 
         if (resource != null) {
             if (resource.userAgentNeedsUpdate(context)) {
+                if (handleCachedResourceRequest(context, resource, resourceName, libraryName)
+                    || (serveFileResources
+                        && handleFileResourceRequest(context, resource, resourceName, libraryName))) {
+                    return;
+                }
                 ReadableByteChannel resourceChannel = null;
                 WritableByteChannel out = null;
                 ByteBuffer buf = allocateByteBuffer();
@@ -349,7 +402,251 @@ public class ResourceHandlerImpl extends ResourceHandler {
 
     }
     
-    private boolean libraryNameIsSafe(String libraryName) {
+    /**
+     * Serves the resource from the {@link ResourceContentCache}, choosing
+     * the gzip compressed copy if the client accepts it.
+     *
+     * @return <code>true</code> if the response has been written, otherwise
+     *  <code>false</code> if the resource isn't cached
+     */
+    boolean handleCachedResourceRequest(FacesContext context,
+                                        Resource resource,
+                                        String resourceName,
+                                        String libraryName) throws IOException {
+
+        if (contentCache == null || !(resource instanceof ResourceImpl)) {
+            return false;
+        }
+
+        ResourceContentCache.Content content;
+        try {
+            content = contentCache.get(context, ((ResourceImpl) resource).getResourceInfo());
+        } catch (IOException ioe) {
+            send404(context, resourceName, libraryName, ioe, true);
+            return true;
+        }
+        if (content == null) {
+            return false;
+        }
+
+        ExternalContext extContext = context.getExternalContext();
+        boolean compressed = (content.getCompressedBytes() != null
+                              && ResourceHelper.acceptsGzip(extContext));
+
+        // the compressed copy isn't kept if it isn't any smaller, so the
+        // tag must be the one of the representation actually sent
+        String entityTag = ((ResourceImpl) resource).getEntityTag(context, compressed);
+        String ifNoneMatch = extContext.getRequestHeaderMap().get("If-None-Match");
+        if (entityTag != null && ifNoneMatch != null
+            && ResourceImpl.matchesEntityTag(ifNoneMatch, entityTag)) {
+            send304(context);
+            return true;
+        }
+
+        String contentType = resource.getContentType();
+        if (contentType != null) {
+            extContext.setResponseContentType(contentType);
+        }
+        Map<String,String> headers = resource.getResponseHeaders();
+        for (Map.Entry<String, String> cur : headers.entrySet()) {
+            extContext.setResponseHeader(cur.getKey(), cur.getValue());
+        }
+        if (entityTag != null) {
+            extContext.setResponseHeader("ETag", entityTag);
+        }
+
+        byte[] bytes = content.getBytes();
+        if (content.getCompressedBytes() != null) {
+            // the response depends on the Accept-Encoding request header
+            extContext.setResponseHeader("Vary", "Accept-Encoding");
+            if (compressed) {
+                extContext.setResponseHeader("Content-Encoding", "gzip");
+                bytes = content.getCompressedBytes();
+            }
+        }
+
+        int offset = 0;
+        int length = bytes.length;
+        if (bytes == content.getBytes()) {
+            ByteRange range = applyRequestedRange(context, resource, length);
+            if (range == ByteRange.UNSATISFIABLE) {
+                return true;
+            }
+            if (range != null) {
+                offset = (int) range.getStart();
+                length = (int) range.getLength();
+            }
+        }
+
+        extContext.setResponseContentLength(length);
+        try (OutputStream out = extContext.getResponseOutputStream()) {
+            out.write(bytes, offset, length);
+        }
+
+        if (fastPath != null && context.getApplication().getResourceHandler() == this) {
+            // no ResourceHandler decorates this one, so the next request
+            // for the same resource may skip the FacesServlet
+            fastPath.publish(context,
+                             resourceName,
+                             libraryName,
+                             (ResourceImpl) resource,
+                             content,
+                             headers.get("Last-Modified"));
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Serves resources backed by a file, such as those in an exploded web
+     * application or classpath directory, straight from a {@link FileChannel}
+     * when the <code>com.sun.faces.serveFileResources</code> option is
+     * enabled.  This knows the size of the file up front, so the response
+     * gets a <code>Content-Length</code> and single byte ranges are honored.
+     * It isn't zero-copy: a servlet output stream is not a channel, so
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} still
+     * copies the content through a buffer.  Resources that are compressed or
+     * subject to EL evaluation are left to the stream based code.
+     *
+     * @return <code>true</code> if the response has been written, otherwise
+     *  <code>false</code> if the resource isn't a readable file
+     */
+    boolean handleFileResourceRequest(FacesContext context,
+                                      Resource resource,
+                                      String resourceName,
+                                      String libraryName) throws IOException {
+
+        if (!(resource instanceof ResourceImpl)) {
+            return false;
+        }
+        ResourceInfo info = ((ResourceImpl) resource).getResourceInfo();
+        if (!(info instanceof ClientResourceInfo) || ((ClientResourceInfo) info).supportsEL()) {
+            return false;
+        }
+        ExternalContext extContext = context.getExternalContext();
+        boolean compressable = ((ClientResourceInfo) info).isCompressable();
+        if (compressable && ResourceHelper.acceptsGzip(extContext)) {
+            return false;
+        }
+
+        Path path = getFilePath(info.getHelper().getURL(info, context));
+        if (path == null) {
+            return false;
+        }
+        FileChannel in;
+        try {
+            in = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+
+        try (FileChannel resourceChannel = in) {
+            long size = resourceChannel.size();
+            String contentType = resource.getContentType();
+            if (contentType != null) {
+                extContext.setResponseContentType(contentType);
+            }
+            handleHeaders(context, resource);
+            if (compressable) {
+                extContext.setResponseHeader("Vary", "Accept-Encoding");
+            }
+            long start = 0;
+            long end = size;
+            ByteRange range = applyRequestedRange(context, resource, size);
+            if (range == ByteRange.UNSATISFIABLE) {
+                return true;
+            }
+            if (range != null) {
+                start = range.getStart();
+                end = start + range.getLength();
+            }
+            if (end - start <= Integer.MAX_VALUE) {
+                extContext.setResponseContentLength((int) (end - start));
+            }
+
+            try (WritableByteChannel out = Channels.newChannel(extContext.getResponseOutputStream())) {
+                for (long position = start; position < end; ) {
+                    long transferred = resourceChannel.transferTo(position, end - position, out);
+                    if (transferred <= 0) {
+                        // the file was truncated while serving it
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+        } catch (IOException ioe) {
+            send404(context, resourceName, libraryName, ioe, true);
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Looks at the <code>Range</code> and <code>If-Range</code> headers of a
+     * request for the identity encoded representation of
+     * <code>resource</code> and sets the status and headers of a partial
+     * response if a single satisfiable range was requested.
+     *
+     * @return the requested range, {@link ByteRange#UNSATISFIABLE} if the
+     *  response is complete, or <code>null</code> if the whole resource
+     *  should be sent
+     */
+    private ByteRange applyRequestedRange(FacesContext context, Resource resource, long length) {
+
+        ExternalContext extContext = context.getExternalContext();
+        extContext.setResponseHeader("Accept-Ranges", "bytes");
+
+        Map<String,String> requestHeaders = extContext.getRequestHeaderMap();
+        String header = requestHeaders.get("Range");
+        if (header == null) {
+            return null;
+        }
+        String ifRange = requestHeaders.get("If-Range");
+        if (ifRange != null) {
+            // only send a part of the resource if the client has the rest
+            // of the same version
+            ifRange = ifRange.trim();
+            String current = (ifRange.startsWith("\"")
+                              ? ((ResourceImpl) resource).getEntityTag(context, false)
+                              : resource.getResponseHeaders().get("Last-Modified"));
+            if (!ifRange.equals(current)) {
+                return null;
+            }
+        }
+
+        ByteRange range = ByteRange.parse(header, length);
+        if (range == ByteRange.UNSATISFIABLE) {
+            extContext.setResponseStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            extContext.setResponseHeader("Content-Range", range.getContentRange(length));
+        } else if (range != null) {
+            extContext.setResponseStatus(SC_PARTIAL_CONTENT);
+            extContext.setResponseHeader("Content-Range", range.getContentRange(length));
+        }
+        return range;
+
+    }
+
+    /**
+     * @return the file <code>url</code> refers to, or <code>null</code> if
+     *  it isn't a regular file
+     */
+    private static Path getFilePath(URL url) {
+
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            Path path = Paths.get(url.toURI());
+            return (Files.isRegularFile(path) ? path : null);
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException | SecurityException e) {
+            return null;
+        }
+
+    }
+
+    static boolean libraryNameIsSafe(String libraryName) {
         assert(null != libraryName);
         boolean result;
         
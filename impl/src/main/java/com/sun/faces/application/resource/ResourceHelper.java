@@ -18,6 +18,7 @@ package com.sun.faces.application.resource;
 
 import static javax.faces.application.ResourceHandler.JSF_SCRIPT_LIBRARY_NAME;
 import static javax.faces.application.ResourceHandler.JSF_SCRIPT_RESOURCE_NAME;
+import static javax.faces.application.ResourceHandler.RESOURCE_IDENTIFIER;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
@@ -196,40 +197,42 @@ public abstract class ResourceHelper {
                     in = null;
                 }
             } else {
-                byte[] buf = new byte[512];
-
-                try (InputStream temp = new BufferedInputStream(
-                            new ELEvaluatingInputStream(ctx,
-                                    resource,
-                                    getNonCompressedInputStream(resource,
-                            ctx)));
-                     ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
-                     OutputStream out = new GZIPOutputStream(baos);) {
-                    // using dynamic compression here
-                    
-                    for (int read = temp.read(buf); read != -1; read = temp.read(buf)) {
-                        out.write(buf, 0, read);
+                byte[] compressed = resource.getEvaluatedContent(ctx, true);
+                if (compressed == null) {
+                    byte[] buf = new byte[512];
+
+                    try (InputStream temp = getELEvaluatingInputStream(resource, ctx);
+                         ByteArrayOutputStream baos = new ByteArrayOutputStream(512)) {
+                        // using dynamic compression here
+                        try (OutputStream out = new GZIPOutputStream(baos)) {
+                            for (int read = temp.read(buf); read != -1; read = temp.read(buf)) {
+                                out.write(buf, 0, read);
+                            }
+                        }
+                        compressed = baos.toByteArray();
+                    } catch (IOException ioe) {
+                        if (LOGGER.isLoggable(Level.SEVERE)) {
+                            LOGGER.log(Level.SEVERE,
+                                    ioe.getMessage(),
+                                    ioe);
+                        }
                     }
-                    in = new BufferedInputStream(
-                            new ByteArrayInputStream(baos.toByteArray()));
-                    
-                } catch (IOException ioe) {
-                    if (LOGGER.isLoggable(Level.SEVERE)) {
-                        LOGGER.log(Level.SEVERE,
-                                ioe.getMessage(),
-                                ioe);
+                    // the evaluated content has been cached when the stream
+                    // was closed if the expressions allow it
+                    if (compressed != null && resource.getEvaluatedContent(ctx, false) != null) {
+                        resource.setEvaluatedContent(ctx, true, compressed);
                     }
                 }
+                if (compressed != null) {
+                    in = new BufferedInputStream(
+                            new ByteArrayInputStream(compressed));
+                }
             }
         }
         
         if (in == null) {
             if (resource.supportsEL()) {
-                return new BufferedInputStream(
-                        new ELEvaluatingInputStream(ctx,
-                                resource,
-                                getNonCompressedInputStream(resource,
-                        ctx)));
+                return getELEvaluatingInputStream(resource, ctx);
             } else {
                 in = getNonCompressedInputStream(resource, ctx);
             }
@@ -238,6 +241,27 @@ public abstract class ResourceHelper {
     }
 
 
+    /**
+     * @return a stream of the content of <code>resource</code> after EL
+     *  evaluation, from the content cached with the resource if the
+     *  expressions allowed it to be cached before
+     */
+    private InputStream getELEvaluatingInputStream(ClientResourceInfo resource,
+            FacesContext ctx) throws IOException {
+
+        byte[] evaluated = resource.getEvaluatedContent(ctx, false);
+        if (evaluated != null) {
+            return new ByteArrayInputStream(evaluated);
+        }
+        return new BufferedInputStream(
+                new ELEvaluatingInputStream(ctx,
+                        resource,
+                        getNonCompressedInputStream(resource,
+                ctx)));
+
+    }
+
+
     /**
      * @param resource the resource to obtain a URL reference to
      * @param ctx the {@link FacesContext} for the current request
@@ -470,31 +494,9 @@ public abstract class ResourceHelper {
         ExternalContext extCtx = ctx.getExternalContext();
         Object response = extCtx.getResponse();
         if (response instanceof HttpServletResponse) {
-            String[] values =
-                  extCtx.getRequestHeaderValuesMap().get("accept-encoding");
-            boolean gzipFound = false;
-            for (String value : values) {
-                if (value.contains("gzip;q=0")) {
-                    // gzip compression not accepted by the user-agent
-                    return false;
-                }
-                if (value.contains("gzip")) {
-                    // gzip compression explicitly listed as supported
-                    // by the user agent.  Break here as we don't need to continue.
-                    gzipFound = true;
-                    break;
-                }
-                if (value.contains("*")
-                      && (!value.contains("*;q=0,") && !value.endsWith("*;q=0"))) {
-                    // gzip not explictly listed, but client sent *
-                    // meaning gzip is implicitly acceptable
-                    // keep looping to ensure we don't come across a
-                    // *;q=0 value.
-                    gzipFound = true;
-                }
-            }                                               
-            
-            if (gzipFound) {
+            // the response depends on the Accept-Encoding request header
+            ((HttpServletResponse) response).setHeader("Vary", "Accept-Encoding");
+            if (acceptsGzip(extCtx)) {
                 ((HttpServletResponse) response)
                       .setHeader("Content-Encoding", "gzip");
                 return true;
@@ -506,6 +508,72 @@ public abstract class ResourceHelper {
     }
 
 
+    /**
+     * @param extCtx the {@link ExternalContext} for the current request
+     * @return <code>true</code> if the <code>Accept-Encoding</code> request
+     *  header allows a gzip encoded response
+     */
+    static boolean acceptsGzip(ExternalContext extCtx) {
+
+        return acceptsGzip(extCtx.getRequestHeaderValuesMap().get("accept-encoding"));
+
+    }
+
+
+    /**
+     * @param extContext the {@link ExternalContext} for the current request
+     * @return <code>true</code> if
+     *  {@link ExternalContext#encodeResourceURL(String)} alters resource
+     *  URLs for the current request, for instance by appending the session
+     *  id when the session is tracked with URL rewriting.  Content with
+     *  such URLs belongs to the current user and must not be shared.
+     */
+    static boolean encodesResourceURLs(ExternalContext extContext) {
+
+        String path = extContext.getRequestContextPath() + RESOURCE_IDENTIFIER + '/';
+        return !path.equals(extContext.encodeResourceURL(path));
+
+    }
+
+
+    /**
+     * @param values the values of the <code>Accept-Encoding</code> request
+     *  header, or <code>null</code> if there is none
+     * @return <code>true</code> if the values allow gzip compressed
+     *  content, otherwise <code>false</code>
+     */
+    static boolean acceptsGzip(String[] values) {
+
+        if (values == null) {
+            return false;
+        }
+        boolean gzipFound = false;
+        for (String value : values) {
+            if (value.contains("gzip;q=0")) {
+                // gzip compression not accepted by the user-agent
+                return false;
+            }
+            if (value.contains("gzip")) {
+                // gzip compression explicitly listed as supported
+                // by the user agent.  Break here as we don't need to continue.
+                gzipFound = true;
+                break;
+            }
+            if (value.contains("*")
+                  && (!value.contains("*;q=0,") && !value.endsWith("*;q=0"))) {
+                // gzip not explictly listed, but client sent *
+                // meaning gzip is implicitly acceptable
+                // keep looping to ensure we don't come across a
+                // *;q=0 value.
+                gzipFound = true;
+            }
+        }
+
+        return gzipFound;
+
+    }
+
+
     /**
      * <p>
      * Utility method to peform the necessary actions to compress content.
@@ -632,6 +700,10 @@ public abstract class ResourceHelper {
 
     private static final class ELEvaluatingInputStream extends InputStream {
 
+        // Expressions whose value only depends on the resource they look up
+        private static final Pattern RESOURCE_EXPRESSION =
+              Pattern.compile("\\s*resource\\s*\\[\\s*('[^'#]*'|\"[^\"#]*\")\\s*\\]\\s*");
+
         // Premature optimization is the root of all evil.  Blah blah.
         private List<Integer> buf = new ArrayList<>(1024);
         private boolean failedExpressionTest = false;
@@ -641,6 +713,8 @@ public abstract class ResourceHelper {
         private FacesContext ctx;
         private boolean expressionEvaluated;
         private boolean endOfStreamReached;
+        // the evaluated content, if it may be cached
+        private ByteArrayOutputStream evaluated;
 
         // ---------------------------------------------------- Constructors
 
@@ -652,6 +726,9 @@ public abstract class ResourceHelper {
             this.inner = inner;
             this.info = info;
             this.ctx = ctx;
+            if (!info.isDevStage) {
+                evaluated = new ByteArrayOutputStream(1024);
+            }
 
         }
 
@@ -661,6 +738,15 @@ public abstract class ResourceHelper {
 
         @Override
         public int read() throws IOException {
+            int i = readEvaluated();
+            if (i != -1 && evaluated != null) {
+                evaluated.write(i);
+            }
+            return i;
+        }
+
+
+        private int readEvaluated() throws IOException {
             if (null == inner) {
                 return -1;
             }
@@ -697,7 +783,7 @@ public abstract class ResourceHelper {
                         // from the buffer.
                         writingExpression = true;
                         // Make sure to swallow the '{'.
-                        i = this.read();
+                        i = readEvaluated();
                     } else {
                         // It's not an expression, we need to return '#',
                         i = '#';
@@ -748,6 +834,13 @@ public abstract class ResourceHelper {
                 chars[i] = (char) (int) buf.get(i);
             }
             String expressionBody = new String(chars);
+            if (evaluated != null
+                && (!RESOURCE_EXPRESSION.matcher(expressionBody).matches()
+                    || encodesResourceURLs(ctx.getExternalContext()))) {
+                // the value may depend on anything, or carry the session id
+                // of the current user, so it can't be cached
+                evaluated = null;
+            }
             int colon;
             // If this expression contains a ":"
             if (-1 != (colon = expressionBody.indexOf(":"))) {
@@ -819,6 +912,8 @@ public abstract class ResourceHelper {
 
             if (endOfStreamReached && !expressionEvaluated) {
                 info.disableEL();
+            } else if (endOfStreamReached && evaluated != null) {
+                info.setEvaluatedContent(ctx, false, evaluated.toByteArray());
             }
             inner.close();
             super.close();
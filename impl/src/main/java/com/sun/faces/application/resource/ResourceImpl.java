@@ -56,6 +56,8 @@ import javax.faces.context.FacesContext;
 import javax.servlet.http.HttpServletRequest;
 
 import com.sun.faces.application.ApplicationAssociate;
+import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter;
 import com.sun.faces.util.FacesLogger;
 
 /**
@@ -76,6 +78,14 @@ public class ResourceImpl extends Resource implements Externalizable {
 
     private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
 
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    /* Request parameter holding the content fingerprint of the resource */
+    static final String FINGERPRINT_PARAM = "fp";
+
+    /* Lifespan of fingerprinted resources, one year as per RFC 7234 */
+    static final long IMMUTABLE_MAX_AGE = 365L * 24L * 60L * 60L;
+
     private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
 
 
@@ -191,6 +201,12 @@ public class ResourceImpl extends Resource implements Externalizable {
             long expiresTime;
             if (FacesContext.getCurrentInstance().isProjectStage(Development)) {
                 expiresTime = new Date().getTime();
+            } else if (isFingerprintRequest(FacesContext.getCurrentInstance())) {
+                // the URL changes along with the content, so the response
+                // may be cached for as long as the user agent wants
+                expiresTime = new Date().getTime() + (IMMUTABLE_MAX_AGE * 1000L);
+                responseHeaders.put("Cache-Control",
+                                    "public, max-age=" + IMMUTABLE_MAX_AGE + ", immutable");
             } else {
                 expiresTime = new Date().getTime() + maxAge;
             }
@@ -234,6 +250,10 @@ public class ResourceImpl extends Resource implements Externalizable {
                     }
                 }
             }
+            String entityTag = getEntityTag(FacesContext.getCurrentInstance());
+            if (entityTag != null) {
+                responseHeaders.put("ETag", entityTag);
+            }
             return responseHeaders;
         } else {
             return emptyMap();
@@ -248,44 +268,8 @@ public class ResourceImpl extends Resource implements Externalizable {
 
         
         FacesContext context = FacesContext.getCurrentInstance();
-        String facesServletMapping = getFacesMapping(context);
-        
-        String uri = null;
-        
-        // Check for exact mapping first
-        if (isExactMapped(facesServletMapping)) {
-            String resource = RESOURCE_IDENTIFIER + '/' + getResourceName();
-            // Check if the FacesServlet is exact mapped to the resource
-            if (isResourceExactMappedToFacesServlet(context.getExternalContext(), resource)) {
-                uri = facesServletMapping + resource;
-            } else {
-                // No exact mapping for the requested resource, see if Facelets servlet is mapped to 
-                // e.g. /faces/* or *.xhtml and take that mapping
-                String mapping = getFirstWildCardMappingToFacesServlet(context.getExternalContext());
-                
-                if (mapping == null) {
-                    
-                    // If there are only exact mappings and the resource is not exact mapped,
-                    // we can't serve this resource
-                    
-                    throw new IllegalStateException(
-                        "No suitable mapping for FacesServlet found. To serve resources " +
-                        "FacesServlet should have at least one prefix or suffix mapping."
-                    );
-                }
-                facesServletMapping = mapping.replace("*", "");
-            }
-        } 
-        
-        if (uri == null) {
-            // If it is extension mapped
-            if (isPrefixMapped(facesServletMapping)) {
-                uri = facesServletMapping + RESOURCE_IDENTIFIER + '/' + getResourceName();
-            } else {
-                uri = RESOURCE_IDENTIFIER + '/' + getResourceName() + facesServletMapping;
-            }
-        }
-        
+        String uri = getResourcePath(context, getResourceName());
+
         boolean queryStarted = false;
         if (getLibraryName() != null) {
             queryStarted = true;
@@ -318,6 +302,15 @@ public class ResourceImpl extends Resource implements Externalizable {
             queryStarted = true;
         }
         
+        if (WebConfiguration.getInstance(context.getExternalContext())
+                  .isOptionEnabled(BooleanWebContextInitParameter.FingerprintResourceUrls)) {
+            String fingerprint = getFingerprint(context);
+            if (fingerprint != null) {
+                uri += ((queryStarted) ? "&" : "?") + FINGERPRINT_PARAM + '=' + fingerprint;
+                queryStarted = true;
+            }
+        }
+
         if (JSF_SCRIPT_RESOURCE_NAME.equals(getResourceName()) && JSF_SCRIPT_LIBRARY_NAME.equals(getLibraryName())) {
             ProjectStage stage = context.getApplication().getProjectStage();
             switch (stage) {
@@ -356,6 +349,19 @@ public class ResourceImpl extends Resource implements Externalizable {
             return true;
         }
 
+        Map<String,String> requestHeaders =
+              context.getExternalContext().getRequestHeaderMap();
+
+        // If-None-Match takes precedence over If-Modified-Since, but only
+        // content hash entity tags are reliable enough to answer it
+        String ifNoneMatch = requestHeaders.get(IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            String entityTag = getEntityTag(context);
+            if (entityTag != null) {
+                return !matchesEntityTag(ifNoneMatch, entityTag);
+            }
+        }
+
         // http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html
         // 14.25 If-Modified-Since
 
@@ -367,9 +373,6 @@ public class ResourceImpl extends Resource implements Externalizable {
         // A date which is later than the server's current time is
         // invalid.
 
-        Map<String,String> requestHeaders =
-              context.getExternalContext().getRequestHeaderMap();
-
         if (requestHeaders.containsKey(IF_MODIFIED_SINCE)) {
             initResourceInfo();
             /*
@@ -455,6 +458,155 @@ public class ResourceImpl extends Resource implements Externalizable {
         maxAge = in.readLong();
     }
 
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @return the strong entity tag of the representation of this resource
+     *  {@link #getInputStream()} returns for the current request, or
+     *  <code>null</code> if it has none
+     */
+    String getEntityTag(FacesContext context) {
+        initResourceInfo();
+        if (!(resourceInfo instanceof ClientResourceInfo)) {
+            return null;
+        }
+        return getEntityTag(context,
+                            ((ClientResourceInfo) resourceInfo).isCompressable()
+                            && ResourceHelper.acceptsGzip(context.getExternalContext()));
+    }
+
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @param compressed <code>true</code> for the gzip encoded
+     *  representation of this resource
+     * @return the strong entity tag of the specified representation of this
+     *  resource, or <code>null</code> if it has none
+     */
+    String getEntityTag(FacesContext context, boolean compressed) {
+        initResourceInfo();
+        if (!(resourceInfo instanceof ClientResourceInfo)) {
+            return null;
+        }
+        String tag = ((ClientResourceInfo) resourceInfo).getEntityTag(context);
+        if (tag != null && compressed) {
+            // the gzip encoded representation needs a tag of its own
+            tag = withGzipSuffix(tag);
+        }
+        return tag;
+    }
+
+    /**
+     * @param entityTag the quoted entity tag of the identity encoded
+     *  representation of a resource
+     * @return the entity tag of its gzip encoded representation
+     */
+    static String withGzipSuffix(String entityTag) {
+        return entityTag.substring(0, entityTag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * @return the path, relative to the context root, that maps the
+     *  specified resource name to the <code>FacesServlet</code>, without
+     *  query parameters
+     */
+    static String getResourcePath(FacesContext context, String resourceName) {
+
+        String facesServletMapping = getFacesMapping(context);
+        
+        String uri = null;
+        
+        // Check for exact mapping first
+        if (isExactMapped(facesServletMapping)) {
+            String resource = RESOURCE_IDENTIFIER + '/' + resourceName;
+            // Check if the FacesServlet is exact mapped to the resource
+            if (isResourceExactMappedToFacesServlet(context.getExternalContext(), resource)) {
+                uri = facesServletMapping + resource;
+            } else {
+                // No exact mapping for the requested resource, see if Facelets servlet is mapped to 
+                // e.g. /faces/* or *.xhtml and take that mapping
+                String mapping = getFirstWildCardMappingToFacesServlet(context.getExternalContext());
+                
+                if (mapping == null) {
+                    
+                    // If there are only exact mappings and the resource is not exact mapped,
+                    // we can't serve this resource
+                    
+                    throw new IllegalStateException(
+                        "No suitable mapping for FacesServlet found. To serve resources " +
+                        "FacesServlet should have at least one prefix or suffix mapping."
+                    );
+                }
+                facesServletMapping = mapping.replace("*", "");
+            }
+        } 
+        
+        if (uri == null) {
+            // If it is extension mapped
+            if (isPrefixMapped(facesServletMapping)) {
+                uri = facesServletMapping + RESOURCE_IDENTIFIER + '/' + resourceName;
+            } else {
+                uri = RESOURCE_IDENTIFIER + '/' + resourceName + facesServletMapping;
+            }
+        }
+
+        return uri;
+
+    }
+
+    /**
+     * @return the content hash of this resource as it appears in the
+     *  {@link #FINGERPRINT_PARAM} request parameter, or <code>null</code> if
+     *  this resource has none.  Like the entity tag it is computed once and
+     *  kept with the {@link ResourceInfo} in the {@link ResourceCache}.
+     */
+    private String getFingerprint(FacesContext context) {
+        initResourceInfo();
+        if (!(resourceInfo instanceof ClientResourceInfo)) {
+            return null;
+        }
+        String tag = ((ClientResourceInfo) resourceInfo).getEntityTag(context);
+        return ((tag != null) ? tag.substring(1, tag.length() - 1) : null);
+    }
+
+    /**
+     * @return <code>true</code> if the current request carries the
+     *  fingerprint of the current content of this resource.  Requests with
+     *  a stale fingerprint, from pages rendered before the resource
+     *  changed, are served with the regular caching headers.
+     */
+    private boolean isFingerprintRequest(FacesContext context) {
+        String requested = context.getExternalContext()
+              .getRequestParameterMap().get(FINGERPRINT_PARAM);
+        return (requested != null && requested.equals(getFingerprint(context)));
+    }
+
+    /**
+     * @param header the value of an <code>If-None-Match</code> header
+     * @param entityTag a quoted entity tag
+     * @return <code>true</code> if <code>header</code> lists
+     *  <code>entityTag</code>, using the weak comparison, or is
+     *  <code>*</code>
+     */
+    static boolean matchesEntityTag(String header, String entityTag) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if ("*".equals(candidate) || entityTag.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the {@link ResourceInfo} this resource was created from
+     */
+    ResourceInfo getResourceInfo() {
+        initResourceInfo();
+        return resourceInfo;
+    }
+
     private void initResourceInfo(){
         if (resourceInfo != null) {
             return;
@@ -76,6 +76,11 @@ public class ResourceManager {
      */
     private ResourceCache cache;
 
+    /**
+     * The content of the {@link CombinedResource}s of this application.
+     */
+    private final CombinedResource.ContentCache combinedContents = new CombinedResource.ContentCache();
+
     /**
      * Patterns used to find {@link ResourceInfo} instances that may have their
      * content compressed.
@@ -174,11 +179,17 @@ public class ResourceManager {
         ResourceInfo info = getFromCache(resourceName, libraryName, localePrefix, contracts);
         
         if (info == null) {
+            if (!isViewResource && isMissing(resourceName, libraryName, localePrefix, contracts)) {
+                return null;
+            }
             if (isCompressable(contentType, ctx)) {
                 info = findResourceCompressed(libraryName, resourceName, isViewResource, localePrefix, contracts, ctx);
             } else {
                info = findResourceNonCompressed(libraryName, resourceName, isViewResource, localePrefix, contracts, ctx);
             }
+            if (info == null && !isViewResource && cache != null) {
+                cache.addMissing(resourceName, libraryName, localePrefix, contracts);
+            }
         }
 
         return info;
@@ -400,6 +411,45 @@ public class ResourceManager {
     }
 
 
+    /**
+     * @return <code>true</code> if the cache remembers that the specified
+     *  resource was recently looked up and not found
+     */
+    private boolean isMissing(String name, String library, String localePrefix, List<String> contracts) {
+        return (cache != null && cache.isMissing(name, library, localePrefix, contracts));
+    }
+
+
+    /**
+     * @param libraryName the library name
+     * @return <code>true</code> if the cache remembers that the specified
+     *  library was recently looked up and not found
+     */
+    boolean isLibraryMissing(String libraryName) {
+        return (cache != null && cache.isLibraryMissing(libraryName));
+    }
+
+
+    /**
+     * @return the cached content of the combined resources of this
+     *  application
+     */
+    CombinedResource.ContentCache getCombinedContents() {
+        return combinedContents;
+    }
+
+
+    /**
+     * Remember that the specified library doesn't exist.
+     * @param libraryName the library name
+     */
+    void addMissingLibrary(String libraryName) {
+        if (cache != null) {
+            cache.addMissingLibrary(libraryName);
+        }
+    }
+
+
     /**
      * Adds the the specified {@link ResourceInfo} to the cache.
      * @param info the @{link ResourceInfo} to add.
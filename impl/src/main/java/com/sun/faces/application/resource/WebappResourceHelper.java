@@ -35,6 +35,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.CacheResourceModificationTimestamp;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.EnableResourceIndex;
+import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.ResourceUpdateCheckPeriod;
 import com.sun.faces.facelets.impl.DefaultResourceResolver;
 import javax.faces.view.facelets.ResourceResolver;
 
@@ -57,6 +59,19 @@ public class WebappResourceHelper extends ResourceHelper {
 
     private boolean cacheTimestamp;
 
+    /*
+     * Whether the resources and contracts directories are indexed.
+     */
+    private boolean indexEnabled;
+
+    /*
+     * Update check period of the index in minutes, or -1 if it never
+     * expires, like the ResourceInfo instances in the ResourceCache.
+     */
+    private long indexCheckPeriod;
+
+    private volatile WebappResourceIndex index;
+
 
     // ------------------------------------------------------------ Constructors
 
@@ -67,6 +82,16 @@ public class WebappResourceHelper extends ResourceHelper {
         cacheTimestamp = webconfig.isOptionEnabled(CacheResourceModificationTimestamp);
         BASE_RESOURCE_PATH = webconfig.getOptionValue(WebConfiguration.WebContextInitParameter.WebAppResourcesDirectory);
         BASE_CONTRACTS_PATH = webconfig.getOptionValue(WebConfiguration.WebContextInitParameter.WebAppContractsDirectory);
+        if (webconfig.isOptionEnabled(EnableResourceIndex)) {
+            try {
+                indexCheckPeriod = Long.parseLong(webconfig.getOptionValue(ResourceUpdateCheckPeriod));
+            } catch (NumberFormatException nfe) {
+                indexCheckPeriod = Long.parseLong(ResourceUpdateCheckPeriod.getDefaultValue());
+            }
+            // a period of 0 means checking for updates on every lookup,
+            // which an index can't do any cheaper than the container
+            indexEnabled = (indexCheckPeriod != 0);
+        }
 
     }
 
@@ -173,8 +198,7 @@ public class WebappResourceHelper extends ResourceHelper {
                    + '/'
                    + libraryName;
         }
-        Set<String> resourcePaths =
-              ctx.getExternalContext().getResourcePaths(path);
+        Set<String> resourcePaths = getResourcePaths(path, ctx);
         // it could be possible that there exists an empty directory
         // that is representing the library, but if it's empty, treat it
         // as non-existant and return null.
@@ -224,7 +248,7 @@ public class WebappResourceHelper extends ResourceHelper {
             // first check to see if the resource exists, if not, return null.  Let
             // the caller decide what to do.
             try {
-                if (ctx.getExternalContext().getResource(basePath) == null) {
+                if (!resourceExists(basePath, ctx)) {
                     return null;
                 }
             } catch (MalformedURLException e) {
@@ -234,8 +258,7 @@ public class WebappResourceHelper extends ResourceHelper {
 
         // we got to hear, so we know the resource exists (either as a directory
         // or file)
-        Set<String> resourcePaths =
-              ctx.getExternalContext().getResourcePaths(basePath);
+        Set<String> resourcePaths = getResourcePaths(basePath, ctx);
         // if getResourcePaths returns null or an empty set, this means that we have
         // a non-directory resource, therefor, this resource isn't versioned.
         ClientResourceInfo value;
@@ -346,7 +369,7 @@ public class WebappResourceHelper extends ResourceHelper {
             }
             
             try {
-                if (ctx.getExternalContext().getResource(basePath) != null) {
+                if (resourceExists(basePath, ctx)) {
                     outContract[0] = new ContractInfo(curContract);
                     break;
                 } else {
@@ -360,4 +383,57 @@ public class WebappResourceHelper extends ResourceHelper {
         return basePath;
     }
 
+
+
+    /**
+     * @return the {@link WebappResourceIndex} of the resources and contracts
+     *  directories, or <code>null</code> if the container has to be asked.
+     *  In the <code>Development</code> stage, where resources are edited
+     *  all the time, and if resources are checked for updates on every
+     *  lookup, the container is always asked.
+     */
+    private WebappResourceIndex getIndex(FacesContext ctx) {
+
+        if (!indexEnabled || ctx.isProjectStage(ProjectStage.Development)) {
+            return null;
+        }
+        WebappResourceIndex current = index;
+        if (current == null || current.isExpired()) {
+            synchronized (this) {
+                current = index;
+                if (current == null || current.isExpired()) {
+                    current = WebappResourceIndex.build(ctx.getExternalContext(),
+                                                        indexCheckPeriod,
+                                                        BASE_RESOURCE_PATH,
+                                                        BASE_CONTRACTS_PATH);
+                    index = current;
+                }
+            }
+        }
+        return current;
+
+    }
+
+
+    private Set<String> getResourcePaths(String path, FacesContext ctx) {
+
+        WebappResourceIndex current = getIndex(ctx);
+        if (current != null && current.isIndexed(path)) {
+            return current.getResourcePaths(path);
+        }
+        return ctx.getExternalContext().getResourcePaths(path);
+
+    }
+
+
+    private boolean resourceExists(String path, FacesContext ctx) throws MalformedURLException {
+
+        WebappResourceIndex current = getIndex(ctx);
+        if (current != null && current.isIndexed(path)) {
+            return current.exists(path);
+        }
+        return (ctx.getExternalContext().getResource(path) != null);
+
+    }
+
 }
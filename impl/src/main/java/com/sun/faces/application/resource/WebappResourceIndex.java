@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.context.ExternalContext;
+
+import com.sun.faces.util.FacesLogger;
+
+/**
+ * <p>The paths below the resources and contracts directories of a web
+ * application, as a trie of path segments, so the
+ * {@link WebappResourceHelper} can look up libraries, versions and
+ * resources, and especially find out that they don't exist, without asking
+ * the container for every probe.</p>
+ *
+ * <p>The index is a snapshot; it expires like the {@link ResourceInfo}
+ * instances in the {@link ResourceCache}, after
+ * <code>com.sun.faces.resourceUpdateCheckPeriod</code> minutes.</p>
+ */
+final class WebappResourceIndex {
+
+    private static final Logger LOGGER = FacesLogger.RESOURCE.getLogger();
+
+    // Larger directories are left to the container
+    static final int MAX_ENTRIES = 65536;
+
+    private static final String[] NO_NAMES = new String[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final String[] baseDirs;
+    private final Node root;
+    private final long checkTime;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private WebappResourceIndex(String[] baseDirs, Node root, long checkTime) {
+
+        this.baseDirs = baseDirs;
+        this.root = root;
+        this.checkTime = checkTime;
+
+    }
+
+
+    // ---------------------------------------------------------- Static Methods
+
+
+    /**
+     * @param extContext the <code>ExternalContext</code> to read the
+     *  directories from
+     * @param checkPeriod the number of minutes after which the index
+     *  expires, or <code>-1</code> if it never does
+     * @param baseDirs the directories to index
+     * @return a new index, which indexes nothing if the directories contain
+     *  more than {@link #MAX_ENTRIES} entries
+     */
+    static WebappResourceIndex build(ExternalContext extContext, long checkPeriod, String... baseDirs) {
+
+        long checkTime = ((checkPeriod != -1)
+                          ? System.currentTimeMillis() + (checkPeriod * 1000L * 60L)
+                          : -1);
+        Builder builder = new Builder(extContext);
+        Node root = new Node();
+        for (String baseDir : baseDirs) {
+            String[] segments = split(baseDir);
+            if (segments.length == 0) {
+                // the whole web application can't be indexed
+                return new WebappResourceIndex(baseDirs, null, checkTime);
+            }
+            Node parent = root;
+            for (int i = 0; i < segments.length - 1; i++) {
+                parent = parent.getOrAddChild(segments[i]);
+            }
+            Node dir = builder.build('/' + String.join("/", segments) + '/');
+            if (dir == null) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE,
+                               "Too many resources below {0}, not indexing them",
+                               baseDir);
+                }
+                return new WebappResourceIndex(baseDirs, null, checkTime);
+            }
+            parent.addChild(segments[segments.length - 1], dir);
+        }
+        root.seal();
+
+        return new WebappResourceIndex(baseDirs, root, checkTime);
+
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return <code>true</code> if this index knows whether
+     *  <code>path</code> exists
+     */
+    boolean isIndexed(String path) {
+
+        if (root == null) {
+            return false;
+        }
+        for (String baseDir : baseDirs) {
+            if (path.startsWith(baseDir)
+                && (path.length() == baseDir.length() || path.charAt(baseDir.length()) == '/')) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+
+    /**
+     * @return <code>true</code> if the file or directory <code>path</code>
+     *  exists
+     */
+    boolean exists(String path) {
+        return (find(path) != null);
+    }
+
+
+    /**
+     * @return the paths of the entries of the directory <code>path</code>,
+     *  with a trailing <code>/</code> for directories, like
+     *  {@link ExternalContext#getResourcePaths(String)}, or <code>null</code>
+     *  if there is no such directory
+     */
+    Set<String> getResourcePaths(String path) {
+
+        Node node = find(path);
+        if (node == null || !node.directory) {
+            return null;
+        }
+        String prefix = (path.endsWith("/") ? path : path + '/');
+        Set<String> paths = new HashSet<>(node.names.length * 2);
+        for (int i = 0; i < node.names.length; i++) {
+            paths.add(prefix + node.names[i] + (node.children[i].directory ? "/" : ""));
+        }
+        return Collections.unmodifiableSet(paths);
+
+    }
+
+
+    boolean isExpired() {
+        return (checkTime != -1 && checkTime < System.currentTimeMillis());
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private Node find(String path) {
+
+        Node node = root;
+        int start = 0;
+        int len = path.length();
+        while (node != null && start < len) {
+            int end = path.indexOf('/', start);
+            if (end == -1) {
+                end = len;
+            }
+            if (end > start) {
+                node = node.getChild(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return node;
+
+    }
+
+
+    private static String[] split(String path) {
+
+        return Arrays.stream(path.split("/"))
+                     .filter(s -> !s.isEmpty())
+                     .toArray(String[]::new);
+
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * <p>A file or directory.  The names of the entries of a directory are
+     * kept sorted, so they can be searched without a map per directory.</p>
+     */
+    private static final class Node {
+
+        private boolean directory;
+        private String[] names = NO_NAMES;
+        private Node[] children = NO_NODES;
+
+        private Node getChild(String name) {
+            int idx = Arrays.binarySearch(names, name);
+            return ((idx >= 0) ? children[idx] : null);
+        }
+
+        private Node getOrAddChild(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return children[i];
+                }
+            }
+            Node child = new Node();
+            child.directory = true;
+            addChild(name, child);
+            return child;
+        }
+
+        private void addChild(String name, Node child) {
+            directory = true;
+            names = Arrays.copyOf(names, names.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            names[names.length - 1] = name;
+            children[children.length - 1] = child;
+        }
+
+        /**
+         * Sorts the entries of the directories created through
+         * {@link #getOrAddChild(String)}.
+         */
+        private void seal() {
+            sort();
+            for (Node child : children) {
+                if (child.directory) {
+                    child.seal();
+                }
+            }
+        }
+
+        private void sort() {
+            Integer[] order = new Integer[names.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+            String[] sortedNames = new String[names.length];
+            Node[] sortedChildren = new Node[names.length];
+            for (int i = 0; i < order.length; i++) {
+                sortedNames[i] = names[order[i]];
+                sortedChildren[i] = children[order[i]];
+            }
+            names = sortedNames;
+            children = sortedChildren;
+        }
+
+    } // END Node
+
+
+    /**
+     * <p>Reads the directories from the container.</p>
+     */
+    private static final class Builder {
+
+        private final ExternalContext extContext;
+        private int entries;
+
+        private Builder(ExternalContext extContext) {
+            this.extContext = extContext;
+        }
+
+        /**
+         * @return the directory <code>path</code>, which ends with a
+         *  <code>/</code>, or <code>null</code> if there are too many
+         *  entries
+         */
+        private Node build(String path) {
+
+            Node dir = new Node();
+            dir.directory = true;
+            Set<String> paths = extContext.getResourcePaths(path);
+            if (paths == null || paths.isEmpty()) {
+                return dir;
+            }
+            entries += paths.size();
+            if (entries > MAX_ENTRIES) {
+                return null;
+            }
+
+            String[] names = new String[paths.size()];
+            Node[] children = new Node[names.length];
+            int count = 0;
+            for (String entry : paths) {
+                boolean isDirectory = entry.endsWith("/");
+                int end = (isDirectory ? entry.length() - 1 : entry.length());
+                String name = entry.substring(entry.lastIndexOf('/', end - 1) + 1, end);
+                if (name.isEmpty()) {
+                    continue;
+                }
+                Node child;
+                if (isDirectory) {
+                    child = build(path + name + '/');
+                    if (child == null) {
+                        return null;
+                    }
+                } else {
+                    child = new Node();
+                }
+                names[count] = name;
+                children[count++] = child;
+            }
+            dir.names = Arrays.copyOf(names, count);
+            dir.children = Arrays.copyOf(children, count);
+            dir.sort();
+            return dir;
+
+        }
+
+    } // END Builder
+
+}
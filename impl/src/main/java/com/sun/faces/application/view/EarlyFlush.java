@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.view;
+
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.EnableEarlyFlush;
+import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.EarlyFlushComponentIds;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.faces.application.ProjectStage;
+import javax.faces.context.FacesContext;
+
+import com.sun.faces.config.WebConfiguration;
+
+/**
+ * <p>Support for the opt-in early flush render mode, enabled with the
+ * <code>com.sun.faces.enableEarlyFlush</code> context-param.  The response
+ * is flushed to the client as soon as <code>h:head</code> has been
+ * rendered, and after each component whose client id is listed by the
+ * <code>com.sun.faces.earlyFlushComponentIds</code> context-param, so the
+ * browser can start fetching stylesheets and scripts while the rest of the
+ * view is still being rendered.</p>
+ *
+ * <p>Flushing never touches content the {@link WriteBehindStateWriter}
+ * holds back until the state is known; only what has been written through
+ * to the response goes out.  The response is flushed through its own
+ * writer rather than {@link javax.faces.context.ExternalContext#responseFlushBuffer()},
+ * which would finalize the {@link javax.faces.context.Flash} while the view
+ * is still being rendered; as when the response buffer fills up, changes
+ * made to the Flash after the flush can't be sent in a cookie any more.</p>
+ *
+ * <p>Partial requests are never flushed early, and neither is any request
+ * in the <code>Development</code> project stage, so rendering errors there
+ * can still be reported with an error page.  Once the response has been
+ * flushed, an error page can no longer replace it, so a rendering error
+ * ends the response with an inline error message instead, see
+ * {@link #writeError(FacesContext)}.</p>
+ */
+public final class EarlyFlush {
+
+    static final String COMPONENT_IDS_KEY =
+          EarlyFlush.class.getName() + ".COMPONENT_IDS";
+
+    private static final String FLUSHED_KEY =
+          EarlyFlush.class.getName() + ".FLUSHED";
+
+    // Written in place of the part of the view that couldn't be rendered.
+    // Closing the open elements is left to the browser.
+    private static final String ERROR_MARKUP =
+          "<div role=\"alert\">An error occurred while rendering this page.</div>";
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private EarlyFlush() {
+        throw new AssertionError();
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @return <code>true</code> if the response of the current request is
+     *  to be flushed early
+     */
+    public static boolean isEnabled(FacesContext context) {
+        return getComponentIds(context) != null;
+    }
+
+
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @return the client ids of the components the response is to be
+     *  flushed after, possibly empty, or <code>null</code> if the response
+     *  of the current request is not to be flushed early
+     */
+    @SuppressWarnings("unchecked")
+    public static Set<String> getComponentIds(FacesContext context) {
+
+        Map<Object, Object> attributes = context.getAttributes();
+        if (attributes.containsKey(COMPONENT_IDS_KEY)) {
+            return (Set<String>) attributes.get(COMPONENT_IDS_KEY);
+        }
+
+        Set<String> ids = null;
+        WebConfiguration webConfig = WebConfiguration.getInstance(context.getExternalContext());
+        if (webConfig.isOptionEnabled(EnableEarlyFlush)
+              && !context.isProjectStage(ProjectStage.Development)
+              && !context.getPartialViewContext().isPartialRequest()) {
+            ids = new HashSet<>(Arrays.asList(webConfig.getOptionValue(EarlyFlushComponentIds, " ")));
+            ids.remove("");
+        }
+        attributes.put(COMPONENT_IDS_KEY, ids);
+        return ids;
+
+    }
+
+
+    /**
+     * <p>Flush everything written to the response so far to the client.</p>
+     *
+     * @param context the {@link FacesContext} for the current request
+     * @throws IOException if an error occurs flushing the response
+     */
+    public static void flush(FacesContext context) throws IOException {
+
+        // close any pending start tag
+        context.getResponseWriter().flush();
+        // flushing the writer of the response commits it, without the
+        // Flash actions of responseFlushBuffer()
+        context.getExternalContext().getResponseOutputWriter().flush();
+        context.getAttributes().put(FLUSHED_KEY, Boolean.TRUE);
+
+    }
+
+
+    /**
+     * <p>End a response that has been flushed early with an inline error
+     * message, in place of the error page that can no longer be sent.
+     * Content held back by the {@link WriteBehindStateWriter} is
+     * discarded.</p>
+     *
+     * @param context the {@link FacesContext} for the current request
+     * @throws IOException if an error occurs writing the message
+     */
+    public static void writeError(FacesContext context) throws IOException {
+
+        Writer out = context.getExternalContext().getResponseOutputWriter();
+        out.write(ERROR_MARKUP);
+        out.flush();
+        context.responseComplete();
+
+    }
+
+
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @return <code>true</code> if the response has been flushed early,
+     *  and therefore committed
+     */
+    public static boolean isFlushed(FacesContext context) {
+        return context.getAttributes().containsKey(FLUSHED_KEY);
+    }
+
+}
@@ -19,6 +19,7 @@ package com.sun.faces.application.view;
 import static com.sun.faces.RIConstants.DYNAMIC_COMPONENT;
 import static com.sun.faces.RIConstants.FACELETS_ENCODING_KEY;
 import static com.sun.faces.RIConstants.FLOW_DEFINITION_ID_SUFFIX;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.ShrinkResponseBuffer;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.FaceletsBufferSize;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.FaceletsViewMappings;
 import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.StateSavingMethod;
@@ -65,6 +66,7 @@ import java.beans.PropertyDescriptor;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -171,6 +173,7 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
 
     private int responseBufferSize;
     private boolean responseBufferSizeSet;
+    private boolean shrinkResponseBuffer;
 
     private Cache<Resource, BeanInfo> metadataCache;
     private Map<String, List<String>> contractMappings;
@@ -431,6 +434,11 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
             stateWriter = new WriteBehindStateWriter(outputWriter,
                                                      ctx,
                                                      responseBufferSize);
+            ViewSizeStatistics viewSizes = ViewSizeStatistics.getInstance(extContext);
+            String viewId = viewToRender.getViewId();
+            boolean partial = ctx.getPartialViewContext().isPartialRequest();
+            stateWriter.setSizeEstimates(viewSizes.getRenderedSize(viewId, partial),
+                                         viewSizes.getStateSize(viewId, partial));
 
             ResponseWriter writer = origWriter.cloneWithWriter(stateWriter);
             ctx.setResponseWriter(writer);
@@ -482,6 +490,8 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
                 stateWriter.flushToWriter();
             }
 
+            viewSizes.record(viewId, partial, stateWriter.getRenderedSize(), stateWriter.getStateSize());
+
         } catch (FileNotFoundException fnfe) {
             handleFaceletNotFound(ctx, viewToRender.getViewId(), fnfe.getMessage());
         } catch (Exception e) {
@@ -1005,6 +1015,7 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
 
         try {
             responseBufferSizeSet = webConfig.isSet(FaceletsBufferSize);
+            shrinkResponseBuffer = webConfig.isOptionEnabled(ShrinkResponseBuffer);
             responseBufferSize =
                   Integer.parseInt(webConfig.getOptionValue(FaceletsBufferSize));
         } catch (NumberFormatException nfe) {
@@ -1089,11 +1100,6 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
                   "No render kit was available for id \"" + id + "\"");
         }
 
-        if (responseBufferSizeSet) {
-            // set the buffer for content
-            extContext.setResponseBufferSize(responseBufferSize);
-        }
-
         // get our content type
         String contentType = (String) context.getAttributes().get("facelets.ContentType");
 
@@ -1110,6 +1116,11 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
         contentType = getResponseContentType(context, writer.getContentType());
         encoding = getResponseEncoding(context, writer.getCharacterEncoding());
 
+        if (responseBufferSizeSet) {
+            // set the buffer for content
+            extContext.setResponseBufferSize(getResponseBufferSize(context, encoding));
+        }
+
         // apply them to the response
         char[] buffer = new char[1028];
         HtmlUtils.writeTextForXML(writer, contentType, buffer);
@@ -1123,6 +1134,56 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
         return writer;
     }
 
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @param encoding the character encoding of the response
+     * @return the configured response buffer size, or, if the
+     *  <code>com.sun.faces.shrinkResponseBuffer</code> context-param is
+     *  enabled, less if earlier renders of the view never came close to
+     *  filling it.  A smaller buffer gets committed sooner, after which an
+     *  error page or redirect can no longer replace the response, so it is
+     *  not the default.
+     */
+    private int getResponseBufferSize(FacesContext context, String encoding) {
+
+        UIViewRoot root = context.getViewRoot();
+        if (!shrinkResponseBuffer || root == null) {
+            return responseBufferSize;
+        }
+        int estimate = ViewSizeStatistics.getInstance(context.getExternalContext())
+              .getRenderedSize(root.getViewId(), context.getPartialViewContext().isPartialRequest());
+        return getResponseBufferSize(estimate, encoding, responseBufferSize);
+
+    }
+
+    /**
+     * @param estimate the estimated number of characters rendered, or
+     *  <code>-1</code> if unknown
+     * @param encoding the character encoding of the response
+     * @param maxSize the configured response buffer size
+     * @return a power of two large enough for <code>estimate</code>
+     *  characters in <code>encoding</code>, with room for growth, but not
+     *  less than 512 or more than <code>maxSize</code>
+     */
+    static int getResponseBufferSize(int estimate, String encoding, int maxSize) {
+
+        if (estimate < 0) {
+            return maxSize;
+        }
+        // the estimate counts characters, the buffer holds bytes
+        float bytesPerChar;
+        try {
+            bytesPerChar = Charset.forName(encoding).newEncoder().maxBytesPerChar();
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return maxSize;
+        }
+        long bytes = (long) Math.ceil(estimate * (double) bytesPerChar);
+        // leave room for growth
+        long size = Math.max(512L, Long.highestOneBit(bytes + (bytes >> 2)) << 1);
+        return (int) Math.min(size, maxSize);
+
+    }
+
     /**
      * Handles the case where rendering throws an Exception.
      *
@@ -1142,9 +1203,18 @@ public class FaceletViewHandlingStrategy extends ViewHandlingStrategy {
                 sb.append(root.getViewId());
                 sb.append(']');
             }
+            if (EarlyFlush.isFlushed(context)) {
+                sb.append(", after the response had been flushed early");
+            }
             LOGGER.log(SEVERE, sb.toString(), e);
         }
 
+        if (EarlyFlush.isFlushed(context)) {
+            // the response is committed, an error page can't replace it
+            EarlyFlush.writeError(context);
+            return;
+        }
+
         if (e instanceof RuntimeException) {
             throw (RuntimeException) e;
         } else if (e instanceof IOException) {
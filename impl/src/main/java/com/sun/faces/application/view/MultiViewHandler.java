@@ -253,11 +253,17 @@ public class MultiViewHandler extends ViewHandler {
             }
 
             WriteBehindStateWriter writer = WriteBehindStateWriter.getCurrentInstance();
-            if (writer != null) {
-                writer.writingState();
-            }
+            if (writer != null && writer.isStreamingState()) {
+                // the state doesn't depend on what is still to be
+                // rendered, so there's no need for a marker
+                writer.writeStreamingState();
+            } else {
+                if (writer != null) {
+                    writer.writingState();
+                }
 
-            context.getResponseWriter().write(SAVESTATE_FIELD_MARKER);
+                context.getResponseWriter().write(SAVESTATE_FIELD_MARKER);
+            }
 
             if (LOGGER.isLoggable(FINE)) {
                 LOGGER.fine(
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.view;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.context.ExternalContext;
+
+/**
+ * <p>Moving estimates of how many characters each view renders, and how
+ * large its state is, used to presize the response buffers of the next
+ * request for the same view.  Full page and partial (Ajax) renders of a
+ * view are tracked separately.</p>
+ *
+ * <p>The estimates are exponentially weighted, so they follow views whose
+ * output changes over time.  Updates are not synchronized; a lost update
+ * only makes an estimate slightly less accurate.</p>
+ *
+ * <p>{@link #getViewSizes()} exposes the estimates for capacity
+ * planning.</p>
+ */
+public final class ViewSizeStatistics {
+
+    private static final String INSTANCE_KEY = ViewSizeStatistics.class.getName();
+
+    // views beyond this number aren't tracked
+    private static final int MAX_VIEWS = 1024;
+
+    // weight of a new sample is 1 / 2^SHIFT
+    private static final int SHIFT = 3;
+
+    private final ConcurrentMap<String, ViewSize> views = new ConcurrentHashMap<>();
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private ViewSizeStatistics() {
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param extContext the {@link ExternalContext} for the current request
+     * @return the statistics of the current application
+     */
+    public static ViewSizeStatistics getInstance(ExternalContext extContext) {
+        Map<String, Object> appMap = extContext.getApplicationMap();
+        ViewSizeStatistics statistics = (ViewSizeStatistics) appMap.get(INSTANCE_KEY);
+        if (statistics == null) {
+            synchronized (extContext.getContext()) {
+                statistics = (ViewSizeStatistics) appMap.get(INSTANCE_KEY);
+                if (statistics == null) {
+                    statistics = new ViewSizeStatistics();
+                    appMap.put(INSTANCE_KEY, statistics);
+                }
+            }
+        }
+        return statistics;
+    }
+
+
+    /**
+     * @param viewId the view id
+     * @param partial <code>true</code> for partial renders
+     * @return the estimated number of characters rendered, or
+     *  <code>-1</code> if the view hasn't been rendered yet
+     */
+    public int getRenderedSize(String viewId, boolean partial) {
+        ViewSize size = views.get(viewId);
+        return (size != null) ? size.getRenderedSize(partial) : -1;
+    }
+
+
+    /**
+     * @param viewId the view id
+     * @param partial <code>true</code> for partial renders
+     * @return the estimated number of characters of the state written
+     *  per form, or <code>-1</code> if no state has been written yet
+     */
+    public int getStateSize(String viewId, boolean partial) {
+        ViewSize size = views.get(viewId);
+        return (size != null) ? size.getStateSize(partial) : -1;
+    }
+
+
+    /**
+     * @param viewId the view id
+     * @param partial <code>true</code> for partial renders
+     * @param renderedSize the number of characters rendered
+     * @param stateSize the number of characters of the largest state
+     *  written, or <code>-1</code> if no state was written
+     */
+    public void record(String viewId, boolean partial, int renderedSize, int stateSize) {
+        ViewSize size = views.get(viewId);
+        if (size == null) {
+            if (views.size() >= MAX_VIEWS) {
+                return;
+            }
+            size = new ViewSize();
+            ViewSize existing = views.putIfAbsent(viewId, size);
+            if (existing != null) {
+                size = existing;
+            }
+        }
+        size.record(partial, renderedSize, stateSize);
+    }
+
+
+    /**
+     * @return a snapshot of the estimates, by view id
+     */
+    public Map<String, ViewSize> getViewSizes() {
+        Map<String, ViewSize> snapshot = new HashMap<>(views.size() * 2);
+        for (Map.Entry<String, ViewSize> entry : views.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().copy());
+        }
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * <p>The estimates of a single view.</p>
+     */
+    public static final class ViewSize {
+
+        private volatile int rendered = -1;
+        private volatile int state = -1;
+        private volatile int partialRendered = -1;
+        private volatile int partialState = -1;
+        private volatile long renders;
+        private volatile long partialRenders;
+
+        /**
+         * @param partial <code>true</code> for partial renders
+         * @return the estimated number of characters rendered, or
+         *  <code>-1</code> if unknown
+         */
+        public int getRenderedSize(boolean partial) {
+            return partial ? partialRendered : rendered;
+        }
+
+        /**
+         * @param partial <code>true</code> for partial renders
+         * @return the estimated number of characters of the state, or
+         *  <code>-1</code> if unknown
+         */
+        public int getStateSize(boolean partial) {
+            return partial ? partialState : state;
+        }
+
+        /**
+         * @param partial <code>true</code> for partial renders
+         * @return the number of renders the estimates are based on
+         */
+        public long getRenderCount(boolean partial) {
+            return partial ? partialRenders : renders;
+        }
+
+        @Override
+        public String toString() {
+            return "ViewSize[rendered=" + rendered
+                   + ", state=" + state
+                   + ", renders=" + renders
+                   + ", partialRendered=" + partialRendered
+                   + ", partialState=" + partialState
+                   + ", partialRenders=" + partialRenders + ']';
+        }
+
+        private void record(boolean partial, int renderedSize, int stateSize) {
+            if (partial) {
+                partialRendered = average(partialRendered, renderedSize);
+                partialState = average(partialState, stateSize);
+                partialRenders++;
+            } else {
+                rendered = average(rendered, renderedSize);
+                state = average(state, stateSize);
+                renders++;
+            }
+        }
+
+        private ViewSize copy() {
+            ViewSize copy = new ViewSize();
+            copy.rendered = rendered;
+            copy.state = state;
+            copy.partialRendered = partialRendered;
+            copy.partialState = partialState;
+            copy.renders = renders;
+            copy.partialRenders = partialRenders;
+            return copy;
+        }
+
+        private static int average(int current, int sample) {
+            if (sample < 0) {
+                return current;
+            }
+            if (current < 0) {
+                return sample;
+            }
+            return (int) (current + (((long) sample - current) >> SHIFT));
+        }
+
+    }
+
+}
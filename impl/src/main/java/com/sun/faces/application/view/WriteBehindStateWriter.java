@@ -16,19 +16,36 @@
 
 package com.sun.faces.application.view;
 
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.StreamServerState;
+
 import com.sun.faces.RIConstants;
+import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.io.BufferPool;
 import com.sun.faces.io.FastStringWriter;
 import com.sun.faces.util.Util;
 
 import javax.faces.application.StateManager;
+import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
 import javax.faces.context.ResponseWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Arrays;
 
 /**
  * Custom {@link Writer} to efficiently handle the state manager replacement
  * marker written out by {@link MultiViewHandler#writeState(javax.faces.context.FacesContext)}.
+ *
+ * <p>Content preceding the first form is written straight through.  From
+ * the first state marker on, content is buffered until the view has been
+ * rendered and the state can be saved; the position of each marker is
+ * recorded as it is written, so the buffer doesn't have to be searched for
+ * them afterwards.  Only markers written with a single call are recognized,
+ * so if a <code>ResponseWriter</code> in between splits or coalesces
+ * writes, and fewer markers are recorded than were announced by
+ * {@link #writingState()}, the buffer is searched after all.  If the state
+ * doesn't depend on the remainder of the view, see
+ * {@link #isStreamingState()}, nothing is buffered at all.</p>
  */
 final class WriteBehindStateWriter extends Writer {
 
@@ -46,6 +63,14 @@ final class WriteBehindStateWriter extends Writer {
     private char[] buf;
     private FacesContext context;
     private Object state;
+    private Boolean streamingState;
+    private int[] markers = new int[4];
+    private int markerCount;
+    private int markersAnnounced;
+    private long charsWritten;
+    private int stateSize = -1;
+    private int renderedSizeEstimate = -1;
+    private int stateSizeEstimate = -1;
 
 
     // -------------------------------------------------------- Constructors
@@ -81,6 +106,7 @@ final class WriteBehindStateWriter extends Writer {
      */
     @Override
     public void write(int c) throws IOException {
+        charsWritten++;
         out.write(c);
     }
 
@@ -92,7 +118,7 @@ final class WriteBehindStateWriter extends Writer {
      */
     @Override
     public void write(char cbuf[]) throws IOException {
-        out.write(cbuf);
+        write(cbuf, 0, cbuf.length);
     }
 
 
@@ -103,6 +129,10 @@ final class WriteBehindStateWriter extends Writer {
      */
     @Override
     public void write(String str) throws IOException {
+        if (fWriter != null && isMarker(str, 0, str.length())) {
+            markerWritten();
+        }
+        charsWritten += str.length();
         out.write(str);
     }
 
@@ -114,6 +144,10 @@ final class WriteBehindStateWriter extends Writer {
      */
     @Override
     public void write(String str, int off, int len) throws IOException {
+        if (fWriter != null && isMarker(str, off, len)) {
+            markerWritten();
+        }
+        charsWritten += len;
         out.write(str, off, len);
     }
 
@@ -125,6 +159,10 @@ final class WriteBehindStateWriter extends Writer {
      */
     @Override
     public void write(char cbuf[], int off, int len) throws IOException {
+        if (fWriter != null && isMarker(cbuf, off, len)) {
+            markerWritten();
+        }
+        charsWritten += len;
         out.write(cbuf, off, len);
     }
 
@@ -167,6 +205,77 @@ final class WriteBehindStateWriter extends Writer {
     }
 
 
+    /**
+     * <p>Presize the buffers from what earlier renders of the same view
+     * produced.</p>
+     *
+     * @param renderedSize the expected number of characters rendered, or
+     *  <code>-1</code> if unknown
+     * @param stateSize the expected number of characters of the state, or
+     *  <code>-1</code> if unknown
+     */
+    public void setSizeEstimates(int renderedSize, int stateSize) {
+        this.renderedSizeEstimate = renderedSize;
+        this.stateSizeEstimate = stateSize;
+    }
+
+
+    /**
+     * @return the number of characters written to the response, with the
+     *  state markers replaced by the state, once the view has been
+     *  rendered and {@link #flushToWriter()} has been called if needed
+     */
+    public int getRenderedSize() {
+        return (int) Math.min(charsWritten, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * @return the number of characters of the largest state written in
+     *  place of a marker, or <code>-1</code> if none was
+     */
+    public int getStateSize() {
+        return stateSize;
+    }
+
+
+    /**
+     * @return <code>true</code> if the state may be written as soon as the
+     *  first form asks for it, which is the case for stateless views and,
+     *  if the <code>com.sun.faces.streamServerState</code> context-param
+     *  is enabled, for server side state saving.
+     */
+    public boolean isStreamingState() {
+        if (streamingState == null) {
+            UIViewRoot root = context.getViewRoot();
+            if (root != null && root.isTransient()) {
+                streamingState = true;
+            } else {
+                streamingState = !Util.getStateManager(context).isSavingStateInClient(context)
+                      && WebConfiguration.getInstance(context.getExternalContext())
+                      .isOptionEnabled(StreamServerState);
+            }
+        }
+        return streamingState;
+    }
+
+
+    /**
+     * <p>Save the view, unless that has been done already, and write its
+     * state to the current <code>ResponseWriter</code> right away.  Only
+     * to be called if {@link #isStreamingState()} returns <code>true</code>.</p>
+     *
+     * @throws IOException if an error occurs
+     */
+    public void writeStreamingState() throws IOException {
+        StateManager stateManager = Util.getStateManager(context);
+        if (state == null) {
+            state = stateManager.saveView(context);
+        }
+        stateManager.writeState(context, state);
+    }
+
+
     /**
      * When called, the original writer is backed up and replaced
      * with a new FastStringWriter.  All content written after this method
@@ -174,9 +283,13 @@ final class WriteBehindStateWriter extends Writer {
      * entire view has been rendered.
      */
     public void writingState() {
+        markersAnnounced++;
         if (!stateWritten) {
             this.stateWritten = true;
-            out = fWriter = new FastStringWriter(1024);
+            // the rest of the view will be buffered
+            int capacity = Math.max(1024, (int) (renderedSizeEstimate - charsWritten));
+            out = fWriter = new FastStringWriter(
+                  BufferPool.getInstance().getBuilder(context, capacity));
         }
     }
 
@@ -190,7 +303,9 @@ final class WriteBehindStateWriter extends Writer {
 
 
     /**
-     * <p> Write directly from our FastStringWriter to the provided writer.</p>
+     * <p> Write directly from our FastStringWriter to the provided writer,
+     * replacing each state marker recorded while the content was buffered
+     * with the state.</p>
      *
      * @throws IOException if an error occurs
      */
@@ -201,83 +316,30 @@ final class WriteBehindStateWriter extends Writer {
         // multiple forms.
         StateManager stateManager = Util.getStateManager(context);
         ResponseWriter origWriter = context.getResponseWriter();
-        StringBuilder stateBuilder = getState(stateManager, origWriter);
         StringBuilder builder = fWriter.getBuffer();
-        // begin writing...
-        int totalLen = builder.length();
-        int stateLen = stateBuilder.length();
+        if (markerCount < markersAnnounced) {
+            // some markers didn't arrive in a call of their own
+            findMarkers(builder);
+        }
         int pos = 0;
-        int tildeIdx = getNextDelimiterIndex(builder, pos);
-        while (pos < totalLen) {
-            if (tildeIdx != -1) {
-                if (tildeIdx > pos && (tildeIdx - pos) > bufSize) {
-                    // there's enough content before the first ~
-                    // to fill the entire buffer
-                    builder.getChars(pos, (pos + bufSize), buf, 0);
-                    orig.write(buf);
-                    pos += bufSize;
-                } else {
-                    // write all content up to the first '~'
-                    builder.getChars(pos, tildeIdx, buf, 0);
-                    int len = (tildeIdx - pos);
-                    orig.write(buf, 0, len);
-                    // now check to see if the state saving string is
-                    // at the begining of pos, if so, write our
-                    // state out.
-                    if (builder.indexOf(
-                          RIConstants.SAVESTATE_FIELD_MARKER,
-                          pos) == tildeIdx) {
-                        // buf is effectively zero'd out at this point
-                        int statePos = 0;
-                        while (statePos < stateLen) {
-                            if ((stateLen - statePos) > bufSize) {
-                                // enough state to fill the buffer
-                                stateBuilder.getChars(statePos,
-                                                      (statePos + bufSize),
-                                                      buf,
-                                                      0);
-                                orig.write(buf);
-                                statePos += bufSize;
-                            } else {
-                                int slen = (stateLen - statePos);
-                                stateBuilder.getChars(statePos,
-                                                      stateLen,
-                                                      buf,
-                                                      0);
-                                orig.write(buf, 0, slen);
-                                statePos += slen;
-                            }
-
-                        }
-                        // push us past the last '~' at the end of the marker
-                        pos += (len + STATE_MARKER_LEN);
-                        tildeIdx = getNextDelimiterIndex(builder, pos);
-                        
-                        stateBuilder = getState(stateManager, origWriter);
-                        stateLen = stateBuilder.length();        
-                    } else {
-                        pos = tildeIdx;
-                        tildeIdx = getNextDelimiterIndex(builder,
-                                                         tildeIdx + 1);
-                    }
-                }
-            } else {
-                // we've written all of the state field markers.
-                // finish writing content
-                if (totalLen - pos > bufSize) {
-                    // there's enough content to fill the buffer
-                    builder.getChars(pos, (pos + bufSize), buf, 0);
-                    orig.write(buf);
-                    pos += bufSize;
-                } else {
-                    // we're near the end of the response
-                    builder.getChars(pos, totalLen, buf, 0);
-                    int len = (totalLen - pos);
-                    orig.write(buf, 0, len);
-                    pos += (len + 1);
-                }
+        for (int i = 0; i < markerCount; i++) {
+            int markerIdx = markers[i];
+            if (markerIdx < pos || !isMarker(builder, markerIdx)) {
+                // not a marker after all, leave it as it is
+                continue;
             }
+            writeBuffered(builder, pos, markerIdx);
+            StringBuilder stateBuilder = getState(stateManager, origWriter);
+            writeBuffered(stateBuilder, 0, stateBuilder.length());
+            charsWritten += stateBuilder.length() - STATE_MARKER_LEN;
+            stateSize = Math.max(stateSize, stateBuilder.length());
+            BufferPool.getInstance().release(stateBuilder);
+            // push us past the last '~' at the end of the marker
+            pos = markerIdx + STATE_MARKER_LEN;
         }
+        // we've written all of the state field markers.
+        // finish writing content
+        writeBuffered(builder, pos, builder.length());
 
         // all state has been written.  Have 'out' point to the
         // response so that all subsequent writes will make it to the
@@ -298,13 +360,18 @@ final class WriteBehindStateWriter extends Writer {
      * 
      * @param stateManager the state manager.
      * @param origWriter the original response writer.
-     * @return the state.
+     * @return the state, which is to be released to the {@link BufferPool}.
      * @throws IOException when an I/O error occurs. 
      */
     private StringBuilder getState(StateManager stateManager, ResponseWriter origWriter) throws IOException {
+        int capacity;
+        if (stateSizeEstimate > 0) {
+            capacity = stateSizeEstimate + (stateSizeEstimate >> 3);
+        } else {
+            capacity = (stateManager.isSavingStateInClient(context)) ? bufSize : 128;
+        }
         FastStringWriter stateWriter =
-                new FastStringWriter((stateManager.isSavingStateInClient(
-                        context)) ? bufSize : 128);
+                new FastStringWriter(BufferPool.getInstance().acquireBuilder(capacity));
         context.setResponseWriter(origWriter.cloneWithWriter(stateWriter));
         if(state == null) {
             state = stateManager.saveView(context);
@@ -317,17 +384,100 @@ final class WriteBehindStateWriter extends Writer {
 
 
     /**
-     * @param builder buffered content
-     * @param offset the offset to start the search from
-     * @return the index of the next delimiter, if any
+     * Write the given range of <code>builder</code> to the original writer,
+     * at most <code>bufSize</code> characters at a time.
+     */
+    private void writeBuffered(StringBuilder builder, int start, int end) throws IOException {
+
+        while (start < end) {
+            int len = Math.min(end - start, bufSize);
+            builder.getChars(start, start + len, buf, 0);
+            orig.write(buf, 0, len);
+            start += len;
+        }
+
+    }
+
+
+    /**
+     * Record the position of the marker about to be buffered.
      */
-    private static int getNextDelimiterIndex(StringBuilder builder,
-                                             int offset) {
+    private void markerWritten() {
 
-        return builder.indexOf(RIConstants.SAVESTATE_FIELD_DELIMITER,
-                               offset);
+        if (markerCount == markers.length) {
+            markers = Arrays.copyOf(markers, markerCount * 2);
+        }
+        markers[markerCount++] = fWriter.getBuffer().length();
 
     }
 
-}
 
+    /**
+     * Replace the recorded marker positions with those found by searching
+     * the buffered content.
+     */
+    private void findMarkers(StringBuilder builder) {
+
+        markerCount = 0;
+        for (int idx = builder.indexOf(RIConstants.SAVESTATE_FIELD_MARKER);
+             idx != -1;
+             idx = builder.indexOf(RIConstants.SAVESTATE_FIELD_MARKER, idx + STATE_MARKER_LEN)) {
+            if (markerCount == markers.length) {
+                markers = Arrays.copyOf(markers, markerCount * 2);
+            }
+            markers[markerCount++] = idx;
+        }
+
+    }
+
+
+    /**
+     * @return <code>true</code> if the given range of <code>str</code> is
+     *  the state marker
+     */
+    private static boolean isMarker(String str, int off, int len) {
+
+        return (len == STATE_MARKER_LEN
+                && str.regionMatches(off, RIConstants.SAVESTATE_FIELD_MARKER, 0, len));
+
+    }
+
+
+    /**
+     * @return <code>true</code> if the given range of <code>cbuf</code> is
+     *  the state marker
+     */
+    private static boolean isMarker(char[] cbuf, int off, int len) {
+
+        if (len != STATE_MARKER_LEN) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (cbuf[off + i] != RIConstants.SAVESTATE_FIELD_MARKER.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+
+    /**
+     * @return <code>true</code> if the state marker starts at
+     *  <code>idx</code> in the buffered content
+     */
+    private static boolean isMarker(StringBuilder builder, int idx) {
+
+        if (idx + STATE_MARKER_LEN > builder.length()) {
+            return false;
+        }
+        for (int i = 0; i < STATE_MARKER_LEN; i++) {
+            if (builder.charAt(idx + i) != RIConstants.SAVESTATE_FIELD_MARKER.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+}
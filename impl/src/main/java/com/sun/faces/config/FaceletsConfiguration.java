@@ -16,6 +16,8 @@
 
 package com.sun.faces.config;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -43,6 +45,10 @@ public class FaceletsConfiguration {
 
     private  Map<String, String> faceletsProcessingMappings;
 
+    private List<String> collapseWhitespaceExtensions;
+
+    private List<String> collapseWhitespacePrefixes;
+
 
     public FaceletsConfiguration(WebConfiguration config) {
         this.config = config;
@@ -50,6 +56,9 @@ public class FaceletsConfiguration {
         faceletsProcessingMappings =
                 config.getFacesConfigOptionValue(WebConfiguration.WebContextInitParameter.FaceletsProcessingFileExtensionProcessAs);
 
+        initCollapseWhitespaceMappings(
+                config.getOptionValue(WebConfiguration.WebContextInitParameter.FaceletsCollapseWhitespace));
+
     }
 
     public boolean isProcessCurrentDocumentAsFaceletsXhtml(String alias) {
@@ -115,6 +124,34 @@ public class FaceletsConfiguration {
 
     }
 
+    /**
+     * @param alias the alias of the document being compiled
+     * @return <code>true</code> if insignificant whitespace in the document
+     *  should be collapsed at compile time.  The document is matched against
+     *  the <code>;</code> separated prefix (<code>/pages/*</code>) and
+     *  extension (<code>*.xhtml</code>) mappings of the
+     *  <code>com.sun.faces.faceletsCollapseWhitespace</code> context-param,
+     *  where a single <code>*</code> matches every document.
+     */
+    public boolean isCollapseWhitespace(String alias) {
+        if (alias == null) {
+            return false;
+        }
+
+        for (String extension : collapseWhitespaceExtensions) {
+            if (alias.endsWith(extension)) {
+                return true;
+            }
+        }
+        for (String prefix : collapseWhitespacePrefixes) {
+            if (alias.startsWith(prefix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public boolean isEscapeInlineText(FacesContext context) {
         Boolean result = Boolean.TRUE;
 
@@ -154,6 +191,29 @@ public class FaceletsConfiguration {
         return FaceletsConfiguration.getInstance(context);
     }
 
+    private void initCollapseWhitespaceMappings(String mappings) {
+        collapseWhitespaceExtensions = new ArrayList<>(2);
+        collapseWhitespacePrefixes = new ArrayList<>(2);
+
+        if (mappings == null) {
+            return;
+        }
+
+        for (String mapping : mappings.split(";")) {
+            mapping = mapping.trim();
+            int mappingLength = mapping.length();
+            if (mappingLength == 0) {
+                continue;
+            }
+
+            if (mapping.charAt(0) == '*') {
+                collapseWhitespaceExtensions.add(mapping.substring(1));
+            } else if (mapping.charAt(mappingLength - 1) == '*') {
+                collapseWhitespacePrefixes.add(mapping.substring(0, mappingLength - 1));
+            }
+        }
+    }
+
     private static String getExtension(String alias) {
         String ext = null;
 
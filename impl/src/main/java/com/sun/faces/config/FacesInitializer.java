@@ -19,10 +19,12 @@ package com.sun.faces.config;
 
 import static com.sun.faces.RIConstants.ANNOTATED_CLASSES;
 import static com.sun.faces.RIConstants.FACES_INITIALIZER_MAPPINGS_ADDED;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.EnableResourceFastPath;
 import static com.sun.faces.util.Util.isEmpty;
 import static java.lang.Boolean.TRUE;
 
 import java.net.MalformedURLException;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -49,6 +51,8 @@ import javax.faces.validator.FacesValidator;
 import javax.faces.validator.Validator;
 import javax.faces.view.facelets.FaceletsResourceResolver;
 import javax.faces.webapp.FacesServlet;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterRegistration;
 import javax.servlet.ServletContainerInitializer;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
@@ -59,6 +63,7 @@ import javax.websocket.server.ServerApplicationConfig;
 import javax.websocket.server.ServerContainer;
 import javax.websocket.server.ServerEndpoint;
 
+import com.sun.faces.application.resource.ResourceFastPathFilter;
 import com.sun.faces.cdi.CdiExtension;
 
 /**
@@ -134,6 +139,8 @@ public class FacesInitializer implements ServletContainerInitializer {
 
                 servletContext.addListener(ConfigureListener.class);
 
+                handleResourceFastPathConcerns(servletContext);
+
                 handleWebSocketConcerns(servletContext);
             } finally {
                 // Bug 20458755: The InitFacesContext was not being cleaned up, resulting in
@@ -217,6 +224,27 @@ public class FacesInitializer implements ServletContainerInitializer {
         return null;
     }
 
+    private void handleResourceFastPathConcerns(ServletContext ctx) {
+        if (!Boolean.valueOf(ctx.getInitParameter(EnableResourceFastPath.getQualifiedName()))) {
+            return;
+        }
+
+        ServletRegistration facesServletRegistration = getExistingFacesServletRegistration(ctx);
+        if (facesServletRegistration == null) {
+            return;
+        }
+
+        // Match after the filters of the application, which may guard the
+        // resources as well
+        FilterRegistration.Dynamic registration =
+              ctx.addFilter(ResourceFastPathFilter.class.getName(), ResourceFastPathFilter.class);
+        if (registration != null) {
+            registration.addMappingForServletNames(EnumSet.of(DispatcherType.REQUEST),
+                                                   true,
+                                                   facesServletRegistration.getName());
+        }
+    }
+
     private void handleWebSocketConcerns(ServletContext ctx) throws ServletException {
         if (ctx.getAttribute(ServerContainer.class.getName()) != null) {
             // Already initialized
@@ -947,6 +947,10 @@ public class WebConfiguration {
               FaceletsBufferSize,
               new FaceletsConfigParamLoggingStrategy()
         ),
+        EarlyFlushComponentIds(
+              "com.sun.faces.earlyFlushComponentIds",
+              ""
+        ),
         ClientStateWriteBufferSize(
               "com.sun.faces.clientStateWriteBufferSize",
               "8192"
@@ -975,6 +979,10 @@ public class WebConfiguration {
               "com.sun.faces.compressableMimeTypes",
               ""
         ),
+        ResourceContentCacheSize(
+              "com.sun.faces.resourceContentCacheSize",
+              "4194304" // in bytes
+        ),
         DisableUnicodeEscaping(
             "com.sun.faces.disableUnicodeEscaping",
             "auto"
@@ -1058,6 +1066,14 @@ public class WebConfiguration {
                 "",
                 ""
         ),
+        FaceletsCollapseWhitespace(
+              "com.sun.faces.faceletsCollapseWhitespace",
+              ""
+        ),
+        FaceletsImmutableExpressionRoots(
+              "com.sun.faces.faceletsImmutableExpressionRoots",
+              ""
+        ),
         ClientWindowMode(
               ClientWindow.CLIENT_WINDOW_MODE_PARAM_NAME,
               "none"
@@ -1302,6 +1318,14 @@ public class WebConfiguration {
               FaceletsSkipComments,
               new FaceletsConfigParamLoggingStrategy()
         ),
+        FaceletsCoalesceStaticMarkup(
+              "com.sun.faces.faceletsCoalesceStaticMarkup",
+              false
+        ),
+        FaceletsFoldConstantExpressions(
+              "com.sun.faces.faceletsFoldConstantExpressions",
+              false
+        ),
         PartialStateSaving(
               StateManager.PARTIAL_STATE_SAVING_PARAM_NAME,
               true
@@ -1310,6 +1334,38 @@ public class WebConfiguration {
               "com.sun.faces.generateUniqueServerStateIds",
               true
         ),
+        StreamServerState(
+              "com.sun.faces.streamServerState",
+              false
+        ),
+        EnableEarlyFlush(
+              "com.sun.faces.enableEarlyFlush",
+              false
+        ),
+        ShrinkResponseBuffer(
+              "com.sun.faces.shrinkResponseBuffer",
+              false
+        ),
+        CompactComponentIds(
+              "com.sun.faces.compactComponentIds",
+              false
+        ),
+        FingerprintResourceUrls(
+              "com.sun.faces.fingerprintResourceUrls",
+              false
+        ),
+        CombineHeadResources(
+              "com.sun.faces.combineHeadResources",
+              false
+        ),
+        EnablePreloadHeaders(
+              "com.sun.faces.enablePreloadHeaders",
+              false
+        ),
+        SendEarlyHints(
+              "com.sun.faces.sendEarlyHints",
+              false
+        ),
         InterpretEmptyStringSubmittedValuesAsNull(
             UIInput.EMPTY_STRING_AS_NULL_PARAM_NAME,
             false
@@ -1346,6 +1402,18 @@ public class WebConfiguration {
               "com.sun.faces.enableMissingResourceLibraryDetection",
               false
         ),
+        EnableResourceIndex(
+              "com.sun.faces.enableResourceIndex",
+              true
+        ),
+        ServeFileResources(
+              "com.sun.faces.serveFileResources",
+              false
+        ),
+        EnableResourceFastPath(
+              "com.sun.faces.enableResourceFastPath",
+              false
+        ),
         DisableIdUniquenessCheck(
             "com.sun.faces.disableIdUniquenessCheck",
             false),
@@ -27,6 +27,11 @@ public enum ContextParam {
      * Enable distributable code.
      */
     EnableDistributable("com.sun.faces.enableDistributable", Boolean.class, false),
+    /**
+     * Encode UTF-8 and ISO-8859-1 responses straight to the servlet output
+     * stream instead of going through the container's response writer.
+     */
+    EnableDirectResponseEncoding("com.sun.faces.enableDirectResponseEncoding", Boolean.class, false),
     /**
      * Send the "X-Powered-By" header.
      */
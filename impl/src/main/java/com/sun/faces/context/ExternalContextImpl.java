@@ -19,11 +19,13 @@ package com.sun.faces.context;
 import com.sun.faces.RIConstants;
 import com.sun.faces.application.ApplicationAssociate;
 import com.sun.faces.context.flash.ELFlash;
+import com.sun.faces.io.ByteEncodingWriter;
 import com.sun.faces.util.FacesLogger;
 import com.sun.faces.util.MessageUtils;
 
 import static com.sun.faces.RIConstants.FACES_PREFIX;
 import static com.sun.faces.RIConstants.PUSH_RESOURCE_URLS_KEY_NAME;
+import static com.sun.faces.context.ContextParam.EnableDirectResponseEncoding;
 import static com.sun.faces.context.ContextParam.SendPoweredByHeader;
 import static com.sun.faces.util.MessageUtils.NULL_PARAMETERS_ERROR_MESSAGE_ID;
 import static com.sun.faces.util.MessageUtils.getExceptionMessageString;
@@ -84,6 +86,8 @@ public class ExternalContextImpl extends ExternalContext {
     
     private static final String PUSH_SUPPORTED_ATTRIBUTE_NAME = FACES_PREFIX + "ExternalContextImpl.PUSH_SUPPORTED";
 
+    static final String RESPONSE_ENCODING_WRITER_KEY = FACES_PREFIX + "ExternalContextImpl.RESPONSE_ENCODING_WRITER";
+
     private ServletContext servletContext = null;
     private ServletRequest request = null;
     private ServletResponse response = null;
@@ -101,6 +105,8 @@ public class ExternalContextImpl extends ExternalContext {
     private Map<String,String> fallbackContentTypeMap = null;
     private Flash flash;
     private boolean distributable;
+    private boolean directResponseEncoding;
+    private ByteEncodingWriter responseEncodingWriter;
    
 
     private enum ALLOWABLE_COOKIE_PROPERTIES {
@@ -138,6 +144,7 @@ public class ExternalContextImpl extends ExternalContext {
         }
 
         distributable = ContextParamUtils.getValue(servletContext, ContextParam.EnableDistributable, Boolean.class);
+        directResponseEncoding = ContextParamUtils.getValue(servletContext, EnableDirectResponseEncoding, Boolean.class);
 
         fallbackContentTypeMap = new HashMap<>(3, 1.0f);
         fallbackContentTypeMap.put("js", "text/javascript");
@@ -733,6 +740,7 @@ public class ExternalContextImpl extends ExternalContext {
             pwriter.redirect(requestURI);
             pwriter.endDocument();
         } else {
+            discardResponseEncodingWriter();
             ((HttpServletResponse) response).sendRedirect(requestURI);
         }
         ctx.responseComplete();
@@ -900,15 +908,43 @@ public class ExternalContextImpl extends ExternalContext {
      */
     @Override
     public OutputStream getResponseOutputStream() throws IOException {
+        if (responseEncodingWriter != null) {
+            // keep what was written so far ahead of the raw bytes
+            responseEncodingWriter.flushBuffer();
+        }
         return response.getOutputStream();
     }
 
 
     /**
+     * <p>If direct response encoding is enabled and the response uses
+     * <code>UTF-8</code> or <code>ISO-8859-1</code>, this returns a
+     * {@link ByteEncodingWriter} over the response output stream.  Its
+     * buffer is written out when the <code>FacesContext</code> is released,
+     * and the writer is discarded when the response is reset.</p>
+     *
      * @see javax.faces.context.ExternalContext#getResponseOutputWriter()
      */
     @Override
     public Writer getResponseOutputWriter() throws IOException {
+        if (responseEncodingWriter != null) {
+            return responseEncodingWriter;
+        }
+        if (directResponseEncoding) {
+            String encoding = response.getCharacterEncoding();
+            if (ByteEncodingWriter.isSupported(encoding)) {
+                try {
+                    responseEncodingWriter = new ByteEncodingWriter(response.getOutputStream(), encoding);
+                    request.setAttribute(RESPONSE_ENCODING_WRITER_KEY, responseEncodingWriter);
+                    return responseEncodingWriter;
+                } catch (IllegalStateException ise) {
+                    // getWriter() has already been called for this response
+                    if (LOGGER.isLoggable(Level.FINEST)) {
+                        LOGGER.log(Level.FINEST, "Response writer already in use, not encoding directly", ise);
+                    }
+                }
+            }
+        }
         return response.getWriter();
     }
 
@@ -989,6 +1025,7 @@ public class ExternalContextImpl extends ExternalContext {
      */
     @Override
     public void responseReset() {
+        discardResponseEncodingWriter();
         response.reset();
     }
 
@@ -998,6 +1035,7 @@ public class ExternalContextImpl extends ExternalContext {
      */
     @Override
     public void responseSendError(int statusCode, String message) throws IOException {
+        discardResponseEncodingWriter();
         if (message == null) {
             ((HttpServletResponse) response).sendError(statusCode);
         } else {
@@ -1025,6 +1063,9 @@ public class ExternalContextImpl extends ExternalContext {
             doLastPhaseActions(facesContext, false);
         }
 
+        if (responseEncodingWriter != null) {
+            responseEncodingWriter.flushBuffer();
+        }
         response.flushBuffer();
     }
 
@@ -1252,6 +1293,22 @@ public class ExternalContextImpl extends ExternalContext {
     }
 
 
+    /*
+     * Throw away what the ByteEncodingWriter buffered and stop using it, so
+     * nothing of it is written when the FacesContext is released and a
+     * writer obtained after this call uses the then current encoding.
+     */
+    private void discardResponseEncodingWriter() {
+
+        if (responseEncodingWriter != null) {
+            responseEncodingWriter.reset();
+            responseEncodingWriter = null;
+            request.removeAttribute(RESPONSE_ENCODING_WRITER_KEY);
+        }
+
+    }
+
+
     // ----------------------------------------------------------- Inner Classes
 
 
@@ -16,6 +16,7 @@
 
 package com.sun.faces.context;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -49,9 +50,12 @@ import javax.faces.event.PhaseId;
 import javax.faces.lifecycle.Lifecycle;
 import javax.faces.render.RenderKit;
 import javax.faces.render.RenderKitFactory;
+import javax.servlet.ServletRequest;
 
 import com.sun.faces.el.ELContextImpl;
 import com.sun.faces.el.ELUtils;
+import com.sun.faces.io.BufferPool;
+import com.sun.faces.io.ByteEncodingWriter;
 import com.sun.faces.renderkit.RenderKitUtils;
 import com.sun.faces.util.FacesLogger;
 import com.sun.faces.util.RequestStateManager;
@@ -555,7 +559,14 @@ public class FacesContextImpl extends FacesContext {
     @Override
     public void release() {
 
+        if (attributes != null) {
+            // give the buffers used to render the response back to the pool
+            BufferPool.getInstance().releaseRequestBuffers(this);
+        }
         released = true;
+        if (externalContext != null) {
+            flushResponseEncodingWriter();
+        }
         externalContext = null;
         responseStream = null;
         responseWriter = null;
@@ -693,6 +704,49 @@ public class FacesContextImpl extends FacesContext {
         }
     }
 
+
+    /*
+     * A ByteEncodingWriter buffers on its own, so its content has to be
+     * handed to the container before the response completes.  Only the
+     * buffer is written: flushing the stream would commit every response
+     * here.  When the exception handler rethrew an exception without
+     * completing the response, the content is dropped so the container's
+     * error page can still replace it.
+     */
+    private void flushResponseEncodingWriter() {
+
+        Object request = externalContext.getRequest();
+        if (request instanceof ServletRequest) {
+            ServletRequest servletRequest = (ServletRequest) request;
+            Object writer = servletRequest.getAttribute(ExternalContextImpl.RESPONSE_ENCODING_WRITER_KEY);
+            if (writer instanceof ByteEncodingWriter) {
+                servletRequest.removeAttribute(ExternalContextImpl.RESPONSE_ENCODING_WRITER_KEY);
+                ByteEncodingWriter encodingWriter = (ByteEncodingWriter) writer;
+                if (isExceptionRethrown()) {
+                    encodingWriter.reset();
+                    return;
+                }
+                try {
+                    encodingWriter.flushBuffer();
+                } catch (IOException ioe) {
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.log(Level.FINE, "Unable to write the response", ioe);
+                    }
+                }
+            }
+        }
+
+    }
+
+
+    private boolean isExceptionRethrown() {
+
+        return (!responseComplete
+                && exceptionHandler != null
+                && exceptionHandler.getHandledExceptionQueuedEvent() != null);
+
+    }
+
     
     // ---------------------------------------------------------- Inner Classes
 
@@ -18,6 +18,7 @@ package com.sun.faces.facelets.compiler;
 
 import com.sun.faces.RIConstants;
 import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.facelets.el.ELText;
 import com.sun.faces.facelets.tag.TagAttributesImpl;
 import com.sun.faces.facelets.tag.TagLibrary;
 import com.sun.faces.facelets.tag.composite.CompositeLibrary;
@@ -67,6 +68,10 @@ final class CompilationManager {
     private CompilationMessageHolder messageHolder = null;
 
     private WebConfiguration config;
+
+    private final WhitespaceCollapser whitespaceCollapser;
+
+    private final CompilationPool.Footprint footprint;
     
     public CompilationManager(String alias, Compiler compiler) {
         
@@ -92,6 +97,13 @@ final class CompilationManager {
         this.units.push(new CompilationUnit());
 
         config = WebConfiguration.getInstance();
+
+        // whitespace collapsing
+        this.whitespaceCollapser = config.getFaceletsConfiguration().isCollapseWhitespace(alias)
+                ? new WhitespaceCollapser() : null;
+
+        // heap savings from sharing compiled pieces with other facelets
+        this.footprint = new CompilationPool.Footprint();
         
     }
         
@@ -114,6 +126,29 @@ final class CompilationManager {
     public WebConfiguration getWebConfiguration() {
         return config;
     }
+
+    Compiler getCompiler() {
+        return compiler;
+    }
+
+    CompilationPool.Footprint getFootprint() {
+        return footprint;
+    }
+
+    /*
+     * Share value with every other facelet compiled by the same Compiler.
+     */
+    String intern(String value) {
+        return compiler.getCompilationPool().intern(value, footprint);
+    }
+
+    /*
+     * Share txt with every other facelet compiled by the same Compiler.
+     * Only valid for text parsed without an alias.
+     */
+    ELText intern(String source, ELText txt) {
+        return compiler.getCompilationPool().intern(source, txt, footprint);
+    }
     
     public void setCompilationMessageHolder(CompilationMessageHolder messageHolder) {
         this.messageHolder = messageHolder;
@@ -128,6 +163,8 @@ final class CompilationManager {
             return;
         }
 
+        this.flushPendingText();
+
         // don't carelessly add empty tags
         if (value.length() == 0) {
             return;
@@ -137,7 +174,7 @@ final class CompilationManager {
         if (this.currentUnit() instanceof TextUnit) {
             unit = (TextUnit) this.currentUnit();
         } else {
-            unit = new TextUnit(this.alias, this.nextTagId());
+            unit = new TextUnit(this.alias, this.nextTagId(), this);
             this.startUnit(unit);
         }
         unit.writeInstruction(value);
@@ -154,11 +191,36 @@ final class CompilationManager {
             return;
         }
 
+        // hold on to the text until we know what follows it
+        if (this.whitespaceCollapser != null) {
+            this.whitespaceCollapser.text(value);
+            return;
+        }
+
+        this.writeTextUnit(value);
+    }
+
+    public void startCDATA() {
+        this.writeInstruction("<![CDATA[");
+        if (this.whitespaceCollapser != null) {
+            this.whitespaceCollapser.startCDATA();
+        }
+    }
+
+    public void endCDATA() {
+        this.writeInstruction("]]>");
+        if (this.whitespaceCollapser != null) {
+            this.whitespaceCollapser.endCDATA();
+        }
+    }
+
+    private void writeTextUnit(String value) {
+
         TextUnit unit;
         if (this.currentUnit() instanceof TextUnit) {
             unit = (TextUnit) this.currentUnit();
         } else {
-            unit = new TextUnit(this.alias, this.nextTagId());
+            unit = new TextUnit(this.alias, this.nextTagId(), this);
             this.startUnit(unit);
         }
         unit.write(value);
@@ -176,12 +238,14 @@ final class CompilationManager {
         if (text.length() == 0) {
             return;
         }
+
+        this.flushPendingText();
           
         TextUnit unit;
         if (this.currentUnit() instanceof TextUnit) {
             unit = (TextUnit) this.currentUnit();
         } else {
-            unit = new TextUnit(this.alias, this.nextTagId());
+            unit = new TextUnit(this.alias, this.nextTagId(), this);
             this.startUnit(unit);
         }
           
@@ -194,6 +258,21 @@ final class CompilationManager {
         }
     }
 
+    /*
+     * Write out any text held back for whitespace collapsing.
+     */
+    private void flushPendingText() {
+        if (this.whitespaceCollapser != null) {
+            this.writeCollapsedText(this.whitespaceCollapser.flush());
+        }
+    }
+
+    private void writeCollapsedText(String text) {
+        if (text.length() > 0) {
+            this.writeTextUnit(text);
+        }
+    }
+
     private String nextTagId() {
         return Integer.toHexString(Math.abs(this.alias.hashCode() ^ 13 * this.tagId++));
     }
@@ -208,6 +287,10 @@ final class CompilationManager {
             log.fine("Tag Pushed: " + orig);
         }
 
+        if (this.whitespaceCollapser != null) {
+            this.writeCollapsedText(this.whitespaceCollapser.startElement(orig.getNamespace(), orig.getLocalName()));
+        }
+
         Tag t = this.tagDecorator.decorate(orig);
         String[] qname = this.determineQName(t);
         t = this.trimAttributes(t);
@@ -273,7 +356,7 @@ final class CompilationManager {
             if (this.currentUnit() instanceof TextUnit) {
                 unit = (TextUnit) this.currentUnit();
             } else {
-                unit = new TextUnit(this.alias, this.nextTagId());
+                unit = new TextUnit(this.alias, this.nextTagId(), this);
                 this.startUnit(unit);
             }
             unit.startTag(t);
@@ -286,6 +369,10 @@ final class CompilationManager {
             return;
         }
 
+        if (this.whitespaceCollapser != null) {
+            this.writeCollapsedText(this.whitespaceCollapser.endElement());
+        }
+
         CompilationUnit unit = this.currentUnit();
 
         if (unit instanceof TextUnit) {
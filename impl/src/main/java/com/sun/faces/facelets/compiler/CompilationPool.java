@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.compiler;
+
+import com.sun.faces.facelets.el.ELText;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>Pool of the immutable pieces of compiled facelets, shared by every
+ * facelet a {@link Compiler} produces: namespace URIs, tag and attribute
+ * names, attribute values and parsed {@link ELText}.  Identical pieces
+ * compiled from different documents end up as a single instance.</p>
+ *
+ * <p>The pool itself is held strongly by its {@link Compiler}, but its
+ * entries are only weakly referenced, so it never keeps anything alive
+ * that no cached facelet refers to anymore.  The entries are spread over
+ * a fixed number of stripes, each with a lock of its own, so facelets
+ * compiled concurrently rarely wait for each other.</p>
+ */
+final class CompilationPool {
+
+    // must be a power of two
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    CompilationPool() {
+
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new Stripe();
+        }
+
+    }
+
+
+    // ---------------------------------------------------------- Package Methods
+
+
+    /**
+     * @param value the string to share
+     * @param footprint collects the savings of the current compilation
+     * @return the pooled instance equal to <code>value</code>
+     */
+    String intern(String value, Footprint footprint) {
+
+        if (value == null) {
+            return null;
+        }
+        return this.getStripe(value).intern(value, footprint);
+
+    }
+
+
+    /**
+     * @param source the text <code>txt</code> was parsed from
+     * @param txt the parsed text, which must not depend on the document it
+     *  was parsed from
+     * @param footprint collects the savings of the current compilation
+     * @return the pooled instance parsed from the same <code>source</code>
+     */
+    ELText intern(String source, ELText txt, Footprint footprint) {
+
+        if (txt == null) {
+            return null;
+        }
+        return this.getStripe(source).intern(source, txt, footprint);
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private Stripe getStripe(String key) {
+
+        int hash = key.hashCode();
+        // spread the high bits, as HashMap does
+        hash ^= (hash >>> 16);
+        return this.stripes[hash & (STRIPES - 1)];
+
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * <p>The entries of one stripe of the pool, guarded by the stripe
+     * itself.</p>
+     */
+    private static final class Stripe {
+
+        private final Map<String, WeakReference<String>> strings = new WeakHashMap<>();
+
+        private final Map<String, TextReference> texts = new HashMap<>();
+
+        private final ReferenceQueue<ELText> queue = new ReferenceQueue<>();
+
+
+        synchronized String intern(String value, Footprint footprint) {
+
+            WeakReference<String> ref = this.strings.get(value);
+            String pooled = (ref != null) ? ref.get() : null;
+            if (pooled == null) {
+                this.strings.put(value, new WeakReference<>(value));
+                return value;
+            }
+            if (pooled != value) {
+                footprint.shared(value);
+            }
+            return pooled;
+
+        }
+
+
+        synchronized ELText intern(String source, ELText txt, Footprint footprint) {
+
+            this.expungeStaleTexts();
+            TextReference ref = this.texts.get(source);
+            ELText pooled = (ref != null) ? ref.get() : null;
+            if (pooled == null) {
+                this.texts.put(source, new TextReference(source, txt, this.queue));
+                return txt;
+            }
+            if (pooled != txt) {
+                footprint.shared(source);
+            }
+            return pooled;
+
+        }
+
+
+        private void expungeStaleTexts() {
+
+            TextReference ref;
+            while ((ref = (TextReference) this.queue.poll()) != null) {
+                // only remove the entry if it hasn't been replaced since
+                if (this.texts.get(ref.source) == ref) {
+                    this.texts.remove(ref.source);
+                }
+            }
+
+        }
+
+    }
+
+
+    private static final class TextReference extends WeakReference<ELText> {
+
+        private final String source;
+
+        TextReference(String source, ELText txt, ReferenceQueue<ELText> queue) {
+            super(txt, queue);
+            this.source = source;
+        }
+
+    }
+
+
+    /**
+     * <p>Heap savings of a single compilation: how many pieces were
+     * replaced by instances another facelet (or an earlier part of the
+     * same document) already held, and roughly how many bytes that saved.
+     * Only reported per compilation, in the FINE log of the facelets
+     * compiler; the pool keeps no running totals.</p>
+     */
+    static final class Footprint {
+
+        // object header, hash and array reference plus the array header
+        private static final int STRING_OVERHEAD = 40;
+
+        private int shared;
+
+        private long bytes;
+
+        private void shared(String value) {
+            this.shared++;
+            this.bytes += STRING_OVERHEAD + 2L * value.length();
+        }
+
+        int getShared() {
+            return this.shared;
+        }
+
+        long getBytes() {
+            return this.bytes;
+        }
+
+    }
+
+}
@@ -61,12 +61,18 @@ public abstract class Compiler {
 
     private boolean trimmingComments = false;
 
+    private boolean coalescingMarkup = false;
+
+    private boolean foldingConstants = false;
+
     private final List libraries = new ArrayList();
 
     private final List decorators = new ArrayList();
 
     private final Map features = new HashMap();
 
+    private final CompilationPool pool = new CompilationPool();
+
 
     /**
      * 
@@ -179,6 +185,26 @@ public abstract class Compiler {
         this.trimmingComments = trimmingComments;
     }
 
+    public final boolean isCoalescingMarkup() {
+        return this.coalescingMarkup;
+    }
+
+    public final void setCoalescingMarkup(boolean coalescingMarkup) {
+        this.coalescingMarkup = coalescingMarkup;
+    }
+
+    final CompilationPool getCompilationPool() {
+        return this.pool;
+    }
+
+    public final boolean isFoldingConstants() {
+        return this.foldingConstants;
+    }
+
+    public final void setFoldingConstants(boolean foldingConstants) {
+        this.foldingConstants = foldingConstants;
+    }
+
     public final boolean isTrimmingWhitespace() {
         return this.trimmingWhitespace;
     }
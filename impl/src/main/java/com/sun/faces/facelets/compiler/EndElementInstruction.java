@@ -62,6 +62,10 @@ final class EndElementInstruction implements Instruction {
         return true;
     }
 
+    String getElement() {
+        return this.element;
+    }
+
 
     // --------------------------------------------------------- Private Methods
 
@@ -46,4 +46,13 @@ final class LiteralAttributeInstruction implements Instruction {
     public boolean isLiteral() {
         return true;
     }
+
+    String getAttr() {
+        return this.attr;
+    }
+
+    String getText() {
+        return this.text;
+    }
+
 }
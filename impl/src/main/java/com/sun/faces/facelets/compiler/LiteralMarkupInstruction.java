@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.compiler;
+
+import com.sun.faces.io.FastStringWriter;
+import com.sun.faces.renderkit.html_basic.HtmlResponseWriter;
+import com.sun.faces.util.HtmlUtils;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.faces.context.FacesContext;
+import javax.faces.context.PartialResponseWriter;
+import javax.faces.context.ResponseWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * <p>A run of static markup that has been rendered once, at compile time,
+ * into a single pre-escaped <code>char[]</code> block.</p>
+ *
+ * <p>Only instructions whose output does not depend on the state of the
+ * <code>ResponseWriter</code> are coalesced: balanced elements (other than
+ * <code>script</code>, <code>style</code>, <code>head</code>,
+ * <code>body</code> and <code>cdata</code>), literal attributes and literal
+ * text that is printable ASCII and needs no escaping.  The block is written
+ * with one bulk <code>write()</code> when the current writer is the
+ * {@link HtmlResponseWriter}; for any other writer the original
+ * instructions are replayed.</p>
+ *
+ * <p>The bulk write bypasses the element state of the writer, e.g. the
+ * escaping it applies inside the body of a script rendered by a component,
+ * so coalescing is only done when
+ * <code>com.sun.faces.faceletsCoalesceStaticMarkup</code> is enabled.</p>
+ */
+final class LiteralMarkupInstruction implements Instruction {
+
+    private static final String[] EXCLUDED_ELEMENTS = {
+          "script", "style", "head", "body", "cdata"
+    };
+
+    private final char[] markup;
+
+    private final int len;
+
+    private final Instruction[] instructions;
+
+    private LiteralMarkupInstruction(String markup, Instruction[] instructions) {
+        this.markup = markup.toCharArray();
+        this.len = this.markup.length;
+        this.instructions = instructions;
+    }
+
+    @Override
+    public void write(FacesContext context) throws IOException {
+        ResponseWriter rw = context.getResponseWriter();
+        if (isBulkWritable(rw)) {
+            rw.write(this.markup, 0, this.len);
+        } else {
+            for (Instruction instruction : this.instructions) {
+                instruction.write(context);
+            }
+        }
+    }
+
+    @Override
+    public Instruction apply(ExpressionFactory factory, ELContext ctx) {
+        return this;
+    }
+
+    @Override
+    public boolean isLiteral() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(this.markup);
+    }
+
+
+    // ---------------------------------------------------------- Static Methods
+
+
+    /**
+     * <p>Replace every balanced run of two or more static instructions with
+     * a single <code>LiteralMarkupInstruction</code>.</p>
+     *
+     * @param instructions the instructions produced for a text unit
+     * @return the coalesced instructions, or <code>instructions</code> if
+     *  nothing could be coalesced
+     */
+    static Instruction[] coalesce(Instruction[] instructions) {
+
+        List<Instruction> result = null;
+        int size = instructions.length;
+        int i = 0;
+        while (i < size) {
+            int end = findBalancedRunEnd(instructions, i);
+            if (end - i > 1) {
+                if (result == null) {
+                    result = new ArrayList<>(size);
+                    for (int j = 0; j < i; j++) {
+                        result.add(instructions[j]);
+                    }
+                }
+                Instruction[] run = new Instruction[end - i];
+                System.arraycopy(instructions, i, run, 0, run.length);
+                result.add(new LiteralMarkupInstruction(render(run), run));
+                i = end;
+            } else {
+                if (result != null) {
+                    result.add(instructions[i]);
+                }
+                i++;
+            }
+        }
+
+        return ((result != null)
+                ? result.toArray(new Instruction[result.size()])
+                : instructions);
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /*
+     * Returns the (exclusive) index of the longest run starting at
+     * <code>start</code> that only contains coalescable instructions and
+     * leaves no element open.
+     */
+    private static int findBalancedRunEnd(Instruction[] instructions, int start) {
+
+        LinkedList<String> open = new LinkedList<>();
+        boolean startTagOpen = false;
+        int balancedEnd = start;
+        for (int i = start; i < instructions.length; i++) {
+            Instruction ins = instructions[i];
+            if (ins instanceof StartElementInstruction) {
+                String element = ((StartElementInstruction) ins).getElement();
+                if (isExcluded(element)) {
+                    break;
+                }
+                open.push(element);
+                startTagOpen = true;
+            } else if (ins instanceof LiteralAttributeInstruction) {
+                LiteralAttributeInstruction attr = (LiteralAttributeInstruction) ins;
+                if (!startTagOpen || !isStaticAttribute(attr.getText())) {
+                    break;
+                }
+            } else if (ins instanceof EndElementInstruction) {
+                String element = ((EndElementInstruction) ins).getElement();
+                if (open.isEmpty() || !open.peek().equals(element)) {
+                    break;
+                }
+                open.pop();
+                startTagOpen = false;
+            } else if (ins instanceof LiteralTextInstruction) {
+                if (!isStaticText(((LiteralTextInstruction) ins).getText())) {
+                    break;
+                }
+                startTagOpen = false;
+            } else if (ins instanceof LiteralXMLInstruction) {
+                startTagOpen = false;
+            } else {
+                break;
+            }
+            if (open.isEmpty()) {
+                balancedEnd = i + 1;
+            }
+        }
+        return balancedEnd;
+
+    }
+
+
+    /*
+     * Renders the run exactly as HtmlResponseWriter would for the same
+     * sequence of startElement/writeAttribute/writeText/endElement calls.
+     */
+    private static String render(Instruction[] run) {
+
+        FastStringWriter out = new FastStringWriter(128);
+        char[] buffer = new char[128];
+        char[] textBuffer = new char[128];
+        boolean startTagOpen = false;
+        try {
+            for (Instruction ins : run) {
+                if (ins instanceof StartElementInstruction) {
+                    if (startTagOpen) {
+                        out.write('>');
+                    }
+                    out.write('<');
+                    out.write(((StartElementInstruction) ins).getElement());
+                    startTagOpen = true;
+                } else if (ins instanceof LiteralAttributeInstruction) {
+                    LiteralAttributeInstruction attr = (LiteralAttributeInstruction) ins;
+                    String value = attr.getText();
+                    if (textBuffer.length < value.length()) {
+                        textBuffer = new char[value.length() * 2];
+                    }
+                    out.write(' ');
+                    out.write(attr.getAttr());
+                    out.write("=\"");
+                    HtmlUtils.writeAttribute(out, false, false, buffer, value, textBuffer, true);
+                    out.write('"');
+                } else if (ins instanceof EndElementInstruction) {
+                    String element = ((EndElementInstruction) ins).getElement();
+                    if (startTagOpen) {
+                        if (HtmlUtils.isEmptyElement(element)) {
+                            out.write(" />");
+                            startTagOpen = false;
+                            continue;
+                        }
+                        out.write('>');
+                        startTagOpen = false;
+                    }
+                    out.write("</");
+                    out.write(element);
+                    out.write('>');
+                } else {
+                    if (startTagOpen) {
+                        out.write('>');
+                        startTagOpen = false;
+                    }
+                    if (ins instanceof LiteralTextInstruction) {
+                        out.write(((LiteralTextInstruction) ins).getText());
+                    } else {
+                        out.write(((LiteralXMLInstruction) ins).getInstruction());
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            // FastStringWriter never throws
+            throw new IllegalStateException(ioe);
+        }
+        return out.toString();
+
+    }
+
+
+    private static boolean isExcluded(String element) {
+
+        for (String excluded : EXCLUDED_ELEMENTS) {
+            if (excluded.equalsIgnoreCase(element)) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+
+    /*
+     * Text qualifies if escaping, unicode escaping and CDATA escaping all
+     * leave it untouched, so it renders identically in every writer mode.
+     */
+    static boolean isStaticText(String text) {
+
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x20) {
+                if (ch != '\t' && ch != '\n' && ch != '\r') {
+                    return false;
+                }
+            } else if (ch > 0x7e || ch == '<' || ch == '>' || ch == '&' || ch == ']') {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+
+    /*
+     * Attribute values are pre-escaped at compile time, so they only need
+     * to be independent of the unicode escaping and script-in-attribute
+     * settings.
+     */
+    private static boolean isStaticAttribute(String value) {
+
+        for (int i = 0, len = value.length(); i < len; i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x20) {
+                if (ch != '\t' && ch != '\n' && ch != '\r') {
+                    return false;
+                }
+            } else if (ch > 0x7e) {
+                return false;
+            }
+        }
+        return !value.contains("script:");
+
+    }
+
+
+    private static boolean isBulkWritable(ResponseWriter rw) {
+
+        while (rw instanceof PartialResponseWriter) {
+            rw = ((PartialResponseWriter) rw).getWrapped();
+        }
+        return (rw != null && rw.getClass() == HtmlResponseWriter.class);
+
+    }
+
+}
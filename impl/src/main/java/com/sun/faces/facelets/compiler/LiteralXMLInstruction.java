@@ -51,4 +51,8 @@ final class LiteralXMLInstruction implements Instruction {
         return true;
     }
 
+    char[] getInstruction() {
+        return this.instruction;
+    }
+
 }
@@ -93,8 +93,10 @@ public final class SAXCompiler extends Compiler {
             TagAttributeImpl[] ta = new TagAttributeImpl[len];
             for (int i = 0; i < len; i++) {
                 ta[i] = new TagAttributeImpl(this.createLocation(),
-                        attrs.getURI(i), attrs.getLocalName(i), attrs
-                                .getQName(i), attrs.getValue(i));
+                        this.unit.intern(attrs.getURI(i)),
+                        this.unit.intern(attrs.getLocalName(i)),
+                        this.unit.intern(attrs.getQName(i)),
+                        this.unit.intern(attrs.getValue(i)));
             }
             return new TagAttributesImpl(ta);
         }
@@ -116,7 +118,7 @@ public final class SAXCompiler extends Compiler {
         public void endCDATA() throws SAXException {
             if (this.inDocument) {
                 if (!unit.getWebConfiguration().getFaceletsConfiguration().isConsumeCDATA(alias)) {
-                    this.unit.writeInstruction("]]>");
+                    this.unit.endCDATA();
                 }
             }
         }
@@ -187,7 +189,7 @@ public final class SAXCompiler extends Compiler {
         public void startCDATA() throws SAXException {
             if (this.inDocument) {
                 if (!unit.getWebConfiguration().getFaceletsConfiguration().isConsumeCDATA(alias)) {
-                    this.unit.writeInstruction("<![CDATA[");
+                    this.unit.startCDATA();
                 }
             }
         }
@@ -237,7 +239,9 @@ public final class SAXCompiler extends Compiler {
                 Attributes attributes) throws SAXException {
 
             TagAttributes tagAttrs = this.createAttributes(attributes);
-            Tag tag = new Tag(this.createLocation(), uri, localName, qName, tagAttrs);
+            Tag tag = new Tag(this.createLocation(), this.unit.intern(uri),
+                              this.unit.intern(localName),
+                              this.unit.intern(qName), tagAttrs);
             tagAttrs.setTag(tag);
             this.unit.pushTag(tag);
             
@@ -453,6 +457,13 @@ public final class SAXCompiler extends Compiler {
                 mngr.getCompilationMessageHolder());
         mngr.setCompilationMessageHolder(null);
 
+        if (log.isLoggable(Level.FINE)) {
+            CompilationPool.Footprint footprint = mngr.getFootprint();
+            log.log(Level.FINE,
+                    "{0}: {1} compiled strings and expressions shared with other facelets, saving about {2} bytes",
+                    new Object[] { alias, footprint.getShared(), footprint.getBytes() });
+        }
+
         return result;
 
     }
@@ -43,4 +43,9 @@ final class StartElementInstruction implements Instruction {
     public boolean isLiteral() {
         return true;
     }
+
+    String getElement() {
+        return this.element;
+    }
+
 }
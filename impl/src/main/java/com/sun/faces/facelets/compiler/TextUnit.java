@@ -16,9 +16,11 @@
 
 package com.sun.faces.facelets.compiler;
 
+import com.sun.faces.el.ELUtils;
 import com.sun.faces.facelets.el.ELText;
 
 import javax.el.ELException;
+import javax.faces.context.FacesContext;
 import javax.faces.view.facelets.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -46,10 +48,20 @@ final class TextUnit extends CompilationUnit {
     private final String alias;
 
     private final String id;
+
+    private final boolean coalescingMarkup;
+
+    private final boolean foldingConstants;
+
+    private final CompilationManager manager;
     
-    public TextUnit(String alias, String id) {
+    public TextUnit(String alias, String id, CompilationManager manager) {
         this.alias = alias;
         this.id = id;
+        this.manager = manager;
+        Compiler compiler = manager.getCompiler();
+        this.coalescingMarkup = compiler.isCoalescingMarkup();
+        this.foldingConstants = compiler.isFoldingConstants();
         this.buffer = new StringBuffer();
         this.textBuffer = new StringBuffer();
         this.instructionBuffer = new ArrayList();
@@ -95,11 +107,20 @@ final class TextUnit extends CompilationUnit {
                 s = trimRight(s);
             }
             if (s.length() > 0) {
-                ELText txt = ELText.parse(s, alias);
+                ELText txt = this.fold(ELText.parse(s, alias));
+                if (!ELUtils.isCompositeComponentExpr(s)) {
+                    // cc expressions are bound to this document's alias
+                    txt = this.manager.intern(s, txt);
+                }
                 if (txt != null) {
                     if (txt.isLiteral()) {
                         this.instructionBuffer.add(new LiteralTextInstruction(
                                 txt.toString()));
+                    } else if (txt.isConstant()
+                               && LiteralMarkupInstruction.isStaticText(txt.toString(null))) {
+                        // renders the same escaped or not
+                        this.instructionBuffer.add(new LiteralTextInstruction(
+                                txt.toString(null)));
                     } else {
                         this.instructionBuffer.add(new TextInstruction(
                                 this.alias, txt));
@@ -111,6 +132,20 @@ final class TextUnit extends CompilationUnit {
         this.textBuffer.setLength(0);
     }
 
+    /*
+     * Evaluates literal-only expressions once, at compile time, when
+     * enabled and a FacesContext is available to evaluate them against.
+     */
+    private ELText fold(ELText txt) {
+        if (txt != null && this.foldingConstants && !txt.isLiteral()) {
+            FacesContext context = FacesContext.getCurrentInstance();
+            if (context != null) {
+                return txt.fold(context);
+            }
+        }
+        return txt;
+    }
+
     public void write(String text) {
         this.finishStartTag();
         this.textBuffer.append(text);
@@ -163,11 +198,18 @@ final class TextUnit extends CompilationUnit {
                 this.buffer.append(' ').append(qname).append("=\"").append(
                         value).append("\"");
 
-                ELText txt = ELText.parse(value);
+                ELText txt = this.manager.intern(value, this.fold(ELText.parse(value)));
                 if (txt != null) {
                     if (txt.isLiteral()) {
                         this.addInstruction(new LiteralAttributeInstruction(
                                 qname, txt.toString()));
+                    } else if (txt.isConstant()) {
+                        // AttributeInstruction skips empty values
+                        String folded = txt.toString(null);
+                        if (folded != null && folded.length() != 0) {
+                            this.addInstruction(new LiteralAttributeInstruction(
+                                    qname, folded));
+                        }
                     } else {
                         this.addInstruction(new AttributeInstruction(
                                 this.alias, qname, txt));
@@ -222,10 +264,13 @@ final class TextUnit extends CompilationUnit {
                     String s = this.buffer.toString();
                     if (child)
                         s = trimRight(s);
-                    ELText txt = ELText.parse(s);
+                    ELText txt = this.manager.intern(s, ELText.parse(s));
                     if (txt != null) {
                         Instruction[] instructions = (Instruction[]) this.instructionBuffer
                                 .toArray(new Instruction[size]);
+                        if (this.coalescingMarkup) {
+                            instructions = LiteralMarkupInstruction.coalesce(instructions);
+                        }
                         this.children.add(new UIInstructionHandler(this.alias,
                                                                    this.id,
                                                                    instructions,
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.compiler;
+
+import com.sun.faces.facelets.tag.jsf.html.HtmlDecorator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Stack;
+
+/**
+ * Holds back the template text seen by the {@link CompilationManager} until
+ * the element boundary that follows it is known, and collapses its
+ * insignificant whitespace.  Whitespace next to the boundary of a block-level
+ * (X)HTML element is removed, any other run of leading or trailing whitespace
+ * is reduced to a single space.  Text inside pre, textarea, script, style
+ * and CDATA is returned untouched.
+ */
+final class WhitespaceCollapser {
+
+    private final static Set<String> BLOCK_ELEMENTS = new HashSet<>(Arrays.asList(
+            "html", "head", "body", "title", "meta", "link", "base", "noscript",
+            "div", "p", "pre", "blockquote", "address", "hr", "br",
+            "h1", "h2", "h3", "h4", "h5", "h6",
+            "header", "footer", "nav", "main", "section", "article", "aside",
+            "figure", "figcaption", "details", "summary",
+            "ul", "ol", "li", "dl", "dt", "dd",
+            "table", "caption", "colgroup", "col", "thead", "tbody", "tfoot", "tr", "th", "td",
+            "form", "fieldset", "legend", "select", "optgroup", "option"));
+
+    private final static Set<String> PRESERVE_WHITESPACE_ELEMENTS = new HashSet<>(Arrays.asList(
+            "pre", "textarea", "script", "style", "outputscript", "outputstylesheet"));
+
+    private final StringBuilder pendingText = new StringBuilder();
+
+    // the block flag is computed from the namespace when the element starts
+    private final Stack<Boolean> blockElements = new Stack<>();
+
+    private final Stack<Boolean> preservingElements = new Stack<>();
+
+    private int preserveWhitespaceDepth;
+
+    private boolean afterBlockBoundary = true;
+
+    /**
+     * Hold on to text until we know what follows it.
+     */
+    void text(String value) {
+        this.pendingText.append(value);
+    }
+
+    /**
+     * @return the text held back, collapsed as if it was followed by
+     *  anything but a block-level element boundary
+     */
+    String flush() {
+        return this.flush(false);
+    }
+
+    /**
+     * @return the text held back before the start tag of the element
+     */
+    String startElement(String ns, String localName) {
+        boolean block = isBlockElement(ns, localName);
+        String text = this.flush(block);
+        this.afterBlockBoundary = block;
+        boolean preserving = isWhitespacePreserved(localName);
+        this.blockElements.push(block);
+        this.preservingElements.push(preserving);
+        if (preserving) {
+            this.preserveWhitespaceDepth++;
+        }
+        return text;
+    }
+
+    /**
+     * @return the text held back before the end tag of the element last
+     *  started
+     */
+    String endElement() {
+        if (this.blockElements.isEmpty()) {
+            return this.flush(false);
+        }
+        boolean block = this.blockElements.pop();
+        String text = this.flush(block);
+        this.afterBlockBoundary = block;
+        if (this.preservingElements.pop()) {
+            this.preserveWhitespaceDepth--;
+        }
+        return text;
+    }
+
+    void startCDATA() {
+        this.preserveWhitespaceDepth++;
+    }
+
+    void endCDATA() {
+        this.preserveWhitespaceDepth--;
+    }
+
+    private String flush(boolean beforeBlockBoundary) {
+
+        if (this.pendingText.length() == 0) {
+            return "";
+        }
+
+        String text = this.pendingText.toString();
+        this.pendingText.setLength(0);
+
+        if (this.preserveWhitespaceDepth == 0) {
+            text = collapseWhitespace(text, this.afterBlockBoundary, beforeBlockBoundary);
+        }
+        return text;
+    }
+
+    private static boolean isBlockElement(String ns, String name) {
+        return (ns == null || "".equals(ns) || HtmlDecorator.XhtmlNamespace.equals(ns))
+                && BLOCK_ELEMENTS.contains(name);
+    }
+
+    private static boolean isWhitespacePreserved(String name) {
+        return PRESERVE_WHITESPACE_ELEMENTS.contains(name.toLowerCase());
+    }
+
+    private static String collapseWhitespace(String text,
+                                             boolean afterBlockBoundary,
+                                             boolean beforeBlockBoundary) {
+        int length = text.length();
+        int start = 0;
+        while (start < length && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        if (start == length) {
+            return (afterBlockBoundary || beforeBlockBoundary) ? "" : " ";
+        }
+        int end = length;
+        while (Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == 0 && end == length) {
+            return text;
+        }
+
+        StringBuilder sb = new StringBuilder(end - start + 2);
+        if (start > 0 && !afterBlockBoundary) {
+            sb.append(' ');
+        }
+        sb.append(text, start, end);
+        if (end < length && !beforeBlockBoundary) {
+            sb.append(' ');
+        }
+        return sb.toString();
+    }
+
+}
@@ -279,23 +279,23 @@ public class UIRepeat extends UINamingContainer {
         this.value = value;
     }
 
-    private transient StringBuffer buffer;
-
-    private StringBuffer getBuffer() {
-        if (this.buffer == null) {
-            this.buffer = new StringBuffer();
-        }
-        this.buffer.setLength(0);
-        return this.buffer;
-    }
+    // the last per-row client id, shared by all children of the row
+    private transient String rowClientId;
+    private transient String rowClientIdBase;
+    private transient int rowClientIdIndex = -1;
 
     @Override
     public String getClientId(FacesContext faces) {
         String id = super.getClientId(faces);
         if (this.index >= 0) {
-            id = this.getBuffer().append(id).append(
-                    getSeparatorChar(faces)).append(this.index)
-                    .toString();
+            if (this.index != this.rowClientIdIndex || id != this.rowClientIdBase) {
+                this.rowClientId = new StringBuilder(id.length() + 11).append(id).append(
+                        getSeparatorChar(faces)).append(this.index)
+                        .toString();
+                this.rowClientIdBase = id;
+                this.rowClientIdIndex = this.index;
+            }
+            id = this.rowClientId;
         }
         return id;
     }
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.el;
+
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.FaceletsFoldConstantExpressions;
+import static com.sun.faces.config.WebConfiguration.WebContextInitParameter.FaceletsImmutableExpressionRoots;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.ExpressionFactory;
+import javax.el.PropertyNotWritableException;
+import javax.el.ValueExpression;
+import javax.el.VariableMapper;
+import javax.faces.context.FacesContext;
+
+import com.sun.faces.config.WebConfiguration;
+
+/**
+ * <p>A <code>ValueExpression</code> whose value has been computed once,
+ * when the expression was first needed, because it only consists of literals and
+ * operators (<code>#{'a'}</code>, <code>#{2 * 60}</code>,
+ * <code>#{not true}</code>) or, if enabled, of properties of application
+ * scoped beans that were declared immutable.  Evaluating it does not consult
+ * the <code>ELResolver</code> chain.</p>
+ *
+ * <p>{@link #isLiteralText()} returns <code>false</code> so that components
+ * keep treating the expression as an expression.</p>
+ *
+ * <p>Only the expression is serialized, the value may not be serializable,
+ * or not be the same instance the application holds, and is computed again
+ * when it is first needed after the expression has been read back.</p>
+ */
+public final class ConstantValueExpression extends ValueExpression implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+          "and", "or", "not", "eq", "ne", "lt", "gt", "le", "ge",
+          "div", "mod", "empty", "true", "false", "null"));
+
+    // the value of an expression that has been read back but not evaluated
+    private static final Object NOT_EVALUATED = new Object();
+
+    private String expressionString;
+    private Class<?> expectedType;
+    private transient volatile Object value;
+
+    public ConstantValueExpression() {
+        super();
+    }
+
+    public ConstantValueExpression(String expressionString, Class<?> expectedType, Object value) {
+        this.expressionString = expressionString;
+        this.expectedType = expectedType;
+        this.value = value;
+    }
+
+    @Override
+    public Object getValue(ELContext context) {
+        Object result = value;
+        if (result == NOT_EVALUATED) {
+            FacesContext facesContext = (FacesContext) context.getContext(FacesContext.class);
+            if (facesContext == null) {
+                facesContext = FacesContext.getCurrentInstance();
+            }
+            ExpressionFactory factory = facesContext.getApplication().getExpressionFactory();
+            result = factory.createValueExpression(context, expressionString, expectedType).getValue(context);
+            value = result;
+        }
+        return result;
+    }
+
+    @Override
+    public void setValue(ELContext context, Object value) {
+        throw new PropertyNotWritableException(expressionString);
+    }
+
+    @Override
+    public boolean isReadOnly(ELContext context) {
+        return true;
+    }
+
+    /**
+     * @return <code>null</code>, as no value can be passed to
+     *  {@link #setValue(ELContext, Object)}
+     */
+    @Override
+    public Class<?> getType(ELContext context) {
+        return null;
+    }
+
+    @Override
+    public Class<?> getExpectedType() {
+        return expectedType;
+    }
+
+    @Override
+    public String getExpressionString() {
+        return expressionString;
+    }
+
+    @Override
+    public boolean isLiteralText() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        ConstantValueExpression that = (ConstantValueExpression) o;
+        return expressionString.equals(that.expressionString)
+               && (expectedType != null ? expectedType.equals(that.expectedType) : that.expectedType == null);
+    }
+
+    @Override
+    public int hashCode() {
+        return expressionString.hashCode();
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        expressionString = in.readUTF();
+        expectedType = (Class<?>) in.readObject();
+        value = NOT_EVALUATED;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeUTF(expressionString);
+        out.writeObject(expectedType);
+    }
+
+    @Override
+    public String toString() {
+        return expressionString;
+    }
+
+
+    // ---------------------------------------------------------- Static Methods
+
+
+    /**
+     * @param context the <code>FacesContext</code> for the current request
+     * @return <code>true</code> if the
+     *  <code>com.sun.faces.faceletsFoldConstantExpressions</code>
+     *  context-param is enabled
+     */
+    public static boolean isFoldingEnabled(FacesContext context) {
+        return WebConfiguration.getInstance(context.getExternalContext())
+              .isOptionEnabled(FaceletsFoldConstantExpressions);
+    }
+
+
+    /**
+     * @param context the <code>FacesContext</code> for the current request
+     * @return the names of the application scoped beans listed by the
+     *  <code>com.sun.faces.faceletsImmutableExpressionRoots</code>
+     *  context-param
+     */
+    public static Collection<String> getImmutableRoots(FacesContext context) {
+        return Arrays.asList(WebConfiguration.getInstance(context.getExternalContext())
+              .getOptionValue(FaceletsImmutableExpressionRoots, " "));
+    }
+
+
+    /**
+     * <p>Evaluate a constant <code>expression</code> once.</p>
+     *
+     * @param context the <code>FacesContext</code> for the current request
+     * @param elContext the <code>ELContext</code> to evaluate against
+     * @param expression the expression, including its delimiters
+     * @param expectedType the type the expression is coerced to
+     * @return the folded expression, or <code>null</code> if evaluating it
+     *  failed, in which case the error is left to the regular evaluation
+     */
+    public static ConstantValueExpression evaluate(FacesContext context,
+                                                   ELContext elContext,
+                                                   String expression,
+                                                   Class<?> expectedType) {
+
+        try {
+            ExpressionFactory factory = context.getApplication().getExpressionFactory();
+            ValueExpression ve = factory.createValueExpression(elContext, expression, expectedType);
+            return new ConstantValueExpression(expression, expectedType, ve.getValue(elContext));
+        } catch (ELException e) {
+            return null;
+        }
+
+    }
+
+
+    /**
+     * @param expression an expression including its delimiters
+     * @param immutableRoots the names of the application scoped beans whose
+     *  properties may be considered constant
+     * @return the names of the immutable roots <code>expression</code>
+     *  refers to, or <code>null</code> if the expression is not constant
+     */
+    public static Set<String> getReferencedRoots(String expression, Collection<String> immutableRoots) {
+
+        int length = expression.length();
+        if (length < 3
+              || (expression.charAt(0) != '#' && expression.charAt(0) != '$')
+              || expression.charAt(1) != '{'
+              || expression.charAt(length - 1) != '}') {
+            return null;
+        }
+
+        Set<String> roots = null;
+        boolean afterDot = false;
+        boolean afterRoot = false;
+        int i = 2;
+        int end = length - 1;
+        while (i < end) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                // string literal
+                int j = i + 1;
+                while (j < end && expression.charAt(j) != c) {
+                    if (expression.charAt(j) == '\\') {
+                        j++;
+                    }
+                    j++;
+                }
+                if (j >= end) {
+                    return null;
+                }
+                i = j + 1;
+                afterDot = afterRoot = false;
+            } else if (Character.isDigit(c)) {
+                // numeric literal, including decimals and exponents
+                while (i < end && (Character.isLetterOrDigit(expression.charAt(i))
+                                   || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                afterDot = afterRoot = false;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int j = i + 1;
+                while (j < end && Character.isJavaIdentifierPart(expression.charAt(j))) {
+                    j++;
+                }
+                String identifier = expression.substring(i, j);
+                i = j;
+                while (i < end && Character.isWhitespace(expression.charAt(i))) {
+                    i++;
+                }
+                if (i < end && expression.charAt(i) == '(') {
+                    // method or function invocation
+                    return null;
+                }
+                if (afterDot) {
+                    afterDot = false;
+                    afterRoot = true;
+                } else if (KEYWORDS.contains(identifier)) {
+                    afterRoot = false;
+                } else if (immutableRoots.contains(identifier)) {
+                    if (roots == null) {
+                        roots = new HashSet<>(2);
+                    }
+                    roots.add(identifier);
+                    afterRoot = true;
+                } else {
+                    return null;
+                }
+            } else if (c == '.') {
+                if (!afterRoot) {
+                    return null;
+                }
+                afterDot = true;
+                afterRoot = false;
+                i++;
+            } else if (c == '=') {
+                // only ==, <=, >=, != and += are operators, = is an assignment
+                char prev = expression.charAt(i - 1);
+                if (prev == '=' || prev == '<' || prev == '>' || prev == '!' || prev == '+') {
+                    i++;
+                } else if (i + 1 < end && expression.charAt(i + 1) == '=') {
+                    i += 2;
+                } else {
+                    return null;
+                }
+                afterRoot = false;
+            } else if ("+-*/%<>!&|?:()".indexOf(c) != -1) {
+                if (c == '-' && i + 1 < end && expression.charAt(i + 1) == '>') {
+                    // lambda expression
+                    return null;
+                }
+                afterDot = afterRoot = false;
+                i++;
+            } else {
+                // [, {, ;, # and anything else we don't understand
+                return null;
+            }
+        }
+
+        if (afterDot) {
+            return null;
+        }
+        return (roots != null) ? roots : Collections.<String>emptySet();
+
+    }
+
+
+    /**
+     * @param expression an expression including its delimiters
+     * @return <code>true</code> if <code>expression</code> only consists of
+     *  literals and operators
+     */
+    public static boolean isLiteralOnly(String expression) {
+        Set<String> roots = getReferencedRoots(expression, Collections.<String>emptySet());
+        return roots != null && roots.isEmpty();
+    }
+
+
+    /**
+     * @param mapper the current <code>VariableMapper</code>, may be <code>null</code>
+     * @param roots the roots returned by {@link #getReferencedRoots}
+     * @return <code>true</code> if any of the roots is mapped to a variable
+     */
+    public static boolean isShadowed(VariableMapper mapper, Set<String> roots) {
+        if (mapper != null && roots != null) {
+            for (String root : roots) {
+                if (mapper.resolveVariable(root) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
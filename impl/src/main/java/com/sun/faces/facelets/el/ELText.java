@@ -153,8 +153,37 @@ public class ELText {
             return false;
         }
 
+        @Override
+        public boolean isConstant() {
+            for (int i = 0; i < this.txt.length; i++) {
+                if (!this.txt[i].isConstant()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ELText fold(FacesContext context) {
+            int len = this.txt.length;
+            ELText[] nt = null;
+            for (int i = 0; i < len; i++) {
+                ELText folded = this.txt[i].fold(context);
+                if (folded != this.txt[i]) {
+                    if (nt == null) {
+                        nt = this.txt.clone();
+                    }
+                    nt[i] = folded;
+                }
+            }
+            return ((nt != null) ? new ELTextComposite(nt) : this);
+        }
+
         @Override
         public ELText apply(ExpressionFactory factory, ELContext ctx) {
+            if (this.isConstant()) {
+                return this;
+            }
             int len = this.txt.length;
             ELText[] nt = new ELText[len];
             for (int i = 0; i < len; i++) {
@@ -177,10 +206,33 @@ public class ELText {
             return false;
         }
 
+        @Override
+        public boolean isConstant() {
+            return (this.ve instanceof ConstantValueExpression);
+        }
+
+        @Override
+        public ELText fold(FacesContext context) {
+            if (this.ve instanceof LiteralValueExpression
+                  && ConstantValueExpression.isLiteralOnly(this.literal)) {
+                ConstantValueExpression folded =
+                      ConstantValueExpression.evaluate(context,
+                                                       context.getELContext(),
+                                                       this.literal,
+                                                       String.class);
+                if (folded != null) {
+                    return new ELTextVariable(folded);
+                }
+            }
+            return this;
+        }
+
         @Override
         public ELText apply(ExpressionFactory factory, ELContext ctx) {
             ELText result = null;
-            if (this.ve instanceof ContextualCompositeValueExpression) {
+            if (this.ve instanceof ConstantValueExpression) {
+                result = this;
+            } else if (this.ve instanceof ContextualCompositeValueExpression) {
                 result = new ELTextVariable(ve);
             } else {
                 result = new ELTextVariable(factory.createValueExpression(ctx,
@@ -236,6 +288,31 @@ public class ELText {
         return true;
     }
 
+    /**
+     * If this text renders the same output for every request, either
+     * because it is literal or because all of its expressions have been
+     * folded by {@link #fold(FacesContext)}
+     *
+     * @return true if the output of this text never changes
+     */
+    public boolean isConstant() {
+        return true;
+    }
+
+    /**
+     * Return an instance of <code>this</code> in which every expression that
+     * only consists of literals and operators (<code>#{'a'}</code>,
+     * <code>#{2 * 60}</code>) has been evaluated once.  Expressions that
+     * could not be evaluated are left as they are.
+     *
+     * @param context
+     *            the FacesContext to evaluate against
+     * @return an ELText instance
+     */
+    public ELText fold(FacesContext context) {
+        return this;
+    }
+
     /**
      * Return an instance of <code>this</code> that is applicable given the
      * ELContext and ExpressionFactory state.
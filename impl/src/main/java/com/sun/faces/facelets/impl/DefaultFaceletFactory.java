@@ -40,7 +40,10 @@ import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -66,6 +69,10 @@ public class DefaultFaceletFactory {
 
     protected final static Logger log = FacesLogger.FACELETS_FACTORY.getLogger();
 
+    // Paths computed by EL, e.g. in ui:include, may be resolved in any
+    // number of variants
+    private static final int MAX_RESOLVED_URLS = 1024;
+
     private Compiler compiler;
 
     // We continue to use a ResourceResolver just in case someone
@@ -81,7 +88,11 @@ public class DefaultFaceletFactory {
 
     private ConcurrentMap<String, FaceletCache<DefaultFacelet>> cachePerContract;
 
+    private ConcurrentMap<ResolutionKey, Resolution> resolvedURLs;
+
     Cache<String,IdMapper> idMappers;
+
+    private boolean compactIds;
     
 
 
@@ -125,9 +136,14 @@ public class DefaultFaceletFactory {
         Util.notNull("resolver", resolver);
         this.compiler = compiler;
         this.cachePerContract = new ConcurrentHashMap<>();
+        // a custom resolver may answer differently for the same path at
+        // any time, so only the results of our own are kept
+        this.resolvedURLs = (resolver.getClass() == DefaultResourceResolver.class)
+                            ? new ConcurrentHashMap<ResolutionKey, Resolution>()
+                            : null;
         this.resolver = resolver;
         this.baseUrl = resolver.resolveUrl("/");
-        this.idMappers = new Cache<>(new IdMapperFactory());
+        this.idMappers = new Cache<>(new IdMapperFactory(this));
         // this.location = url;
         refreshPeriod = (refreshPeriod >= 0) ? refreshPeriod * 1000 : -1;
         this.refreshPeriod = refreshPeriod;
@@ -156,6 +172,7 @@ public class DefaultFaceletFactory {
             new FaceletCache.MemberFactory<DefaultFacelet>() {
                 @Override
                 public DefaultFacelet newInstance(final URL key) throws IOException {
+                    clearResolvedURLs();
                     return createFacelet(key);
                 }
             };
@@ -163,6 +180,7 @@ public class DefaultFaceletFactory {
             new FaceletCache.MemberFactory<DefaultFacelet>() {
                 @Override
                 public DefaultFacelet newInstance(final URL key) throws IOException {
+                    clearResolvedURLs();
                     return createMetadataFacelet(key);
                 }
             };
@@ -206,6 +224,10 @@ public class DefaultFaceletFactory {
      * javax.faces.context.ExternalContext#getResource(java.lang.String)}.
      * Otherwise create a new URL via {@link URL#URL(java.net.URL,
      * java.lang.String) URL(URL, String)}.
+     * Absolute paths resolved by the {@link DefaultResourceResolver} are
+     * cached per path, active resource library contracts and locale, and are
+     * resolved again once the refresh period has elapsed or a Facelet has
+     * been compiled again.  The cache is cleared once it holds 1024 results.
      *
      * @param source base to resolve from
      * @param path   relative path to the source
@@ -215,6 +237,42 @@ public class DefaultFaceletFactory {
      * @throws IOException
      */
     public URL resolveURL(URL source, String path) throws IOException {
+        FacesContext context = FacesContext.getCurrentInstance();
+        if (context == null || this.refreshPeriod == 0 || this.resolvedURLs == null
+            || !path.startsWith("/")) {
+            // relative paths are resolved against the source without
+            // asking the resolver, which is cheap enough
+            return this.doResolveURL(source, path);
+        }
+
+        // The outcome depends on the active contracts and the locale, and
+        // is kept exactly as long as the facelet it points to
+        ResolutionKey key = new ResolutionKey(path, context);
+        Resolution resolution = this.resolvedURLs.get(key);
+        if (resolution == null || resolution.isExpired()) {
+            URL url = this.doResolveURL(source, path);
+            resolution = new Resolution(url, this.refreshPeriod);
+            if (this.resolvedURLs.size() >= MAX_RESOLVED_URLS) {
+                this.resolvedURLs.clear();
+            }
+            this.resolvedURLs.put(key, resolution);
+        }
+        return resolution.url;
+    }
+
+    /*
+     * Facelets are only compiled again once their refresh period has
+     * elapsed, which is when the resolved paths may have changed as well.
+     * In production facelets are never refreshed, so compiling the first
+     * ones doesn't throw away all of the resolved paths.
+     */
+    private void clearResolvedURLs() {
+        if (this.resolvedURLs != null && this.refreshPeriod > 0) {
+            this.resolvedURLs.clear();
+        }
+    }
+
+    private URL doResolveURL(URL source, String path) throws IOException {
         // PENDING(FCAPUTO): always go to the resolver to make resource libary contracts work with relative urls
         if (path.startsWith("/")) {
             URL url = this.resolver.resolveUrl(path);
@@ -473,11 +531,96 @@ public class DefaultFaceletFactory {
     }
 
 
+    /**
+     * @param compactIds if <code>true</code>, the aliases of generated
+     *  component ids are written in base 36
+     */
+    public void setCompactIds(boolean compactIds) {
+        this.compactIds = compactIds;
+    }
+
+    public boolean isCompactIds() {
+        return this.compactIds;
+    }
+
+
     // ---------------------------------------------------------- Nested Classes
 
 
+    private static final class ResolutionKey {
+
+        private final String path;
+        private final List<String> contracts;
+        private final Locale locale;
+        private final int hash;
+
+        ResolutionKey(String path, FacesContext context) {
+            this.path = path;
+            List<String> active = context.getResourceLibraryContracts();
+            this.contracts = (active == null || active.isEmpty())
+                             ? Collections.<String>emptyList()
+                             : new ArrayList<>(active);
+            this.locale = (context.getViewRoot() != null) ? context.getViewRoot().getLocale() : null;
+            int result = this.path.hashCode();
+            result = 31 * result + this.contracts.hashCode();
+            result = 31 * result + ((this.locale != null) ? this.locale.hashCode() : 0);
+            this.hash = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ResolutionKey)) {
+                return false;
+            }
+            ResolutionKey that = (ResolutionKey) o;
+            return (this.hash == that.hash
+                    && this.path.equals(that.path)
+                    && this.contracts.equals(that.contracts)
+                    && (this.locale != null ? this.locale.equals(that.locale) : that.locale == null));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+    }
+
+
+    private static final class Resolution {
+
+        private final URL url;
+        private final long expires;
+
+        Resolution(URL url, long refreshPeriod) {
+            this.url = url;
+            this.expires = (refreshPeriod > 0) ? System.currentTimeMillis() + refreshPeriod : -1;
+        }
+
+        boolean isExpired() {
+            return (this.expires != -1 && System.currentTimeMillis() > this.expires);
+        }
+
+    }
+
+
     private static final class IdMapperFactory implements Cache.Factory<String,IdMapper> {
 
+        private final DefaultFaceletFactory factory;
+
+
+        // -------------------------------------------------------- Constructors
+
+
+        IdMapperFactory(DefaultFaceletFactory factory) {
+
+            this.factory = factory;
+
+        }
+
 
         // ------------------------------------------ Methods from Cache.Factory
 
@@ -485,7 +628,7 @@ public class DefaultFaceletFactory {
         @Override
         public IdMapper newInstance(String arg) throws InterruptedException {
 
-            return new IdMapper();
+            return new IdMapper(factory.compactIds);
 
         }
 
@@ -24,19 +24,35 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Used to provide aliases to Facelets generated unique IDs with tend to be
- * womewhat long.
+ * womewhat long.  When <code>com.sun.faces.compactComponentIds</code> is
+ * enabled the aliases are written in base 36.
  */
 public class IdMapper {
 
     private static final String KEY = IdMapper.class.getName();
 
-    private Cache<String,String> idCache = new Cache<>(new IdGen());
+    private Cache<String,String> idCache;
 
 
     // ------------------------------------------------------------ Constructors
 
 
-    IdMapper() { }
+    IdMapper() {
+
+        this(false);
+
+    }
+
+
+    /**
+     * @param compact if <code>true</code>, aliases are written in base 36
+     *  instead of decimal
+     */
+    IdMapper(boolean compact) {
+
+        idCache = new Cache<>(new IdGen(compact));
+
+    }
 
 
     // ---------------------------------------------------------- Public Methods
@@ -75,6 +91,20 @@ public class IdMapper {
 
         private AtomicInteger counter = new AtomicInteger(0);
 
+        private final int radix;
+
+
+        // -------------------------------------------------------- Constructors
+
+
+        IdGen(boolean compact) {
+
+            // Aliases keep the leading 't', so they can't collide with the
+            // decimal ids UniqueIdVendors generate when no seed is given
+            radix = (compact ? Character.MAX_RADIX : 10);
+
+        }
+
 
         // ------------------------------------------ Methods from Cache.Factory
 
@@ -82,7 +112,7 @@ public class IdMapper {
         @Override
         public String newInstance(String arg) throws InterruptedException {
 
-            return 't' + Integer.toString(counter.incrementAndGet());
+            return 't' + Integer.toString(counter.incrementAndGet(), radix);
 
         }
 
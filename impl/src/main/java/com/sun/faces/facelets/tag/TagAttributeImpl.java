@@ -17,6 +17,7 @@
 package com.sun.faces.facelets.tag;
 
 import com.sun.faces.el.ELUtils;
+import com.sun.faces.facelets.el.ConstantValueExpression;
 import com.sun.faces.facelets.el.ContextualCompositeMethodExpression;
 import com.sun.faces.facelets.el.ELText;
 import com.sun.faces.facelets.el.TagMethodExpression;
@@ -32,12 +33,14 @@ import javax.el.MethodExpression;
 import javax.el.ValueExpression;
 import javax.el.MethodInfo;
 import javax.el.ELContext;
+import javax.faces.context.FacesContext;
 import javax.faces.view.Location;
 import javax.faces.view.facelets.FaceletContext;
 import javax.faces.view.facelets.Tag;
 import javax.faces.view.facelets.TagAttribute;
 import javax.faces.view.facelets.TagAttributeException;
 import javax.faces.FacesException;
+import java.util.Set;
 
 /**
  * Representation of a Tag's attribute in a Facelet File
@@ -47,6 +50,8 @@ import javax.faces.FacesException;
  */
 public class TagAttributeImpl extends TagAttribute {
 
+    private static final FoldedExpression NOT_FOLDABLE = new FoldedExpression(null, null, null);
+
     private final boolean literal;
 
     private final String localName;
@@ -62,6 +67,8 @@ public class TagAttributeImpl extends TagAttribute {
     private String string;
     
     private Tag tag;
+
+    private volatile FoldedExpression folded;
     
     public TagAttributeImpl() {
         this.literal = false;
@@ -367,6 +374,12 @@ public class TagAttributeImpl extends TagAttribute {
 
 
     public ValueExpression getValueExpression(FaceletContext ctx, String expr, Class type) {
+        if (!this.literal && expr.equals(this.value)) {
+            ValueExpression constant = getConstantValueExpression(ctx, type);
+            if (constant != null) {
+                return constant;
+            }
+        }
         try {
             ExpressionFactory f = ctx.getExpressionFactory();
             ValueExpression delegate = f.createValueExpression(ctx,
@@ -390,9 +403,68 @@ public class TagAttributeImpl extends TagAttribute {
     }
 
 
+    /*
+     * Expressions that only consist of literals, or of properties of the
+     * configured immutable roots, are evaluated once and the result is
+     * reused every time the view is built.  Returns null if the value
+     * can't be folded in the current context.
+     */
+    private ValueExpression getConstantValueExpression(FaceletContext ctx, Class type) {
+        FoldedExpression f = this.folded;
+        if (f == NOT_FOLDABLE) {
+            return null;
+        }
+        FacesContext context = ctx.getFacesContext();
+        if (f == null) {
+            Set<String> roots = null;
+            if (ConstantValueExpression.isFoldingEnabled(context)
+                  && !ELUtils.isCompositeComponentExpr(this.value)) {
+                roots = ConstantValueExpression.getReferencedRoots(this.value,
+                      ConstantValueExpression.getImmutableRoots(context));
+            }
+            if (roots == null) {
+                this.folded = NOT_FOLDABLE;
+                return null;
+            }
+            f = new FoldedExpression(roots, null, null);
+        }
+
+        // a ui:param or c:set may hide an immutable root
+        if (ConstantValueExpression.isShadowed(ctx.getVariableMapper(), f.roots)) {
+            return null;
+        }
+        if (f.expression == null || f.type != type) {
+            ConstantValueExpression cve =
+                  ConstantValueExpression.evaluate(context, ctx, this.value, type);
+            if (cve == null) {
+                this.folded = NOT_FOLDABLE;
+                return null;
+            }
+            f = new FoldedExpression(f.roots, type, new TagValueExpression(this, cve));
+            this.folded = f;
+        }
+        return f.expression;
+    }
+
+
     // ---------------------------------------------------------- Nested Classes
 
 
+    private static final class FoldedExpression {
+
+        private final Set<String> roots;
+        private final Class type;
+        private final ValueExpression expression;
+
+        FoldedExpression(Set<String> roots, Class type, ValueExpression expression) {
+            this.roots = roots;
+            this.type = type;
+            this.expression = expression;
+        }
+
+    }
+
+
     private static class AttributeLookupMethodExpression extends MethodExpression {
 
         private static final long serialVersionUID = -8983924930720420664L;
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.faces.context.FacesContext;
+
+/**
+ * <p>A bounded pool of the <code>char[]</code> and {@link StringBuilder}
+ * buffers used while rendering a response, so buffers that grew large
+ * during one request can be reused by the next instead of becoming
+ * garbage.</p>
+ *
+ * <p>Buffers are handed out in a few size classes.  Each platform thread
+ * keeps a small cache of the smaller classes in front of the shared pool.
+ * Virtual threads bypass that cache and go to the shared pool directly,
+ * as they are not reused and would otherwise each hold on to buffers of
+ * their own.  The per thread caches only hold JDK types, so they don't pin
+ * the web application's class loader after an undeploy.</p>
+ *
+ * <p>Buffers obtained with {@link #getChars(FacesContext, int)} or
+ * {@link #getBuilder(FacesContext, int)} belong to the request and are
+ * returned by {@link #releaseRequestBuffers(FacesContext)} when the
+ * <code>FacesContext</code> is released.  Buffers obtained with
+ * {@link #acquireChars(int)} or {@link #acquireBuilder(int)} must be given
+ * back with the matching <code>release</code> method, and must not be
+ * used afterwards.</p>
+ */
+public final class BufferPool {
+
+    private static final String REQUEST_BUFFERS_KEY =
+          BufferPool.class.getName() + ".REQUEST_BUFFERS";
+
+    // size classes, in chars
+    private static final int[] SIZES = { 256, 1024, 4096, 16384, 65536, 262144 };
+
+    // number of buffers the shared pool keeps per size class and kind
+    private static final int[] SHARED_CAPACITY = { 64, 64, 32, 16, 8, 4 };
+
+    // only the smaller classes are cached per thread
+    private static final int THREAD_CACHE_CLASSES = 3;
+
+    private static final int THREAD_CACHE_DEPTH = 4;
+
+    private static final int CHARS = 0;
+    private static final int BUILDERS = 1;
+
+    private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+    // after the constants the constructor depends on
+    private static final BufferPool INSTANCE = new BufferPool();
+
+    // per thread: [kind][size class][depth], flattened into one array
+    private final ThreadLocal<Object[]> threadCaches = new ThreadLocal<>();
+
+    private final SizeClass[][] classes = new SizeClass[2][SIZES.length];
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private BufferPool() {
+        for (int kind = CHARS; kind <= BUILDERS; kind++) {
+            for (int i = 0; i < SIZES.length; i++) {
+                classes[kind][i] = new SizeClass(SIZES[i], SHARED_CAPACITY[i]);
+            }
+        }
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @return the pool shared by all requests
+     */
+    public static BufferPool getInstance() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * @param context the <code>FacesContext</code> for the current request,
+     *  may be <code>null</code>
+     * @param minLength the minimum length of the array
+     * @return an array of at least <code>minLength</code> chars that is
+     *  returned to the pool when <code>context</code> is released, or a new
+     *  array of exactly <code>minLength</code> chars if there is no
+     *  <code>context</code>
+     */
+    public char[] getChars(FacesContext context, int minLength) {
+        if (context == null) {
+            return new char[minLength];
+        }
+        char[] chars = acquireChars(minLength);
+        getRequestBuffers(context).add(chars);
+        return chars;
+    }
+
+
+    /**
+     * @param context the <code>FacesContext</code> for the current request,
+     *  may be <code>null</code>
+     * @param minCapacity the minimum capacity of the builder
+     * @return an empty builder that is returned to the pool when
+     *  <code>context</code> is released
+     */
+    public StringBuilder getBuilder(FacesContext context, int minCapacity) {
+        if (context == null) {
+            return new StringBuilder(minCapacity);
+        }
+        StringBuilder builder = acquireBuilder(minCapacity);
+        getRequestBuffers(context).add(builder);
+        return builder;
+    }
+
+
+    /**
+     * <p>Return all buffers handed out for the request of
+     * <code>context</code> to the pool.</p>
+     *
+     * @param context the <code>FacesContext</code> being released
+     */
+    @SuppressWarnings("unchecked")
+    public void releaseRequestBuffers(FacesContext context) {
+        List<Object> buffers = (List<Object>) context.getAttributes().remove(REQUEST_BUFFERS_KEY);
+        if (buffers != null) {
+            for (int i = 0, size = buffers.size(); i < size; i++) {
+                Object buffer = buffers.get(i);
+                if (buffer instanceof char[]) {
+                    release((char[]) buffer);
+                } else {
+                    release((StringBuilder) buffer);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @param minLength the minimum length of the array
+     * @return an array of at least <code>minLength</code> chars
+     */
+    public char[] acquireChars(int minLength) {
+        int index = classFor(minLength);
+        if (index == -1) {
+            return new char[minLength];
+        }
+        char[] chars = (char[]) take(CHARS, index);
+        return (chars != null) ? chars : new char[SIZES[index]];
+    }
+
+
+    /**
+     * @param chars an array obtained from {@link #acquireChars(int)}
+     */
+    public void release(char[] chars) {
+        int index = classOf(chars.length);
+        if (index != -1 && SIZES[index] == chars.length) {
+            give(CHARS, index, chars);
+        }
+    }
+
+
+    /**
+     * @param minCapacity the minimum capacity of the builder
+     * @return an empty builder with at least <code>minCapacity</code>
+     *  capacity
+     */
+    public StringBuilder acquireBuilder(int minCapacity) {
+        int index = classFor(minCapacity);
+        if (index == -1) {
+            return new StringBuilder(minCapacity);
+        }
+        StringBuilder builder = (StringBuilder) take(BUILDERS, index);
+        return (builder != null) ? builder : new StringBuilder(SIZES[index]);
+    }
+
+
+    /**
+     * @param builder a builder obtained from {@link #acquireBuilder(int)}
+     */
+    public void release(StringBuilder builder) {
+        int capacity = builder.capacity();
+        int index = classOf(capacity);
+        // builders that grew far beyond the largest class are dropped
+        if (index != -1 && capacity <= 2 * SIZES[SIZES.length - 1]) {
+            builder.setLength(0);
+            give(BUILDERS, index, builder);
+        }
+    }
+
+
+    /**
+     * @return a snapshot of the pool statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(classes);
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * @return the smallest class holding at least <code>size</code> chars,
+     *  or -1 if <code>size</code> is too large to be pooled
+     */
+    private static int classFor(int size) {
+        for (int i = 0; i < SIZES.length; i++) {
+            if (size <= SIZES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * @return the largest class not larger than <code>size</code>, or -1 if
+     *  <code>size</code> is smaller than the smallest class
+     */
+    private static int classOf(int size) {
+        for (int i = SIZES.length - 1; i >= 0; i--) {
+            if (size >= SIZES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private Object take(int kind, int index) {
+        SizeClass sizeClass = classes[kind][index];
+        Object[] cache = getThreadCache(index);
+        if (cache != null) {
+            int base = slot(kind, index);
+            for (int i = base; i < base + THREAD_CACHE_DEPTH; i++) {
+                Object buffer = cache[i];
+                if (buffer != null) {
+                    cache[i] = null;
+                    sizeClass.hits.increment();
+                    return buffer;
+                }
+            }
+        }
+        Object buffer = sizeClass.shared.poll();
+        if (buffer != null) {
+            sizeClass.hits.increment();
+        } else {
+            sizeClass.misses.increment();
+        }
+        return buffer;
+    }
+
+
+    private void give(int kind, int index, Object buffer) {
+        SizeClass sizeClass = classes[kind][index];
+        sizeClass.returns.increment();
+        Object[] cache = getThreadCache(index);
+        if (cache != null) {
+            int base = slot(kind, index);
+            for (int i = base; i < base + THREAD_CACHE_DEPTH; i++) {
+                if (cache[i] == null) {
+                    cache[i] = buffer;
+                    return;
+                }
+            }
+        }
+        if (!sizeClass.shared.offer(buffer)) {
+            sizeClass.discards.increment();
+        }
+    }
+
+
+    private static int slot(int kind, int index) {
+        return ((kind * THREAD_CACHE_CLASSES) + index) * THREAD_CACHE_DEPTH;
+    }
+
+
+    /**
+     * @return the cache of the current thread, or <code>null</code> if
+     *  buffers of class <code>index</code> aren't cached per thread or the
+     *  current thread is virtual
+     */
+    private Object[] getThreadCache(int index) {
+        if (index >= THREAD_CACHE_CLASSES) {
+            return null;
+        }
+        Object[] cache = threadCaches.get();
+        if (cache == null) {
+            if (isVirtual(Thread.currentThread())) {
+                return null;
+            }
+            cache = new Object[2 * THREAD_CACHE_CLASSES * THREAD_CACHE_DEPTH];
+            threadCaches.set(cache);
+        }
+        return cache;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> getRequestBuffers(FacesContext context) {
+        Map<Object, Object> attributes = context.getAttributes();
+        List<Object> buffers = (List<Object>) attributes.get(REQUEST_BUFFERS_KEY);
+        if (buffers == null) {
+            buffers = new ArrayList<>();
+            attributes.put(REQUEST_BUFFERS_KEY, buffers);
+        }
+        return buffers;
+    }
+
+
+    private static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(thread);
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            // Thread.isVirtual() only exists as of Java 21
+            return MethodHandles.publicLookup().findVirtual(
+                  Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    private static final class SizeClass {
+
+        private final int size;
+        private final ArrayBlockingQueue<Object> shared;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder returns = new LongAdder();
+        private final LongAdder discards = new LongAdder();
+
+        SizeClass(int size, int capacity) {
+            this.size = size;
+            this.shared = new ArrayBlockingQueue<>(capacity);
+        }
+
+    }
+
+
+    /**
+     * <p>Point in time statistics of the pool, summed over all size
+     * classes.</p>
+     */
+    public static final class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long returns;
+        private final long discards;
+        private final long pooledChars;
+
+        private Statistics(SizeClass[][] classes) {
+            long hits = 0;
+            long misses = 0;
+            long returns = 0;
+            long discards = 0;
+            long pooledChars = 0;
+            for (SizeClass[] kind : classes) {
+                for (SizeClass sizeClass : kind) {
+                    hits += sizeClass.hits.sum();
+                    misses += sizeClass.misses.sum();
+                    returns += sizeClass.returns.sum();
+                    discards += sizeClass.discards.sum();
+                    pooledChars += (long) sizeClass.size * sizeClass.shared.size();
+                }
+            }
+            this.hits = hits;
+            this.misses = misses;
+            this.returns = returns;
+            this.discards = discards;
+            this.pooledChars = pooledChars;
+        }
+
+        /**
+         * @return the number of buffers handed out from the pool
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the number of buffers that had to be allocated
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the number of buffers given back
+         */
+        public long getReturns() {
+            return returns;
+        }
+
+        /**
+         * @return the number of buffers given back but dropped because
+         *  their size class was full
+         */
+        public long getDiscards() {
+            return discards;
+        }
+
+        /**
+         * @return the number of chars held by the shared pool, not
+         *  counting the per thread caches
+         */
+        public long getPooledChars() {
+            return pooledChars;
+        }
+
+        @Override
+        public String toString() {
+            return "BufferPool[hits=" + hits
+                   + ", misses=" + misses
+                   + ", returns=" + returns
+                   + ", discards=" + discards
+                   + ", pooledChars=" + pooledChars + ']';
+        }
+
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * <p>A {@link Writer} that encodes straight into a byte buffer and writes
+ * it to an {@link OutputStream}, in place of the
+ * <code>OutputStreamWriter</code> a servlet container wraps around the
+ * response.  Only <code>UTF-8</code> and <code>ISO-8859-1</code> are
+ * supported; ASCII, which makes up nearly all markup, is copied with a
+ * single cast per char.</p>
+ *
+ * <p>Characters that can't be encoded, including unpaired surrogates, are
+ * replaced with <code>'?'</code>, as the JDK encoders do.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public final class ByteEncodingWriter extends Writer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final byte REPLACEMENT = (byte) '?';
+
+    private final OutputStream out;
+
+    private final boolean utf8;
+
+    private final byte[] buf;
+
+    private int count;
+
+    private char highSurrogate;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    /**
+     * @param out the stream to write the encoded bytes to
+     * @param encoding either <code>UTF-8</code> or <code>ISO-8859-1</code>
+     * @throws IllegalArgumentException if <code>encoding</code> is not
+     *  {@link #isSupported(String) supported}
+     */
+    public ByteEncodingWriter(OutputStream out, String encoding) {
+        this(out, encoding, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    /**
+     * @param out the stream to write the encoded bytes to
+     * @param encoding either <code>UTF-8</code> or <code>ISO-8859-1</code>
+     * @param bufferSize the number of bytes buffered before they are
+     *  written to <code>out</code>
+     * @throws IllegalArgumentException if <code>encoding</code> is not
+     *  {@link #isSupported(String) supported}
+     */
+    public ByteEncodingWriter(OutputStream out, String encoding, int bufferSize) {
+        if (!isSupported(encoding) || bufferSize < 4) {
+            throw new IllegalArgumentException(encoding);
+        }
+        this.out = out;
+        this.utf8 = isUtf8(encoding);
+        this.buf = new byte[bufferSize];
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param encoding a character encoding name
+     * @return <code>true</code> if this writer can encode to
+     *  <code>encoding</code>
+     */
+    public static boolean isSupported(String encoding) {
+        return (encoding != null
+                && (isUtf8(encoding)
+                    || "ISO-8859-1".equalsIgnoreCase(encoding)
+                    || "ISO8859_1".equalsIgnoreCase(encoding)
+                    || "latin1".equalsIgnoreCase(encoding)));
+    }
+
+
+    /**
+     * <p>Discard any buffered content that hasn't been written to the
+     * stream yet.</p>
+     */
+    public void reset() {
+        this.count = 0;
+        this.highSurrogate = 0;
+    }
+
+
+    /**
+     * <p>Write the buffered content to the stream without flushing the
+     * stream itself, so a servlet response isn't committed by this call
+     * alone.</p>
+     *
+     * @throws IOException if the stream can't be written to
+     */
+    public void flushBuffer() throws IOException {
+        if (this.count > 0) {
+            this.out.write(this.buf, 0, this.count);
+            this.count = 0;
+        }
+    }
+
+
+    // ----------------------------------------------------- Methods from Writer
+
+
+    @Override
+    public void write(int c) throws IOException {
+        char ch = (char) c;
+        if (ch < 0x80 && this.highSurrogate == 0) {
+            if (this.count == this.buf.length) {
+                this.flushBuffer();
+            }
+            this.buf[this.count++] = (byte) ch;
+        } else {
+            this.encode(ch);
+        }
+    }
+
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if ((off < 0) || (off > cbuf.length) || (len < 0) ||
+            ((off + len) > cbuf.length) || ((off + len) < 0)) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = off + len;
+        while (off < end) {
+            if (this.highSurrogate != 0) {
+                this.encode(cbuf[off++]);
+                continue;
+            }
+            if (this.count == this.buf.length) {
+                this.flushBuffer();
+            }
+            // ASCII fast path, bounded by the space left in the buffer
+            byte[] b = this.buf;
+            int c = this.count;
+            int stop = Math.min(end, off + (b.length - c));
+            while (off < stop) {
+                char ch = cbuf[off];
+                if (ch >= 0x80) {
+                    break;
+                }
+                b[c++] = (byte) ch;
+                off++;
+            }
+            this.count = c;
+            if (off < stop) {
+                this.encode(cbuf[off++]);
+            }
+        }
+    }
+
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if ((off < 0) || (len < 0) || ((off + len) > str.length())) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = off + len;
+        while (off < end) {
+            if (this.highSurrogate != 0) {
+                this.encode(str.charAt(off++));
+                continue;
+            }
+            if (this.count == this.buf.length) {
+                this.flushBuffer();
+            }
+            byte[] b = this.buf;
+            int c = this.count;
+            int stop = Math.min(end, off + (b.length - c));
+            while (off < stop) {
+                char ch = str.charAt(off);
+                if (ch >= 0x80) {
+                    break;
+                }
+                b[c++] = (byte) ch;
+                off++;
+            }
+            this.count = c;
+            if (off < stop) {
+                this.encode(str.charAt(off++));
+            }
+        }
+    }
+
+
+    @Override
+    public void write(String str) throws IOException {
+        this.write(str, 0, str.length());
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        this.flushBuffer();
+        this.out.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (this.highSurrogate != 0) {
+            this.highSurrogate = 0;
+            this.put(REPLACEMENT);
+        }
+        this.flushBuffer();
+        this.out.close();
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static boolean isUtf8(String encoding) {
+        return ("UTF-8".equalsIgnoreCase(encoding) || "UTF8".equalsIgnoreCase(encoding));
+    }
+
+
+    private void put(byte b) throws IOException {
+        if (this.count == this.buf.length) {
+            this.flushBuffer();
+        }
+        this.buf[this.count++] = b;
+    }
+
+
+    private void encode(char ch) throws IOException {
+
+        if (this.highSurrogate != 0) {
+            char high = this.highSurrogate;
+            this.highSurrogate = 0;
+            if (Character.isLowSurrogate(ch)) {
+                if (this.utf8) {
+                    int cp = Character.toCodePoint(high, ch);
+                    if (this.buf.length - this.count < 4) {
+                        this.flushBuffer();
+                    }
+                    this.buf[this.count++] = (byte) (0xf0 | (cp >> 18));
+                    this.buf[this.count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                    this.buf[this.count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                    this.buf[this.count++] = (byte) (0x80 | (cp & 0x3f));
+                } else {
+                    this.put(REPLACEMENT);
+                }
+                return;
+            }
+            this.put(REPLACEMENT);
+        }
+
+        if (ch < 0x80) {
+            this.put((byte) ch);
+        } else if (Character.isHighSurrogate(ch)) {
+            this.highSurrogate = ch;
+        } else if (Character.isLowSurrogate(ch)) {
+            this.put(REPLACEMENT);
+        } else if (!this.utf8) {
+            this.put((ch <= 0xff) ? (byte) ch : REPLACEMENT);
+        } else if (ch < 0x800) {
+            if (this.buf.length - this.count < 2) {
+                this.flushBuffer();
+            }
+            this.buf[this.count++] = (byte) (0xc0 | (ch >> 6));
+            this.buf[this.count++] = (byte) (0x80 | (ch & 0x3f));
+        } else {
+            if (this.buf.length - this.count < 3) {
+                this.flushBuffer();
+            }
+            this.buf[this.count++] = (byte) (0xe0 | (ch >> 12));
+            this.buf[this.count++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+            this.buf[this.count++] = (byte) (0x80 | (ch & 0x3f));
+        }
+
+    }
+
+}
@@ -54,6 +54,20 @@ public class FastStringWriter extends Writer {
         builder = new StringBuilder(initialCapacity);
     }
 
+    /**
+     * <p>Constructs a new <code>FastStringWriter</code> instance
+     * appending to the specified <code>builder</code>, for example one
+     * obtained from the {@link BufferPool}.</p>
+     *
+     * @param builder the buffer to write to
+     */
+    public FastStringWriter(StringBuilder builder) {
+        if (builder == null) {
+            throw new NullPointerException();
+        }
+        this.builder = builder;
+    }
+
     // ----------------------------------------------------- Methods from Writer
 
     /**
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.renderkit;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.faces.FacesException;
+import javax.faces.component.UIComponent;
+
+/**
+ * <p>The work {@link RenderKitUtils#renderPassThruAttributes} does per
+ * attribute that doesn't depend on the component instance, done once per
+ * component class and array of pass-through attributes: the index of every
+ * attribute name, the names as written for HTML and XHTML, and a direct
+ * accessor for every attribute that is a property of the component.</p>
+ *
+ * <p>The attributes set on a component are mapped to a bit mask over the
+ * attribute array, which is then walked in order, so the rendered
+ * attributes keep the alphabetical order of the array.</p>
+ */
+final class AttributePlan {
+
+    // The plans are attached to the component class rather than held in a
+    // map here, which would keep the classes, and the class loaders of
+    // applications that have been undeployed, from being collected
+    private static final ClassValue<ConcurrentMap<Attribute[], AttributePlan>> PLANS =
+          new ClassValue<ConcurrentMap<Attribute[], AttributePlan>>() {
+              @Override
+              protected ConcurrentMap<Attribute[], AttributePlan> computeValue(Class<?> type) {
+                  return new ConcurrentHashMap<>(4);
+              }
+          };
+
+    private static final MethodType GETTER_TYPE =
+          MethodType.methodType(Object.class, UIComponent.class);
+
+    private final Map<String, Integer> indexes;
+    private final Map<String, Integer> eventIndexes;
+    private final String[] htmlNames;
+    private final String[] xhtmlNames;
+    private final MethodHandle[] getters;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private AttributePlan(Class<?> componentClass, Attribute[] attributes) {
+
+        Map<String, Method> readMethods = getReadMethods(componentClass);
+        int length = attributes.length;
+        indexes = new HashMap<>(length * 2);
+        eventIndexes = new HashMap<>();
+        htmlNames = new String[length];
+        xhtmlNames = new String[length];
+        getters = new MethodHandle[length];
+        for (int i = 0; i < length; i++) {
+            String name = attributes[i].getName();
+            indexes.put(name, i);
+            String[] events = attributes[i].getEvents();
+            if (events != null && events.length > 0 && !eventIndexes.containsKey(events[0])) {
+                eventIndexes.put(events[0], i);
+            }
+            htmlNames[i] = RenderKitUtils.prefixAttribute(name, false);
+            xhtmlNames[i] = RenderKitUtils.prefixAttribute(name, true);
+            getters[i] = getGetter(readMethods.get(name));
+        }
+
+    }
+
+
+    // ---------------------------------------------------------- Package Methods
+
+
+    /**
+     * @param componentClass the class of the component being rendered
+     * @param attributes the pass-through attributes of its renderer
+     * @return the plan for rendering <code>attributes</code> of components
+     *  of <code>componentClass</code>
+     */
+    static AttributePlan getPlan(Class<?> componentClass, Attribute[] attributes) {
+
+        ConcurrentMap<Attribute[], AttributePlan> plans = PLANS.get(componentClass);
+        // arrays hash by identity, which is what we want here
+        AttributePlan plan = plans.get(attributes);
+        if (plan == null) {
+            plan = new AttributePlan(componentClass, attributes);
+            plans.putIfAbsent(attributes, plan);
+        }
+        return plan;
+
+    }
+
+
+    /**
+     * @param setAttributes the names of the attributes set on a component
+     * @return a bit mask of the indexes of those attributes that are part
+     *  of this plan
+     */
+    long[] getSetMask(List<String> setAttributes) {
+
+        long[] mask = new long[(htmlNames.length + 63) >>> 6];
+        for (int i = 0, size = setAttributes.size(); i < size; i++) {
+            Integer index = indexes.get(setAttributes.get(i));
+            if (index != null) {
+                mask[index >>> 6] |= 1L << index;
+            }
+        }
+        return mask;
+
+    }
+
+
+    /**
+     * @param mask a mask returned by {@link #getSetMask(List)}
+     * @param from the index to start from
+     * @return the next index set in <code>mask</code>, or <code>-1</code>
+     */
+    static int nextSet(long[] mask, int from) {
+
+        int word = from >>> 6;
+        if (word >= mask.length) {
+            return -1;
+        }
+        long bits = mask[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == mask.length) {
+                return -1;
+            }
+            bits = mask[word];
+        }
+
+    }
+
+
+    /**
+     * @param isXhtml <code>true</code> if the response is XHTML
+     * @return the attribute names as they are to be written, by index
+     */
+    String[] getNames(boolean isXhtml) {
+        return isXhtml ? xhtmlNames : htmlNames;
+    }
+
+
+    /**
+     * @param event a behavior event name
+     * @return the index of the attribute for <code>event</code>, or
+     *  <code>-1</code> if there is none
+     */
+    int getEventIndex(String event) {
+        Integer index = eventIndexes.get(event);
+        return (index != null) ? index : -1;
+    }
+
+
+    /**
+     * @param component the component being rendered
+     * @param attrMap the attributes of <code>component</code>
+     * @param name the name of the attribute at <code>index</code>
+     * @param index the index of the attribute
+     * @return the value of the attribute, as <code>attrMap</code> would
+     *  return it
+     */
+    Object getValue(UIComponent component, Map<String, Object> attrMap, String name, int index) {
+
+        MethodHandle getter = getters[index];
+        if (getter == null) {
+            return attrMap.get(name);
+        }
+        try {
+            return (Object) getter.invokeExact(component);
+        } catch (Throwable t) {
+            // as the attributes map does for exceptions thrown by getters
+            throw new FacesException(t);
+        }
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private static Map<String, Method> getReadMethods(Class<?> componentClass) {
+
+        Map<String, Method> readMethods = new HashMap<>();
+        try {
+            for (PropertyDescriptor pd : Introspector.getBeanInfo(componentClass).getPropertyDescriptors()) {
+                Method readMethod = pd.getReadMethod();
+                if (readMethod != null
+                      && Modifier.isPublic(readMethod.getDeclaringClass().getModifiers())) {
+                    readMethods.put(pd.getName(), readMethod);
+                }
+            }
+        } catch (IntrospectionException e) {
+            // fall back to the attributes map for everything
+        }
+        return readMethods;
+
+    }
+
+
+    private static MethodHandle getGetter(Method readMethod) {
+
+        if (readMethod == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(readMethod).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+
+    }
+
+}
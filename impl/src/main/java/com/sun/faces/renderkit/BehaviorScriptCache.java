@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.renderkit;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.faces.component.ActionSource;
+import javax.faces.component.ActionSource2;
+import javax.faces.component.UIComponent;
+import javax.faces.component.behavior.AjaxBehavior;
+import javax.faces.component.behavior.ClientBehavior;
+import javax.faces.component.behavior.ClientBehaviorContext;
+import javax.faces.component.html.HtmlCommandScript;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.render.ClientBehaviorRenderer;
+import javax.faces.render.RenderKit;
+
+import com.sun.faces.renderkit.html_basic.AjaxBehaviorRenderer;
+
+/**
+ * <p>Handler scripts rendered by {@link RenderKitUtils} for components whose
+ * behaviors are all plain <code>f:ajax</code> behaviors without value
+ * expressions, and which only use the <code>@this</code>,
+ * <code>@form</code>, <code>@all</code> and <code>@none</code> keywords.</p>
+ *
+ * <p>Such a script references the element through <code>this</code> and
+ * depends only on the behavior configuration and the event, so it can be
+ * shared by every component rendered with the same configuration.  The one
+ * exception is the client id the <code>AjaxBehaviorRenderer</code> adds to
+ * <code>execute</code> for select components rendering the
+ * <code>incExec</code> parameter, which is substituted when the script is
+ * written.</p>
+ *
+ * <p>The scripts are cached per application.  A user handler may still
+ * differ per row of a table, so the least recently used scripts are
+ * evicted once 1024 scripts are cached.</p>
+ */
+final class BehaviorScriptCache {
+
+    /**
+     * The application scoped attribute the instance is stored under.
+     */
+    private static final String APPLICATION_KEY = BehaviorScriptCache.class.getName();
+
+    private static final int MAX_TEMPLATES = 1024;
+
+    // Fields of each behavior that are part of the key
+    private static final int BEHAVIOR_FIELDS = 6;
+
+    private static final String[] BEHAVIOR_PROPERTIES = {
+          "execute", "render", "onevent", "onerror", "delay", "disabled", "resetValues"
+    };
+
+
+    private final Map<Key, Template> templates =
+          new LinkedHashMap<Key, Template>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<Key, Template> eldest) {
+                  return size() > MAX_TEMPLATES;
+              }
+          };
+
+
+    private BehaviorScriptCache() {
+    }
+
+
+    // ---------------------------------------------------------- Static Methods
+
+
+    /**
+     * @return the key of the handler script for the specified arguments, or
+     *  <code>null</code> if the script depends on more than the behavior
+     *  configuration and can't be cached
+     */
+    static Key getKey(FacesContext context,
+                      UIComponent component,
+                      List<ClientBehavior> behaviors,
+                      Collection<ClientBehaviorContext.Parameter> params,
+                      String behaviorEventName,
+                      String userHandler,
+                      boolean needsSubmit,
+                      boolean includeExec) {
+
+        if (component instanceof HtmlCommandScript) {
+            return null;
+        }
+        if (includeExec) {
+            if (params.size() != 1 || !"incExec".equals(params.iterator().next().getName())) {
+                return null;
+            }
+        } else if (!params.isEmpty()) {
+            return null;
+        }
+
+        RenderKit renderKit = context.getRenderKit();
+        if (renderKit == null) {
+            return null;
+        }
+
+        int size = behaviors.size();
+        Object[] parts = new Object[4 + (size * BEHAVIOR_FIELDS)];
+        parts[0] = behaviorEventName;
+        parts[1] = userHandler;
+        parts[2] = ((needsSubmit ? 1 : 0)
+                    | (includeExec ? 2 : 0)
+                    | ((component instanceof ActionSource || component instanceof ActionSource2) ? 4 : 0));
+        parts[3] = size;
+
+        int idx = 4;
+        for (ClientBehavior behavior : behaviors) {
+            if (behavior.getClass() != AjaxBehavior.class) {
+                return null;
+            }
+            AjaxBehavior ajaxBehavior = (AjaxBehavior) behavior;
+            for (String property : BEHAVIOR_PROPERTIES) {
+                if (ajaxBehavior.getValueExpression(property) != null) {
+                    return null;
+                }
+            }
+            // disabled behaviors fall back to the submit script, which
+            // contains the form and component ids
+            if (ajaxBehavior.isDisabled()) {
+                return null;
+            }
+            ClientBehaviorRenderer renderer =
+                  renderKit.getClientBehaviorRenderer(ajaxBehavior.getRendererType());
+            if (renderer == null || renderer.getClass() != AjaxBehaviorRenderer.class) {
+                return null;
+            }
+            Collection<String> execute = ajaxBehavior.getExecute();
+            Collection<String> render = ajaxBehavior.getRender();
+            if (!isKeywordsOnly(execute) || !isKeywordsOnly(render)) {
+                return null;
+            }
+            parts[idx++] = execute;
+            parts[idx++] = render;
+            parts[idx++] = ajaxBehavior.getOnevent();
+            parts[idx++] = ajaxBehavior.getOnerror();
+            parts[idx++] = ajaxBehavior.getDelay();
+            parts[idx++] = (ajaxBehavior.isResetValuesSet() ? ajaxBehavior.isResetValues() : null);
+        }
+
+        return new Key(parts);
+
+    }
+
+
+    /**
+     * @return the cached handler script for <code>key</code> and the
+     *  specified component, or <code>null</code> if there is none yet
+     */
+    static String getHandler(FacesContext context, UIComponent component, Key key) {
+
+        Template template = getInstance(context).get(key);
+        if (template == null) {
+            return null;
+        }
+        if (template.suffix == null) {
+            return template.prefix;
+        }
+        return template.prefix.concat(component.getClientId(context)).concat(template.suffix);
+
+    }
+
+
+    /**
+     * <p>Cache the handler script rendered for <code>key</code> and the
+     * specified component.</p>
+     */
+    static void putHandler(FacesContext context, UIComponent component, Key key, String handler) {
+
+        Template template;
+        if (key.isIncludeExec()) {
+            // the client id has been appended to execute; it must appear
+            // exactly once to know where to substitute it
+            String clientId = component.getClientId(context);
+            int start = handler.indexOf(clientId);
+            if (clientId.isEmpty() || start < 0
+                || clientId.indexOf('\'') >= 0 || clientId.indexOf('\\') >= 0
+                || handler.indexOf(clientId, start + 1) >= 0) {
+                return;
+            }
+            template = new Template(handler.substring(0, start),
+                                    handler.substring(start + clientId.length()));
+        } else {
+            template = new Template(handler, null);
+        }
+
+        getInstance(context).put(key, template);
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * @return the cache of the current application
+     */
+    private static BehaviorScriptCache getInstance(FacesContext context) {
+
+        ExternalContext extContext = context.getExternalContext();
+        Map<String, Object> appMap = extContext.getApplicationMap();
+        BehaviorScriptCache cache = (BehaviorScriptCache) appMap.get(APPLICATION_KEY);
+        if (cache == null) {
+            synchronized (extContext.getContext()) {
+                cache = (BehaviorScriptCache) appMap.get(APPLICATION_KEY);
+                if (cache == null) {
+                    cache = new BehaviorScriptCache();
+                    appMap.put(APPLICATION_KEY, cache);
+                }
+            }
+        }
+        return cache;
+
+    }
+
+
+    private synchronized Template get(Key key) {
+        return templates.get(key);
+    }
+
+
+    private synchronized void put(Key key, Template template) {
+        templates.put(key, template);
+    }
+
+
+    private static boolean isKeywordsOnly(Collection<String> ids) {
+
+        if (ids == null) {
+            return true;
+        }
+        for (String id : ids) {
+            if (!(id.equals("@all") || id.equals("@none")
+                  || id.equals("@form") || id.equals("@this")
+                  || id.trim().length() == 0)) {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+
+    // ----------------------------------------------------------- Inner Classes
+
+
+    /**
+     * <p>The behavior configuration, event and user handler a script was
+     * rendered for.  The <code>execute</code> and <code>render</code>
+     * collections of an <code>AjaxBehavior</code> are unmodifiable copies,
+     * so they can be held on to.</p>
+     */
+    static final class Key {
+
+        private final Object[] parts;
+        private final int hash;
+
+        private Key(Object[] parts) {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        boolean isIncludeExec() {
+            return ((((Integer) parts[2]) & 2) != 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            if (hash != other.hash || parts.length != other.parts.length) {
+                return false;
+            }
+            for (int i = 0; i < parts.length; i++) {
+                if (!Objects.equals(parts[i], other.parts[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    } // END Key
+
+
+    private static final class Template {
+
+        private final String prefix;
+        private final String suffix;
+
+        private Template(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+    } // END Template
+
+}
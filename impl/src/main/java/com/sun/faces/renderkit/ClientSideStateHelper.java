@@ -44,6 +44,7 @@ import javax.faces.context.ResponseWriter;
 
 import com.sun.faces.RIConstants;
 import com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter;
+import com.sun.faces.io.BufferPool;
 import com.sun.faces.util.DebugObjectOutputStream;
 import com.sun.faces.util.DebugUtil;
 import com.sun.faces.util.FacesLogger;
@@ -162,9 +163,14 @@ public class ClientSideStateHelper extends StateHelper {
                 String viewStateId = Util.getViewStateId(ctx);
                 writer.writeAttribute("id", viewStateId, null);
             }
-            StringBuilder stateBuilder = new StringBuilder();
-            doWriteState(ctx, state, new StringBuilderWriter(stateBuilder));
-            writer.writeAttribute("value", stateBuilder.toString(), null);
+            BufferPool pool = BufferPool.getInstance();
+            StringBuilder stateBuilder = pool.acquireBuilder(csBuffSize);
+            try {
+                doWriteState(ctx, state, new StringBuilderWriter(stateBuilder));
+                writer.writeAttribute("value", stateBuilder.toString(), null);
+            } finally {
+                pool.release(stateBuilder);
+            }
             if (webConfig.isOptionEnabled(AutoCompleteOffOnViewState)) {
                 writer.writeAttribute("autocomplete", "off", null);
             }
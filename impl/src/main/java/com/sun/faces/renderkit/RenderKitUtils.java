@@ -684,9 +684,10 @@ public class RenderKitUtils {
 
 
     /**
-     * <p>For each attribute in <code>setAttributes</code>, perform a binary
-     * search against the array of <code>knownAttributes</code>  If a match is found
-     * and the value is not <code>null</code>, render the attribute.
+     * <p>For each attribute in <code>setAttributes</code> that is one of the
+     * <code>knownAttributes</code>, render the attribute if its value is not
+     * <code>null</code>.  The lookups are done through the
+     * {@link AttributePlan} of the component class.
      * @param context the {@link FacesContext} of the current request
      * @param writer the current writer
      * @param component the component whose attributes we're rendering
@@ -710,40 +711,35 @@ public class RenderKitUtils {
         String behaviorEventName = getSingleBehaviorEventName(behaviors);
         boolean renderedBehavior = false;
 
-        Collections.sort(setAttributes);
         boolean isXhtml =
               RIConstants.XHTML_CONTENT_TYPE.equals(writer.getContentType());
         Map<String, Object> attrMap = component.getAttributes();
-        for (String name : setAttributes) {
-
-            // Note that this search can be optimized by switching from
-            // an array to a Map<String, Attribute>.  This would change
-            // the search time from O(log n) to O(1).
-            int index = Arrays.binarySearch(knownAttributes, Attribute.attr(name));
-            if (index >= 0) {
-                Object value =
-                      attrMap.get(name);
-                if (value != null && shouldRenderAttribute(value)) {
-
-                    Attribute attr = knownAttributes[index];
-
-                    if (isBehaviorEventAttribute(attr, behaviorEventName)) {
-                        renderHandler(context,
-                                      component,
-                                      null,
-                                      name,
-                                      value,
-                                      behaviorEventName,
-                                      null,
-                                      false,
-                                      false);
-
-                        renderedBehavior = true;
-                    } else {
-                        writer.writeAttribute(prefixAttribute(name, isXhtml),
-                                              value,
-                                              name);
-                    }
+        AttributePlan plan = AttributePlan.getPlan(component.getClass(), knownAttributes);
+        String[] names = plan.getNames(isXhtml);
+        long[] setMask = plan.getSetMask(setAttributes);
+        for (int i = AttributePlan.nextSet(setMask, 0); i != -1; i = AttributePlan.nextSet(setMask, i + 1)) {
+
+            Attribute attr = knownAttributes[i];
+            String name = attr.getName();
+            Object value = plan.getValue(component, attrMap, name, i);
+            if (value != null && shouldRenderAttribute(value)) {
+
+                if (isBehaviorEventAttribute(attr, behaviorEventName)) {
+                    renderHandler(context,
+                                  component,
+                                  null,
+                                  name,
+                                  value,
+                                  behaviorEventName,
+                                  null,
+                                  false,
+                                  false);
+
+                    renderedBehavior = true;
+                } else {
+                    writer.writeAttribute(names[i],
+                                          value,
+                                          name);
                 }
             }
         }
@@ -752,28 +748,18 @@ public class RenderKitUtils {
         // attribute rendering.  Need to manually render it out now.
         if ((behaviorEventName != null) && !renderedBehavior) {
 
-            // Note that we can optimize this search by providing
-            // an event name -> Attribute inverse look up map.
-            // This would change the search time from O(n) to O(1).
-            for (int i = 0; i < knownAttributes.length; i++) {
-                Attribute attr = knownAttributes[i];
-                String[] events = attr.getEvents();
-                if ((events != null) &&
-                    (events.length > 0) &&
-                    (behaviorEventName.equals(events[0]))) {
-
-                        renderHandler(context, 
-                                      component,
-                                      null,
-                                      attr.getName(),
-                                      null,
-                                      behaviorEventName,
-                                      null,
-                                      false,
-                                      false);
-                }
+            int index = plan.getEventIndex(behaviorEventName);
+            if (index != -1) {
+                renderHandler(context,
+                              component,
+                              null,
+                              knownAttributes[index].getName(),
+                              null,
+                              behaviorEventName,
+                              null,
+                              false,
+                              false);
             }
- 
 
         }
     }
@@ -1837,7 +1823,30 @@ public class RenderKitUtils {
             params = Collections.emptyList();
         }
         String handler = null;
-        switch (getHandlerType(behaviors, params, userHandler, needsSubmit, includeExec)) {
+        HandlerType handlerType = getHandlerType(behaviors, params, userHandler, needsSubmit, includeExec);
+
+        // Scripts of static Ajax behaviors are the same for every component
+        // with the same configuration, see BehaviorScriptCache
+        BehaviorScriptCache.Key cacheKey = null;
+        if (handlerType == HandlerType.SINGLE_BEHAVIOR_ONLY || handlerType == HandlerType.CHAIN) {
+            cacheKey = BehaviorScriptCache.getKey(context,
+                                                  component,
+                                                  behaviors,
+                                                  params,
+                                                  behaviorEventName,
+                                                  userHandler,
+                                                  needsSubmit,
+                                                  includeExec);
+            if (cacheKey != null) {
+                handler = BehaviorScriptCache.getHandler(context, component, cacheKey);
+                if (handler != null) {
+                    writer.writeAttribute(handlerName, handler, null);
+                    return;
+                }
+            }
+        }
+
+        switch (handlerType) {
         
             case USER_HANDLER_ONLY:
                 handler = userHandler;
@@ -1875,6 +1884,9 @@ public class RenderKitUtils {
                 assert(false);
         }
 
+        if (cacheKey != null && handler != null) {
+            BehaviorScriptCache.putHandler(context, component, cacheKey, handler);
+        }
 
         writer.writeAttribute(handlerName, handler, null);
     }
@@ -16,14 +16,24 @@
 
 package com.sun.faces.renderkit.html_basic;
 
+import com.sun.faces.application.resource.CombinedResource;
+import com.sun.faces.application.view.EarlyFlush;
 import com.sun.faces.config.FaceletsConfiguration;
 import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter;
+import com.sun.faces.config.WebConfiguration.WebContextInitParameter;
 import com.sun.faces.renderkit.RenderKitUtils;
 import com.sun.faces.renderkit.Attribute;
 import com.sun.faces.renderkit.AttributeManager;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
+import javax.faces.application.ProjectStage;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
 import javax.faces.component.UIComponent;
 import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
@@ -41,6 +51,10 @@ public class HeadRenderer extends Renderer {
     private static final Attribute[] HEAD_ATTRIBUTES =
           AttributeManager.getAttributes(AttributeManager.Key.OUTPUTHEAD);
 
+    private static final String SCRIPT_RENDERER_TYPE = "javax.faces.resource.Script";
+
+    private static final String STYLESHEET_RENDERER_TYPE = "javax.faces.resource.Stylesheet";
+
     @Override
     public void decode(FacesContext context, UIComponent component) {
         // no-op
@@ -49,6 +63,7 @@ public class HeadRenderer extends Renderer {
     @Override
     public void encodeBegin(FacesContext context, UIComponent component)
           throws IOException {
+        encodePreloadLinks(context);
         ResponseWriter writer = context.getResponseWriter();
         writer.startElement("head", component);
         RenderKitUtils.renderPassThruAttributes(context,
@@ -75,6 +90,11 @@ public class HeadRenderer extends Renderer {
         ResponseWriter writer = context.getResponseWriter();
         encodeHeadResources(context);
         writer.endElement("head");
+
+        // let the browser fetch the head resources while the body renders
+        if (EarlyFlush.isEnabled(context)) {
+            EarlyFlush.flush(context);
+        }
     }
 
 
@@ -85,9 +105,200 @@ public class HeadRenderer extends Renderer {
     throws IOException {
 
         UIViewRoot viewRoot = context.getViewRoot();
-        for (UIComponent resource : viewRoot.getComponentResources(context, "head")) {
-            resource.encodeAll(context);
+        WebConfiguration webConfig = WebConfiguration.getInstance(context.getExternalContext());
+        if (!isCombining(context, webConfig)) {
+            for (UIComponent resource : viewRoot.getComponentResources(context, "head")) {
+                resource.encodeAll(context);
+            }
+            return;
+        }
+
+        // consecutive scripts or stylesheets are rendered as one combined
+        // resource, anything else ends the run so the order is preserved
+        List<UIComponent> components = new ArrayList<>();
+        List<Resource> resources = new ArrayList<>();
+        for (UIComponent component : viewRoot.getComponentResources(context, "head")) {
+            Resource resource = getCombinableResource(context, webConfig, component);
+            if (resource == null
+                || (!components.isEmpty()
+                    && (!component.getRendererType().equals(components.get(0).getRendererType())
+                        || resources.contains(resource)))) {
+                encodeCombinedResources(context, components, resources);
+            }
+            if (resource == null) {
+                component.encodeAll(context);
+            } else {
+                components.add(component);
+                resources.add(resource);
+            }
+        }
+        encodeCombinedResources(context, components, resources);
+
+    }
+
+
+    /**
+     * <p>Adds a preload header for each script and stylesheet that will be
+     * rendered by {@link #encodeHeadResources(FacesContext)}, or for the
+     * combined resources they will be rendered as.</p>
+     */
+    private void encodePreloadLinks(FacesContext context) {
+
+        PreloadLinks links = PreloadLinks.create(context);
+        if (links == null) {
+            return;
+        }
+
+        WebConfiguration webConfig = WebConfiguration.getInstance(context.getExternalContext());
+        boolean combining = isCombining(context, webConfig);
+        List<UIComponent> components = new ArrayList<>();
+        List<Resource> resources = new ArrayList<>();
+        for (UIComponent component : context.getViewRoot().getComponentResources(context, "head")) {
+            Resource resource = getCombinableResource(context, webConfig, component);
+            if (!combining) {
+                if (resource != null) {
+                    links.add(resource, getDestination(component));
+                }
+                continue;
+            }
+            if (resource == null
+                || (!components.isEmpty()
+                    && (!component.getRendererType().equals(components.get(0).getRendererType())
+                        || resources.contains(resource)))) {
+                addPreloadLinks(context, links, components, resources);
+            }
+            if (resource != null) {
+                components.add(component);
+                resources.add(resource);
+            }
+        }
+        addPreloadLinks(context, links, components, resources);
+        links.sendEarlyHints();
+
+    }
+
+
+    private void addPreloadLinks(FacesContext context,
+                                 PreloadLinks links,
+                                 List<UIComponent> components,
+                                 List<Resource> resources) {
+
+        if (components.isEmpty()) {
+            return;
+        }
+
+        String as = getDestination(components.get(0));
+        Resource combined = ((resources.size() > 1) ? CombinedResource.combine(context, resources) : null);
+        if (combined == null) {
+            for (Resource resource : resources) {
+                links.add(resource, as);
+            }
+        } else {
+            links.add(combined, as);
+        }
+
+        components.clear();
+        resources.clear();
+
+    }
+
+
+    /**
+     * @return the preload destination of the resource rendered by
+     *  <code>component</code>
+     */
+    private static String getDestination(UIComponent component) {
+        return (SCRIPT_RENDERER_TYPE.equals(component.getRendererType()) ? "script" : "style");
+    }
+
+
+    private static boolean isCombining(FacesContext context, WebConfiguration webConfig) {
+        return (webConfig.isOptionEnabled(BooleanWebContextInitParameter.CombineHeadResources)
+                && context.isProjectStage(ProjectStage.Production));
+    }
+
+
+    /**
+     * @return the resource referenced by <code>component</code> if it is
+     *  an <code>h:outputScript</code> or <code>h:outputStylesheet</code>
+     *  that only renders a reference to a resource that hasn't been rendered
+     *  yet, otherwise <code>null</code>.  Pass-through attributes would have
+     *  to be rendered on the combined element, so a component with any of
+     *  them is rendered on its own.
+     */
+    private Resource getCombinableResource(FacesContext context,
+                                           WebConfiguration webConfig,
+                                           UIComponent component) {
+
+        String rendererType = component.getRendererType();
+        if (!component.isRendered()
+            || component.getChildCount() > 0
+            || !component.getPassThroughAttributes(false).isEmpty()
+            || !(SCRIPT_RENDERER_TYPE.equals(rendererType) || STYLESHEET_RENDERER_TYPE.equals(rendererType))) {
+            return null;
+        }
+        Renderer renderer = context.getRenderKit().getRenderer(component.getFamily(), rendererType);
+        if (renderer == null
+            || (renderer.getClass() != ScriptRenderer.class && renderer.getClass() != StylesheetRenderer.class)) {
+            return null;
+        }
+
+        Map<String,Object> attributes = component.getAttributes();
+        String name = (String) attributes.get("name");
+        String library = (String) attributes.get("library");
+        if (name == null
+            || name.indexOf('?') != -1
+            || attributes.get("media") != null
+            || attributes.get(ScriptStyleBaseRenderer.COMP_KEY) != null
+            || (library == null
+                && name.startsWith(webConfig.getOptionValue(WebContextInitParameter.WebAppContractsDirectory)))) {
+            return null;
+        }
+
+        ResourceHandler resourceHandler = context.getApplication().getResourceHandler();
+        if (resourceHandler.isResourceRendered(context, name, library)) {
+            return null;
         }
+        return ScriptStyleBaseRenderer.resolveResource(context, name, library);
+
+    }
+
+
+    private void encodeCombinedResources(FacesContext context,
+                                         List<UIComponent> components,
+                                         List<Resource> resources)
+    throws IOException {
+
+        if (components.isEmpty()) {
+            return;
+        }
+
+        Resource combined = ((resources.size() > 1) ? CombinedResource.combine(context, resources) : null);
+        if (combined == null) {
+            for (UIComponent component : components) {
+                component.encodeAll(context);
+            }
+        } else {
+            // none of the members has attributes of its own to render
+            UIComponent component = components.get(0);
+            ScriptStyleBaseRenderer renderer = (ScriptStyleBaseRenderer)
+                  context.getRenderKit().getRenderer(component.getFamily(), component.getRendererType());
+            ResponseWriter writer = context.getResponseWriter();
+            renderer.startExternalElement(writer, component);
+            renderer.endExternalElement(writer,
+                                        component,
+                                        context.getExternalContext().encodeResourceURL(combined.getRequestPath()));
+            ResourceHandler resourceHandler = context.getApplication().getResourceHandler();
+            for (UIComponent member : components) {
+                Map<String,Object> attributes = member.getAttributes();
+                resourceHandler.markResourceRendered(context,
+                                                     (String) attributes.get("name"),
+                                                     (String) attributes.get("library"));
+            }
+        }
+
+        components.clear();
+        resources.clear();
 
     }
     
@@ -28,12 +28,15 @@ import javax.faces.context.FacesContext;
 import javax.faces.context.ResponseWriter;
 
 import com.sun.faces.RIConstants;
+import com.sun.faces.application.view.EarlyFlush;
 import com.sun.faces.config.WebConfiguration;
 import com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter;
+import com.sun.faces.io.BufferPool;
 import com.sun.faces.io.FastStringWriter;
 import com.sun.faces.util.HtmlUtils;
 import com.sun.faces.util.MessageUtils;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import javax.el.ValueExpression;
 import javax.faces.context.ExternalContext;
@@ -133,16 +136,16 @@ public class HtmlResponseWriter extends ResponseWriter {
     // Internal buffer used when outputting properly escaped information
     // using HtmlUtils class.
     //
-    private char[] buffer = new char[1028];
+    private char[] buffer;
 
     // Internal buffer used when outputting properly escaped CData information.
     //
     private final static int cdataBufferSize = 1024;
-    private char[] cdataBuffer = new char[cdataBufferSize];
+    private char[] cdataBuffer;
     private int cdataBufferLength = 0;
     // Secondary cdata buffer, used for writeText
     private final static int cdataTextBufferSize = 128;
-    private char[] cdataTextBuffer = new char[cdataTextBufferSize];
+    private char[] cdataTextBuffer;
     
     private Map<String, Object> passthroughAttributes;
 
@@ -150,12 +153,20 @@ public class HtmlResponseWriter extends ResponseWriter {
     // values passed to the writer as String to reduce the overhead
     // of String.charAt().  This buffer will be grown, if necessary, to
     // accomodate larger values.
-    private char[] textBuffer = new char[128];
+    private char[] textBuffer;
 
     private char[] charHolder = new char[1];
 
     private LinkedList<String> elementNames;
 
+    // Client ids of the components the response is flushed after, null
+    // unless early flushing is enabled
+    private Set<String> earlyFlushIds;
+
+    // Number of elements open since the start of the first element of a
+    // component the response is to be flushed after
+    private int earlyFlushDepth;
+
     private static final String BREAKCDATA = "]]><![CDATA[";
     private static final char[] ESCAPEDSINGLEBRACKET = ("]"+BREAKCDATA).toCharArray();
     private static final char[] ESCAPEDLT= ("&lt;"+BREAKCDATA).toCharArray();
@@ -280,7 +291,20 @@ public class HtmlResponseWriter extends ResponseWriter {
         this.isScriptInAttributeValueEnabled = isScriptInAttributeValueEnabled;
         this.disableUnicodeEscaping = disableUnicodeEscaping;
 
-        this.attributesBuffer = new FastStringWriter(128);
+        // the buffers belong to the request and are reused by the
+        // next one once the FacesContext has been released
+        FacesContext context = FacesContext.getCurrentInstance();
+        BufferPool pool = BufferPool.getInstance();
+        this.buffer = pool.getChars(context, 1024);
+        this.cdataBuffer = pool.getChars(context, cdataBufferSize);
+        this.cdataTextBuffer = pool.getChars(context, cdataTextBufferSize);
+        this.textBuffer = pool.getChars(context, 128);
+        this.attributesBuffer = new FastStringWriter(pool.getBuilder(context, 128));
+
+        if (context != null) {
+            Set<String> ids = EarlyFlush.getComponentIds(context);
+            this.earlyFlushIds = (ids != null && !ids.isEmpty()) ? ids : null;
+        }
 
         // Check the character encoding
         if (!HtmlUtils.validateEncoding(encoding)) {
@@ -565,6 +589,7 @@ public class HtmlResponseWriter extends ResponseWriter {
                 writer.write(" />");
                 closeStart = false;
                 popElementName(name);
+                flushEarlyIfNecessary();
                 return;
             }
             flushAttributes();
@@ -575,6 +600,7 @@ public class HtmlResponseWriter extends ResponseWriter {
         writer.write("</");
         writer.write(popElementName(name));
         writer.write('>');
+        flushEarlyIfNecessary();
 
     }
 
@@ -667,6 +693,15 @@ public class HtmlResponseWriter extends ResponseWriter {
         
         closeStart = true;
 
+        if (earlyFlushIds != null) {
+            if (earlyFlushDepth > 0) {
+                earlyFlushDepth++;
+            } else if (componentForElement != null
+                       && earlyFlushIds.contains(componentForElement.getClientId(FacesContext.getCurrentInstance()))) {
+                earlyFlushDepth = 1;
+            }
+        }
+
     }
 
 
@@ -1102,12 +1137,28 @@ public class HtmlResponseWriter extends ResponseWriter {
 
     private void ensureTextBufferCapacity(String source) {
         int len = source.length();
-        if (textBuffer.length < len) {
-            textBuffer = new char[len * 2];
+        if (textBuffer.length < len || buffer.length < len) {
+            FacesContext context = FacesContext.getCurrentInstance();
+            if (textBuffer.length < len) {
+                textBuffer = BufferPool.getInstance().getChars(context, len * 2);
+            }
+            if (buffer.length < len) {
+                buffer = BufferPool.getInstance().getChars(context, len * 2);
+            }
         }
-        if (buffer.length < len) {
-            buffer = new char[len * 2];
+    }
+
+    /**
+     * Flush the response if the last element of a component marked for
+     * early flushing has just been ended.
+     * @throws IOException if an error occurs flushing the response
+     */
+    private void flushEarlyIfNecessary() throws IOException {
+
+        if (earlyFlushDepth > 0 && --earlyFlushDepth == 0) {
+            EarlyFlush.flush(FacesContext.getCurrentInstance());
         }
+
     }
 
     /**
@@ -1139,7 +1190,8 @@ public class HtmlResponseWriter extends ResponseWriter {
                 }
                 origWriter = writer;
                 if (scriptBuffer == null) {
-                    scriptBuffer = new FastStringWriter(1024);
+                    scriptBuffer = new FastStringWriter(BufferPool.getInstance()
+                          .getBuilder(FacesContext.getCurrentInstance(), 1024));
                 }
                 scriptBuffer.reset();
                 writer = scriptBuffer;
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.renderkit.html_basic;
+
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.EnablePreloadHeaders;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.SendEarlyHints;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.application.Resource;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.servlet.ServletResponseWrapper;
+
+import com.sun.faces.config.WebConfiguration;
+import com.sun.faces.util.FacesLogger;
+
+/**
+ * <p>The <code>Link: rel=preload</code> response headers for the scripts
+ * and stylesheets rendered by <code>h:head</code>, enabled with the
+ * <code>com.sun.faces.enablePreloadHeaders</code> context-param.  The
+ * headers tell the browser about the resources before it has parsed the
+ * head, and, on containers whose response offers a
+ * <code>sendEarlyHints()</code> method, can be sent ahead of the response
+ * in a <code>103 Early Hints</code> response if
+ * <code>com.sun.faces.sendEarlyHints</code> is <code>true</code> as
+ * well.</p>
+ */
+final class PreloadLinks {
+
+    private static final Logger LOGGER = FacesLogger.RENDERKIT.getLogger();
+
+    // Keeps the response headers within the limits of proxies
+    private static final int MAX_LINKS = 32;
+
+    private static final String EARLY_HINTS_METHOD = "sendEarlyHints";
+
+    private static final ConcurrentMap<Class<?>,Optional<Method>> EARLY_HINTS_METHODS =
+          new ConcurrentHashMap<>();
+
+    private final FacesContext context;
+    private int count;
+
+
+    // ------------------------------------------------------------ Constructors
+
+
+    private PreloadLinks(FacesContext context) {
+
+        this.context = context;
+
+    }
+
+
+    // ---------------------------------------------------------- Public Methods
+
+
+    /**
+     * @param context the {@link FacesContext} for the current request
+     * @return the preload links of the current response, or
+     *  <code>null</code> if they're disabled, or can't be sent because
+     *  this is a partial request or the response has been committed
+     */
+    static PreloadLinks create(FacesContext context) {
+
+        WebConfiguration webConfig = WebConfiguration.getInstance(context.getExternalContext());
+        if (!webConfig.isOptionEnabled(EnablePreloadHeaders)
+            || context.getPartialViewContext().isPartialRequest()
+            || context.getExternalContext().isResponseCommitted()) {
+            return null;
+        }
+        return new PreloadLinks(context);
+
+    }
+
+
+    /**
+     * <p>Adds a preload link for <code>resource</code>, using the same URL
+     * the resource is rendered with.</p>
+     *
+     * @param resource the resource to preload
+     * @param as the destination of the resource, <code>script</code> or
+     *  <code>style</code>
+     */
+    void add(Resource resource, String as) {
+
+        if (count >= MAX_LINKS) {
+            return;
+        }
+        ExternalContext extContext = context.getExternalContext();
+        String url = extContext.encodeResourceURL(resource.getRequestPath());
+        if (!isValidTarget(url)) {
+            return;
+        }
+        extContext.addResponseHeader("Link", '<' + url + ">; rel=preload; as=" + as);
+        count++;
+
+    }
+
+
+    /**
+     * <p>Sends the links added so far in a <code>103 Early Hints</code>
+     * response, if enabled and supported by the container.</p>
+     */
+    void sendEarlyHints() {
+
+        if (count == 0) {
+            return;
+        }
+        ExternalContext extContext = context.getExternalContext();
+        WebConfiguration webConfig = WebConfiguration.getInstance(extContext);
+        if (!webConfig.isOptionEnabled(SendEarlyHints)) {
+            return;
+        }
+
+        Object response = extContext.getResponse();
+        while (response instanceof ServletResponseWrapper) {
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        Optional<Method> method =
+              EARLY_HINTS_METHODS.computeIfAbsent(response.getClass(), PreloadLinks::findEarlyHintsMethod);
+        if (!method.isPresent()) {
+            return;
+        }
+        try {
+            method.get().invoke(response);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Unable to send early hints", e);
+            }
+        }
+
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * @return <code>true</code> if <code>url</code> can be written between
+     *  the angle brackets of a <code>Link</code> header as is
+     */
+    private static boolean isValidTarget(String url) {
+
+        for (int i = 0, len = url.length(); i < len; i++) {
+            char c = url.charAt(i);
+            if (c <= ' ' || c >= 0x7f || c == '<' || c == '>') {
+                return false;
+            }
+        }
+        return true;
+
+    }
+
+
+    private static Optional<Method> findEarlyHintsMethod(Class<?> responseClass) {
+
+        try {
+            return Optional.of(responseClass.getMethod(EARLY_HINTS_METHOD));
+        } catch (NoSuchMethodException nsme) {
+            return Optional.empty();
+        }
+
+    }
+
+}
@@ -17,7 +17,10 @@
 package com.sun.faces.renderkit.html_basic;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -46,9 +49,12 @@ import com.sun.faces.util.FacesLogger;
 @ListenerFor(systemEventClass=PostAddToViewEvent.class)
 public abstract class ScriptStyleBaseRenderer extends Renderer implements ComponentSystemEventListener {
 
-    private static final String COMP_KEY =
+    static final String COMP_KEY =
           ScriptStyleBaseRenderer.class.getName() + "_COMPOSITE_COMPONENT";
 
+    private static final String RESOLVED_RESOURCES_KEY =
+          ScriptStyleBaseRenderer.class.getName() + "_RESOLVED_RESOURCES";
+
     // Log instance for this class
     protected static final Logger logger = FacesLogger.RENDERKIT.getLogger();
 
@@ -190,7 +196,7 @@ public abstract class ScriptStyleBaseRenderer extends Renderer implements Compon
             return;
         }
 
-        Resource resource = resourceHandler.createResource(name, library);
+        Resource resource = resolveResource(context, name, library);
         String resourceUrl = "RES_NOT_FOUND";
 
         ResponseWriter writer = context.getResponseWriter();
@@ -236,6 +242,35 @@ public abstract class ScriptStyleBaseRenderer extends Renderer implements Compon
     }
 
 
+    /**
+     * @return the resource <code>name</code> in <code>library</code>, or
+     *  <code>null</code> if there is none.  The resource is created once per
+     *  request, so the head rendering, which looks up the resources for the
+     *  preload headers and for combining them, and the rendering of the
+     *  element itself share the resolved resource and its request path.
+     */
+    static Resource resolveResource(FacesContext context, String name, String library) {
+
+        Map<Object,Object> attributes = context.getAttributes();
+        @SuppressWarnings("unchecked")
+        Map<List<String>,Resource> resolved = (Map<List<String>,Resource>) attributes.get(RESOLVED_RESOURCES_KEY);
+        if (resolved == null) {
+            resolved = new HashMap<>();
+            attributes.put(RESOLVED_RESOURCES_KEY, resolved);
+        }
+        List<String> key = Arrays.asList(library, name);
+        Resource resource = resolved.get(key);
+        if (resource == null) {
+            resource = context.getApplication().getResourceHandler().createResource(name, library);
+            if (resource != null) {
+                resolved.put(key, resource);
+            }
+        }
+        return resource;
+
+    }
+
+
     private static UIComponent findComponentIgnoringNamingContainers(UIComponent base,
                                              String id,
                                              boolean checkId) {
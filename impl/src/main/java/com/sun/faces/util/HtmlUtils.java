@@ -54,7 +54,9 @@ public class HtmlUtils {
 
 
     /**
-     * Write char array text.
+     * Write char array text.  Runs of characters that need no escaping
+     * are copied in bulk; only the characters flagged by
+     * {@link #nextTextSpecial} go through {@link #writeTextChar}.
      */
     static public void writeText(Writer out,
                                  boolean escapeUnicode,
@@ -62,12 +64,29 @@ public class HtmlUtils {
                                  char[] text,
                                  int start,
                                  int length) throws IOException {
+        int end = start + length;
+        int special = nextTextSpecial(text, start, end, escapeUnicode, escapeIsocode);
+        if (special == end) {
+            // nothing to escape, the common case
+            if (length > 0) {
+                out.write(text, start, length);
+            }
+            return;
+        }
+
         int buffLength = buff.length;
         int buffIndex = 0;
-
-        int end = start + length;
-        for (int i = start; i < end; i++) {
-            buffIndex = writeTextChar(out, escapeUnicode, escapeIsocode, text[i], buffIndex, buff, buffLength);
+        int i = start;
+        while (i < end) {
+            if (special > i) {
+                buffIndex = addToBuffer(out, buff, buffIndex, buffLength, text, i, special - i);
+                i = special;
+            }
+            if (i < end) {
+                buffIndex = writeTextChar(out, escapeUnicode, escapeIsocode, text[i], buffIndex, buff, buffLength);
+                i++;
+                special = nextTextSpecial(text, i, end, escapeUnicode, escapeIsocode);
+            }
         }
 
         flushBuffer(out, buff, buffIndex);
@@ -84,6 +103,14 @@ public class HtmlUtils {
                                  char[] textBuff) throws IOException {
 
         int length = text.length();
+        int special = nextTextSpecial(text, 0, length, escapeUnicode, escapeIsocode);
+        if (special == length) {
+            // nothing to escape, write the String without copying it
+            if (length > 0) {
+                out.write(text, 0, length);
+            }
+            return;
+        }
 
         if (length >= 16) {
             text.getChars(0, length, textBuff, 0);
@@ -187,9 +214,9 @@ public class HtmlUtils {
 
 
     /**
-     * Write a string attribute.  Note that this code
-     * is duplicated below for character arrays - change both
-     * places if you make any changes!!!
+     * Write a string attribute.  Runs of characters that need no escaping
+     * are copied in bulk; only the characters flagged by
+     * {@link #nextAttributeSpecial} go through {@link #writeAttributeChar}.
      */
     static public void writeAttribute(Writer out,
                                       boolean escapeUnicode,
@@ -199,125 +226,38 @@ public class HtmlUtils {
                                       char[] textBuff,
                                       boolean isScriptInAttributeValueEnabled) throws IOException {
 
+        // If putting scripts in attribute values has been disabled (the
+        // default), values containing script: aren't written at all
+        if (!isScriptInAttributeValueEnabled && text.contains("script:")) {
+            return;
+        }
+
         int length = text.length();
+        int special = nextAttributeSpecial(text, 0, length, escapeUnicode, escapeIsocode);
+        if (special == length) {
+            // nothing to escape, write the String without copying it
+            if (length > 0) {
+                out.write(text, 0, length);
+            }
+            return;
+        }
+
         if (length >= 16) {
             if (length > textBuff.length) {
                 // resize our buffer
                 textBuff = new char[length * 2];
             }
             text.getChars(0, length, textBuff, 0);
-            writeAttribute(out, escapeUnicode, escapeIsocode, buff, textBuff, 0, length,
-                    isScriptInAttributeValueEnabled);
+            writeAttribute(out, escapeUnicode, escapeIsocode, buff, textBuff, 0, length, true);
         } else {
             int buffLength = buff.length;
             int buffIndex = 0;
             for (int i = 0; i < length; i++) {
                 char ch = text.charAt(i);
-
-                if (ch <= 0x1f) {
-                    if (!isPrintableControlChar(ch)) {
-                        continue;
-                    }
-                }
-                // Tilde or less...
-                if (ch < 0xA0) {
-                    // If "?" or over, no escaping is needed (this covers
-                    // most of the Latin alphabet)
-                    if (ch >= 0x3f) {
-                        if (ch == 's') {
-                            // If putting scripts in attribute values
-                            // has been disabled (the defualt), look for
-                            // script: in the attribute value.
-                            // ensure the attribute value is long enough
-                            // to accomodate "script:"
-                            if (!isScriptInAttributeValueEnabled &&
-                                    ((i + 6) < text.length())) {
-                                if ('c' == text.charAt(i + 1) &&
-                                    'r' == text.charAt(i + 2) &&
-                                    'i' == text.charAt(i + 3) &&
-                                    'p' == text.charAt(i + 4) &&
-                                    't' == text.charAt(i + 5) &&
-                                    ':' == text.charAt(i + 6)) {
-                                    return;
-                                }
-                            }
-                        }
-                        buffIndex = addToBuffer(out, buff, buffIndex,
-                                                buffLength, ch);
-                    } else if (ch >= 0x27) { // If above "'"...
-                        // If between "'" and ";", no escaping is needed
-                        if (ch < 0x3c) {
-                            buffIndex = addToBuffer(out, buff, buffIndex,
-                                                    buffLength, ch);
-                        } else if (ch == '<') {
-                            buffIndex = addToBuffer(out,
-                                                    buff,
-                                                    buffIndex,
-                                                    buffLength,
-                                                    LT_CHARS);
-                        } else if (ch == '>') {
-                            buffIndex = addToBuffer(out,
-                                                    buff,
-                                                    buffIndex,
-                                                    buffLength,
-                                                    GT_CHARS);
-                        } else {
-                            buffIndex = addToBuffer(out, buff, buffIndex,
-                                                    buffLength, ch);
-                        }
-                    } else {
-                        if (ch == '&') {
-                            // HTML 4.0, section B.7.1: ampersands followed by
-                            // an open brace don't get escaped
-                            if ((i + 1 < length) && (text.charAt(i + 1)
-                                                     == '{')) {
-                                buffIndex = addToBuffer(out,
-                                                        buff,
-                                                        buffIndex,
-                                                        buffLength,
-                                                        ch);
-                            } else {
-                                buffIndex = addToBuffer(out,
-                                                        buff,
-                                                        buffIndex,
-                                                        buffLength,
-                                                        AMP_CHARS);
-                            }
-                        } else if (ch == '"') {
-                            buffIndex = addToBuffer(out,
-                                                    buff,
-                                                    buffIndex,
-                                                    buffLength,
-                                                    QUOT_CHARS);
-                        } else {
-                            buffIndex = addToBuffer(out, buff, buffIndex,
-                                                    buffLength, ch);
-                        }
-                    }
-                } else if (ch <= 0xff) {
-                    if (escapeIsocode) {
-                        // ISO-8859-1 entities: encode as needed
-                        buffIndex = addToBuffer(out,
-                                                buff,
-                                                buffIndex,
-                                                buffLength,
-                                                sISO8859_1_Entities[ch - 0xA0]);
-                    } else {
-                        buffIndex = addToBuffer(out, buff, buffIndex,
-                                                buffLength, ch);
-                    }
-                } else {
-                    if(escapeUnicode) {
-                        // UNICODE entities: encode as needed
-                        buffIndex =
-                              _writeDecRef(out, buff, buffIndex, buffLength, ch);
-                    } else {
-                        buffIndex = addToBuffer(out, buff, buffIndex,
-                                buffLength, ch);
-                    }
-                }
+                boolean braceFollows = ((i + 1 < length) && (text.charAt(i + 1) == '{'));
+                buffIndex = writeAttributeChar(out, escapeUnicode, escapeIsocode, ch, braceFollows,
+                                               buffIndex, buff, buffLength);
             }
-
             flushBuffer(out, buff, buffIndex);
         }
     }
@@ -334,9 +274,9 @@ public class HtmlUtils {
 
 
     /**
-     * Write a character array attribute.  Note that this code
-     * is duplicated above for string - change both places if you make
-     * any changes!!!
+     * Write a character array attribute.
+     *
+     * @see #writeAttribute(Writer, boolean, boolean, char[], String, char[], boolean)
      */
     static public void writeAttribute(Writer out,
                                       boolean escapeUnicode,
@@ -346,118 +286,200 @@ public class HtmlUtils {
                                       int start,
                                       int length,
                                       boolean isScriptInAttributeValueEnabled) throws IOException {
+        int end = start + length;
+        if (!isScriptInAttributeValueEnabled && containsScript(text, start, end)) {
+            return;
+        }
+
+        int special = nextAttributeSpecial(text, start, end, escapeUnicode, escapeIsocode);
+        if (special == end) {
+            // nothing to escape, the common case
+            if (length > 0) {
+                out.write(text, start, length);
+            }
+            return;
+        }
+
         int buffLength = buff.length;
         int buffIndex = 0;
+        int i = start;
+        while (i < end) {
+            if (special > i) {
+                buffIndex = addToBuffer(out, buff, buffIndex, buffLength, text, i, special - i);
+                i = special;
+            }
+            if (i < end) {
+                boolean braceFollows = ((i + 1 < end) && (text[i + 1] == '{'));
+                buffIndex = writeAttributeChar(out, escapeUnicode, escapeIsocode, text[i], braceFollows,
+                                               buffIndex, buff, buffLength);
+                i++;
+                special = nextAttributeSpecial(text, i, end, escapeUnicode, escapeIsocode);
+            }
+        }
 
-        int end = start + length;
-        for (int i = start; i < end; i++) {
-            char ch = text[i];
+        flushBuffer(out, buff, buffIndex);
+    }
 
-            // "Application Program Command" or less...
-            if (ch <= 0x1f) {
-                if (!isPrintableControlChar(ch)) {
-                    continue;
+
+    private static int writeAttributeChar(Writer out,
+                                          boolean escapeUnicode,
+                                          boolean escapeIsocode,
+                                          char ch,
+                                          boolean braceFollows,
+                                          int buffIndex,
+                                          char[] buff,
+                                          int buffLength) throws IOException {
+        // "Application Program Command" or less...
+        if (ch <= 0x1f) {
+            if (!isPrintableControlChar(ch)) {
+                return buffIndex;
+            }
+        }
+        if (ch < 0xA0) {
+            if (ch == '<') {
+                return addToBuffer(out, buff, buffIndex, buffLength, LT_CHARS);
+            } else if (ch == '>') {
+                return addToBuffer(out, buff, buffIndex, buffLength, GT_CHARS);
+            } else if (ch == '&') {
+                // HTML 4.0, section B.7.1: ampersands followed by
+                // an open brace don't get escaped
+                if (braceFollows) {
+                    return addToBuffer(out, buff, buffIndex, buffLength, ch);
                 }
+                return addToBuffer(out, buff, buffIndex, buffLength, AMP_CHARS);
+            } else if (ch == '"') {
+                return addToBuffer(out, buff, buffIndex, buffLength, QUOT_CHARS);
+            }
+            return addToBuffer(out, buff, buffIndex, buffLength, ch);
+        } else if (ch <= 0xff) {
+            if (escapeIsocode) {
+                // ISO-8859-1 entities: encode as needed
+                return addToBuffer(out, buff, buffIndex, buffLength, sISO8859_1_Entities[ch - 0xA0]);
             }
+            return addToBuffer(out, buff, buffIndex, buffLength, ch);
+        } else {
+            if (escapeUnicode) {
+                // UNICODE entities: encode as needed
+                return _writeDecRef(out, buff, buffIndex, buffLength, ch);
+            }
+            return addToBuffer(out, buff, buffIndex, buffLength, ch);
+        }
+    }
+
+
+    /*
+     * Characters below 0xA0 that writeText can't copy as they are:
+     * non-printable control characters (dropped), '<', '>' and '&'.
+     */
+    static private final boolean[] TEXT_SPECIAL = new boolean[0xA0];
+
+    /*
+     * Characters below 0xA0 that writeAttribute can't copy as they are:
+     * non-printable control characters (dropped), '<', '>', '&' and '"'.
+     */
+    static private final boolean[] ATTRIBUTE_SPECIAL = new boolean[0xA0];
+
+    static {
+        for (int ch = 0; ch <= 0x1f; ch++) {
+            TEXT_SPECIAL[ch] = !isPrintableControlChar(ch);
+            ATTRIBUTE_SPECIAL[ch] = !isPrintableControlChar(ch);
+        }
+        TEXT_SPECIAL['<'] = true;
+        TEXT_SPECIAL['>'] = true;
+        TEXT_SPECIAL['&'] = true;
+        ATTRIBUTE_SPECIAL['<'] = true;
+        ATTRIBUTE_SPECIAL['>'] = true;
+        ATTRIBUTE_SPECIAL['&'] = true;
+        ATTRIBUTE_SPECIAL['"'] = true;
+    }
+
+
+    /*
+     * The nextXxxSpecial methods return the index of the first character
+     * in [from, end) that can't be copied as is, or end if there is none.
+     */
+
+    static private int nextTextSpecial(char[] text, int from, int end,
+                                       boolean escapeUnicode, boolean escapeIsocode) {
+        boolean[] special = TEXT_SPECIAL;
+        for (int i = from; i < end; i++) {
+            char ch = text[i];
             if (ch < 0xA0) {
-                // If "?" or over, no escaping is needed (this covers
-                // most of the Latin alphabet)
-                if (ch >= 0x3f) {
-                    if (ch == 's') {
-                        // If putting scripts in attribute values
-                        // has been disabled (the defualt), look for
-                        // script: in the attribute value.  
-                        // ensure the attribute value is long enough
-                        // to accomodate "script:"
-                        if (!isScriptInAttributeValueEnabled &&
-                                ((i + 6) < text.length)) {
-                            if ('c' == text[i + 1] &&
-                                'r' == text[i + 2] &&
-                                'i' == text[i + 3] &&
-                                'p' == text[i + 4] &&
-                                't' == text[i + 5] &&
-                                ':' == text[i + 6]) {
-                                return;
-                            }
-                        }
-                    }
-                    
-                    buffIndex = addToBuffer(out, buff, buffIndex,
-                                            buffLength, ch);
-                } else if (ch >= 0x27) { // If above "'"...
-                    if (ch < 0x3c) {
-                        // If between "'" and ";", no escaping is needed
-                        buffIndex = addToBuffer(out, buff, buffIndex,
-                                                buffLength, ch);                       
-                    } else if (ch == '<') {
-                        buffIndex = addToBuffer(out,
-                                                buff,
-                                                buffIndex,
-                                                buffLength,
-                                                LT_CHARS);
-                    } else if (ch == '>') {
-                        buffIndex = addToBuffer(out,
-                                                buff,
-                                                buffIndex,
-                                                buffLength,
-                                                GT_CHARS);
-                    } else {
-                        buffIndex = addToBuffer(out, buff, buffIndex,
-                                                buffLength, ch);
-                    }
-                } else {
-                    if (ch == '&') {
-                        // HTML 4.0, section B.7.1: ampersands followed by
-                        // an open brace don't get escaped
-                        if ((i + 1 < end) && (text[i + 1] == '{')) {
-                            buffIndex = addToBuffer(out,
-                                                    buff,
-                                                    buffIndex,
-                                                    buffLength,
-                                                    ch);
-                        } else {
-                            buffIndex = addToBuffer(out,
-                                                buff,
-                                                buffIndex,
-                                                buffLength,
-                                                AMP_CHARS);
-                        }
-                    } else if (ch == '"') {
-                        buffIndex = addToBuffer(out,
-                                                buff,
-                                                buffIndex,
-                                                buffLength,
-                                                QUOT_CHARS);
-                    } else {
-                        buffIndex = addToBuffer(out, buff, buffIndex,
-                                                buffLength, ch);
-                    }
+                if (special[ch]) {
+                    return i;
                 }
-            } else if (ch <= 0xff) {
-                if (escapeIsocode) {
-                    // ISO-8859-1 entities: encode as needed
-                    buffIndex = addToBuffer(out,
-                                            buff,
-                                            buffIndex,
-                                            buffLength,
-                                            sISO8859_1_Entities[ch - 0xA0]);
+            } else if ((ch <= 0xff) ? escapeIsocode : escapeUnicode) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+
+    static private int nextTextSpecial(String text, int from, int end,
+                                       boolean escapeUnicode, boolean escapeIsocode) {
+        boolean[] special = TEXT_SPECIAL;
+        for (int i = from; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0xA0) {
+                if (special[ch]) {
+                    return i;
                 }
-                else {
-                    buffIndex = addToBuffer(out, buff, buffIndex,
-                            buffLength, ch);
+            } else if ((ch <= 0xff) ? escapeIsocode : escapeUnicode) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+
+    static private int nextAttributeSpecial(char[] text, int from, int end,
+                                            boolean escapeUnicode, boolean escapeIsocode) {
+        boolean[] special = ATTRIBUTE_SPECIAL;
+        for (int i = from; i < end; i++) {
+            char ch = text[i];
+            if (ch < 0xA0) {
+                if (special[ch]) {
+                    return i;
                 }
-            } else {
-                if(escapeUnicode) {
-                    // UNICODE entities: encode as needed
-                    buffIndex = _writeDecRef(out, buff, buffIndex, buffLength, ch);
-                } else {
-                    buffIndex = addToBuffer(out, buff, buffIndex,
-                            buffLength, ch);
+            } else if ((ch <= 0xff) ? escapeIsocode : escapeUnicode) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+
+    static private int nextAttributeSpecial(String text, int from, int end,
+                                            boolean escapeUnicode, boolean escapeIsocode) {
+        boolean[] special = ATTRIBUTE_SPECIAL;
+        for (int i = from; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0xA0) {
+                if (special[ch]) {
+                    return i;
                 }
+            } else if ((ch <= 0xff) ? escapeIsocode : escapeUnicode) {
+                return i;
             }
         }
+        return end;
+    }
 
-        flushBuffer(out, buff, buffIndex);
+
+    static private boolean containsScript(char[] text, int start, int end) {
+        for (int i = start; i + 6 < end; i++) {
+            if (text[i] == 's'
+                && text[i + 1] == 'c'
+                && text[i + 2] == 'r'
+                && text[i + 3] == 'i'
+                && text[i + 4] == 'p'
+                && text[i + 5] == 't'
+                && text[i + 6] == ':') {
+                return true;
+            }
+        }
+        return false;
     }
 
 
@@ -572,6 +594,34 @@ public class HtmlUtils {
     }
 
 
+    /**
+     * Add a run of characters to the buffer, writing it straight through
+     * if it doesn't fit, and returning the new buffer index.
+     */
+    private static int addToBuffer(Writer out,
+                                   char[] buffer,
+                                   int bufferIndex,
+                                   int bufferLength,
+                                   char[] toAdd,
+                                   int offset,
+                                   int length) throws IOException {
+
+        if (length > bufferLength - bufferIndex) {
+            if (bufferIndex > 0) {
+                out.write(buffer, 0, bufferIndex);
+                bufferIndex = 0;
+            }
+            if (length >= bufferLength) {
+                out.write(toAdd, offset, length);
+                return 0;
+            }
+        }
+        System.arraycopy(toAdd, offset, buffer, bufferIndex, length);
+        return bufferIndex + length;
+
+    }
+
+
     /**
      * Flush the contents of the buffer to the output stream
      * and return the reset buffer index
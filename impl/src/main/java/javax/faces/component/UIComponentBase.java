@@ -153,6 +153,15 @@ public abstract class UIComponentBase extends UIComponent {
      */
     private String clientId;
 
+    /**
+     * <p>
+     * The container client id this component last gave its children, and the
+     * prefix of their client ids built from it.
+     * </p>
+     */
+    private String childClientIdBase;
+    private String childClientIdPrefix;
+
     /**
      * <p>
      * The parent component for this component.
@@ -235,7 +244,7 @@ public abstract class UIComponentBase extends UIComponent {
             }
 
             if (parentId != null) {
-                clientId = addParentId(context, parentId, clientId);
+                clientId = addParentId(context, namingContainerAncestor, parentId, clientId);
             }
 
             // Allow the renderer to convert the clientId
@@ -3160,7 +3169,11 @@ public abstract class UIComponentBase extends UIComponent {
         }
     }
 
-    private String addParentId(FacesContext context, String parentId, String childId) {
+    private String addParentId(FacesContext context, UIComponent parent, String parentId, String childId) {
+        if (parent instanceof UIComponentBase) {
+            return ((UIComponentBase) parent).getChildClientIdPrefix(context, parentId).concat(childId);
+        }
+
         return new StringBuilder(parentId.length() + 1 + childId.length())
                         .append(parentId)
                         .append(UINamingContainer.getSeparatorChar(context))
@@ -3168,6 +3181,21 @@ public abstract class UIComponentBase extends UIComponent {
                         .toString();
     }
 
+    private String getChildClientIdPrefix(FacesContext context, String containerClientId) {
+        // Compared by identity: the prefix is built once for every container
+        // client id, and iterating components return the same instance for
+        // all children of a row
+        if (containerClientId != childClientIdBase) {
+            childClientIdPrefix = new StringBuilder(containerClientId.length() + 1)
+                        .append(containerClientId)
+                        .append(UINamingContainer.getSeparatorChar(context))
+                        .toString();
+            childClientIdBase = containerClientId;
+        }
+
+        return childClientIdPrefix;
+    }
+
     private String getParentId(FacesContext context, UIComponent parent) {
         if (parent == null) {
             return null;
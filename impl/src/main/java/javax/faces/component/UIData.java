@@ -207,6 +207,18 @@ public class UIData extends UIComponentBase
     private StringBuilder clientIdBuilder = null;
 
 
+    /**
+     * <p>The last per-row client ID built, along with the row index and the
+     * base client ID it was built from, so all children of a row share the
+     * same instance.</p>
+     *
+     * <p>This is not part of the component state.</p>
+     */
+    private String rowClientId = null;
+    private String rowClientIdBase = null;
+    private int rowClientIdIndex = -1;
+
+
     /**
      * <p>Flag indicating whether or not this UIData instance is nested
      * within another UIData instance</p>
@@ -829,6 +841,10 @@ public class UIData extends UIComponentBase
         }
         int rowIndex = getRowIndex();
         if (rowIndex >= 0) {
+            String base = (!isNestedWithinIterator() ? baseClientId : super.getClientId(context));
+            if (rowIndex == rowClientIdIndex && base == rowClientIdBase) {
+                return rowClientId;
+            }
             String cid;
             if (!isNestedWithinIterator()) {
                 // we're not nested, so the clientIdBuilder is already
@@ -843,11 +859,14 @@ public class UIData extends UIComponentBase
                 // each time.  Reuse the same clientIdBuilder instance
                 // for each call by resetting the length to 0 after
                 // the ID has been computed.
-                cid = clientIdBuilder.append(super.getClientId(context))
+                cid = clientIdBuilder.append(base)
                       .append(UINamingContainer.getSeparatorChar(context)).append(rowIndex)
                       .toString();
                 clientIdBuilder.setLength(0);
             }
+            rowClientId = cid;
+            rowClientIdBase = base;
+            rowClientIdIndex = rowIndex;
             return (cid);
         } else {
             if (!isNestedWithinIterator()) {
@@ -863,6 +882,24 @@ public class UIData extends UIComponentBase
 
     }
 
+    /**
+     * <p>Set the component identifier, and drop the cached
+     * <code>baseClientId</code> so the client IDs are built from the new
+     * identifier.</p>
+     *
+     * @param id The new component identifier
+     */
+    @Override
+    public void setId(String id) {
+
+        super.setId(id);
+        if (baseClientId != null) {
+            baseClientId = null;
+            clientIdBuilder = null;
+        }
+
+    }
+
     /**
      * <p>Override behavior from {@link
      * UIComponentBase#invokeOnComponent} to provide special care for
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ByteRangeTest {
+
+    @Test
+    public void testRanges() {
+        ByteRange range = ByteRange.parse("bytes=10-19", 100);
+        assertEquals(10, range.getStart());
+        assertEquals(10, range.getLength());
+        assertEquals("bytes 10-19/100", range.getContentRange(100));
+
+        range = ByteRange.parse("bytes=90-", 100);
+        assertEquals("bytes 90-99/100", range.getContentRange(100));
+
+        range = ByteRange.parse("bytes=-5", 100);
+        assertEquals("bytes 95-99/100", range.getContentRange(100));
+
+        range = ByteRange.parse("bytes=50-1000", 100);
+        assertEquals("bytes 50-99/100", range.getContentRange(100));
+    }
+
+    @Test
+    public void testWholeResource() {
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("bytes=0-", 100));
+        assertNull(ByteRange.parse("bytes=-200", 100));
+        assertNull(ByteRange.parse("bytes=0-9,20-29", 100));
+        assertNull(ByteRange.parse("bytes=9-0", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+        assertNull(ByteRange.parse("items=0-9", 100));
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=100-", 100));
+        assertSame(ByteRange.UNSATISFIABLE, ByteRange.parse("bytes=-0", 100));
+        assertEquals("bytes */100", ByteRange.UNSATISFIABLE.getContentRange(100));
+    }
+
+}
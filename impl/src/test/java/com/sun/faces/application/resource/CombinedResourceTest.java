@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.faces.application.Resource;
+import javax.faces.context.FacesContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CombinedResourceTest {
+
+    private Path directory;
+    private TestResourceHelper helper;
+    private TestResourceRequest request;
+    private ResourceManager manager;
+    private final List<String> found = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("resources");
+        helper = new TestResourceHelper(directory);
+        request = new TestResourceRequest();
+        manager = new ResourceManager(new HashMap<String, Object>(), null) {
+            @Override
+            public ResourceInfo findResource(String libraryName, String resourceName, String contentType, FacesContext ctx) {
+                found.add(libraryName + ":" + resourceName);
+                return (Files.exists(directory.resolve(resourceName))
+                        ? helper.createResourceInfo(resourceName, false)
+                        : null);
+            }
+        };
+        write("a.js", "var a;");
+        write("b.js", "var b;");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        request.facesContext.release();
+        for (String name : new String[] { "a.js", "b.js" }) {
+            Files.delete(directory.resolve(name));
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void membersAreDecodedFromName() throws IOException {
+        Resource resource = create("lib:a.js|:b.js", ".js");
+
+        assertThat(found.toString(), is("[lib:a.js, null:b.js]"));
+        assertThat(resource.getLibraryName(), is(CombinedResource.LIBRARY_NAME));
+        assertThat(resource.getContentType(), is("text/javascript"));
+        assertThat(read(resource), is("var a;\n;\nvar b;\n;\n"));
+    }
+
+    @Test
+    public void contentIsShared() throws IOException {
+        Resource first = create("lib:a.js|:b.js", ".js");
+        Resource second = create("lib:a.js|:b.js", ".js");
+
+        assertThat(read(second), is(read(first)));
+        assertThat(manager.getCombinedContents().get(encode("lib:a.js|:b.js") + ".js"), not(nullValue()));
+    }
+
+    @Test
+    public void duplicateMemberIsRejected() {
+        assertThat(create("lib:a.js|lib:a.js", ".js"), nullValue());
+        assertThat(create(":a.js|:b.js|:a.js", ".js"), nullValue());
+    }
+
+    @Test
+    public void invalidNamesAreRejected() {
+        // a single member
+        assertThat(create(":a.js", ".js"), nullValue());
+        // a member without the library separator
+        assertThat(create("a.js|:b.js", ".js"), nullValue());
+        // a member of another type
+        assertThat(create(":a.js|:b.css", ".js"), nullValue());
+        // a library outside of the resources directory
+        assertThat(create("..:a.js|:b.js", ".js"), nullValue());
+        // a member that doesn't exist
+        assertThat(create(":a.js|:c.js", ".js"), nullValue());
+        // not base64
+        assertThat(CombinedResource.create(request.facesContext, manager, "a*b.js", "text/javascript"), nullValue());
+        // no extension
+        assertThat(CombinedResource.create(request.facesContext, manager, encode(":a.js|:b.js"), "text/javascript"), nullValue());
+    }
+
+    @Test
+    public void tooLongNameIsRejected() {
+        StringBuilder members = new StringBuilder(":a.js|:b.js");
+        while (encode(members.toString()).length() + 3 <= 1024) {
+            members.append("|:a").append(members.length()).append(".js");
+        }
+
+        assertThat(create(members.toString(), ".js"), nullValue());
+        assertThat(found.isEmpty(), is(true));
+    }
+
+    @Test
+    public void leastRecentlyUsedContentIsEvicted() {
+        CombinedResource.ContentCache cache = new CombinedResource.ContentCache(2, 100);
+        CombinedResource.Content a = content(10);
+        CombinedResource.Content b = content(10);
+        cache.put("a", a);
+        cache.put("b", b);
+        assertThat(cache.get("a"), sameInstance(a));
+
+        CombinedResource.Content c = content(10);
+        cache.put("c", c);
+
+        assertThat(cache.get("b"), nullValue());
+        assertThat(cache.get("a"), sameInstance(a));
+        assertThat(cache.get("c"), sameInstance(c));
+    }
+
+    @Test
+    public void contentIsEvictedToFitTheSizeLimit() {
+        CombinedResource.ContentCache cache = new CombinedResource.ContentCache(10, 100);
+        CombinedResource.Content a = content(60);
+        cache.put("a", a);
+        CombinedResource.Content b = content(60);
+        cache.put("b", b);
+
+        assertThat(cache.get("a"), nullValue());
+        assertThat(cache.get("b"), sameInstance(b));
+
+        // larger than the whole cache
+        cache.put("c", content(101));
+        assertThat(cache.get("c"), nullValue());
+        assertThat(cache.get("b"), sameInstance(b));
+
+        // replacing an entry releases its size
+        CombinedResource.Content smaller = content(30);
+        cache.put("b", smaller);
+        CombinedResource.Content d = content(70);
+        cache.put("d", d);
+        assertThat(cache.get("b"), sameInstance(smaller));
+        assertThat(cache.get("d"), sameInstance(d));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private Resource create(String members, String extension) {
+        return CombinedResource.create(request.facesContext, manager, encode(members) + extension, "text/javascript");
+    }
+
+    private void write(String name, String content) throws IOException {
+        Files.write(directory.resolve(name), content.getBytes(UTF_8));
+    }
+
+    private static String encode(String members) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(members.getBytes(UTF_8));
+    }
+
+    private static CombinedResource.Content content(int size) {
+        return new CombinedResource.Content(new ResourceInfo[0], new byte[size], "\"tag\"");
+    }
+
+    private static String read(Resource resource) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = resource.getInputStream()) {
+            byte[] buf = new byte[512];
+            for (int read = in.read(buf); read != -1; read = in.read(buf)) {
+                out.write(buf, 0, read);
+            }
+        }
+        return out.toString("UTF-8");
+    }
+
+}
@@ -39,4 +39,52 @@ public class ResourceCacheTest {
         assertThat(cachedResourceInfo, is(resourceInfo));
     }
 
+    @Test
+    public void missingResourcesAreRemembered() {
+        ResourceCache cache = new ResourceCache(-1L);
+        List<String> contracts = Arrays.asList("foo");
+        assertThat(cache.isMissing("bar.gif", "lib", null, contracts), is(false));
+        cache.addMissing("bar.gif", "lib", null, contracts);
+        assertThat(cache.isMissing("bar.gif", "lib", null, Arrays.asList("foo")), is(true));
+        assertThat(cache.isMissing("bar.gif", "lib", null, Arrays.asList("baz")), is(false));
+        assertThat(cache.isMissing("bar.gif", null, null, contracts), is(false));
+        cache.clear();
+        assertThat(cache.isMissing("bar.gif", "lib", null, contracts), is(false));
+    }
+
+    @Test
+    public void missingResourcesAreBounded() {
+        ResourceCache cache = new ResourceCache(-1L);
+        List<String> contracts = Arrays.asList();
+        for (int i = 0; i < ResourceCache.MAX_MISSING; i++) {
+            cache.addMissing("missing" + i + ".gif", null, null, contracts);
+        }
+        assertThat(cache.isMissing("missing0.gif", null, null, contracts), is(true));
+        cache.addMissing("overflow.gif", null, null, contracts);
+        assertThat(cache.isMissing("missing0.gif", null, null, contracts), is(false));
+        assertThat(cache.isMissing("overflow.gif", null, null, contracts), is(true));
+    }
+
+    @Test
+    public void missingEntriesExpire() {
+        ResourceCache cache = new ResourceCache(0L);
+        cache.addMissing("bar.gif", null, null, Arrays.asList());
+        cache.addMissingLibrary("lib");
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException ignored) {
+        }
+        assertThat(cache.isMissing("bar.gif", null, null, Arrays.asList()), is(false));
+        assertThat(cache.isLibraryMissing("lib"), is(false));
+    }
+
+    @Test
+    public void missingLibrariesAreRemembered() {
+        ResourceCache cache = new ResourceCache(-1L);
+        assertThat(cache.isLibraryMissing("lib"), is(false));
+        cache.addMissingLibrary("lib");
+        assertThat(cache.isLibraryMissing("lib"), is(true));
+        assertThat(cache.isLibraryMissing("other"), is(false));
+    }
+
 }
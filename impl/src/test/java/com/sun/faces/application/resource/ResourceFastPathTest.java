@@ -0,0 +1,420 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import javax.faces.application.ResourceHandler;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockHttpServletRequest;
+import com.sun.faces.mock.MockHttpServletResponse;
+import com.sun.faces.mock.MockServletContext;
+
+public class ResourceFastPathTest {
+
+    private static final String SCRIPT = "function f() { return 42; }\nfunction f() { return 42; }\n";
+    private static final String LAST_MODIFIED = "Thu, 01 Jan 2015 00:00:00 GMT";
+
+    private Path directory;
+    private TestResourceHelper helper;
+    private TestResourceRequest request;
+    private ResourceContentCache cache;
+    private ResourceFastPath fastPath;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("resources");
+        helper = new TestResourceHelper(directory);
+        request = new TestResourceRequest();
+        // compression is only available with a temporary directory
+        File tempDir = Files.createDirectory(directory.resolve("tmp")).toFile();
+        request.applicationMap.put("javax.servlet.context.tempdir", tempDir);
+        cache = new ResourceContentCache(1 << 20, -1);
+        fastPath = new ResourceFastPath(60000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void publishedResourceIsServed() throws IOException {
+        ResourceImpl resource = publish("app.js", SCRIPT, false, "lib");
+        FastPathRequest get = get("app.js");
+        get.addParameter("ln", "lib");
+        FastPathResponse response = new FastPathResponse();
+
+        assertThat(fastPath.serve(get, response), is(true));
+
+        assertArrayEquals(SCRIPT.getBytes(StandardCharsets.UTF_8), response.body.toByteArray());
+        assertThat(response.getStatus(), is(0));
+        assertThat(response.getContentType(), is("text/javascript"));
+        assertThat(response.contentLength, is(SCRIPT.length()));
+        assertThat(response.headers.get("ETag"), is(resource.getEntityTag(request.facesContext, false)));
+        assertThat(response.headers.get("Last-Modified"), is(LAST_MODIFIED));
+        assertThat(response.headers.get("Accept-Ranges"), is("bytes"));
+        assertThat(response.headers.get("Expires"), not(nullValue()));
+        assertThat(response.headers.get("Cache-Control"), nullValue());
+        assertThat(response.headers.get("Vary"), nullValue());
+    }
+
+    @Test
+    public void requestsAreKeyedByLibraryLocaleAndContract() throws IOException {
+        request.requestParameters.put("loc", "de");
+        request.requestParameters.put("con", "dark");
+        publish("app.js", SCRIPT, false, "lib");
+
+        assertThat(serve("app.js", "lib", "de", "dark"), is(true));
+        assertThat(serve("other.js", "lib", "de", "dark"), is(false));
+        assertThat(serve("app.js", null, "de", "dark"), is(false));
+        assertThat(serve("app.js", "lib", null, "dark"), is(false));
+        assertThat(serve("app.js", "lib", "fr", "dark"), is(false));
+        assertThat(serve("app.js", "lib", "de", null), is(false));
+    }
+
+    @Test
+    public void localizedLookupIsNotPublished() throws IOException {
+        // without a loc parameter the resource depends on Accept-Language
+        ((MockApplication) request.facesContext.getApplication()).setMessageBundle("messages");
+        publish("app.js", SCRIPT, false, null);
+
+        assertThat(fastPath.serve(get("app.js"), new FastPathResponse()), is(false));
+    }
+
+    @Test
+    public void extensionMappedRequestIsServed() throws IOException {
+        publish("app.js", SCRIPT, false, null);
+        FastPathRequest get = new FastPathRequest();
+        get.setPathElements("/app", ResourceHandler.RESOURCE_IDENTIFIER + "/app.js.xhtml", null, null);
+
+        assertThat(fastPath.serve(get, new FastPathResponse()), is(true));
+    }
+
+    @Test
+    public void gzipCopyIsSentWhenAccepted() throws IOException {
+        ResourceImpl resource = publish("app.js", repeat(SCRIPT, 20), true, null);
+        FastPathRequest get = get("app.js");
+        get.headers.put("Accept-Encoding", "gzip, deflate");
+        FastPathResponse response = new FastPathResponse();
+
+        assertThat(fastPath.serve(get, response), is(true));
+
+        ResourceContentCache.Content content = cache.get(request.facesContext, resource.getResourceInfo());
+        assertArrayEquals(content.getCompressedBytes(), response.body.toByteArray());
+        assertThat(response.headers.get("Content-Encoding"), is("gzip"));
+        assertThat(response.headers.get("Vary"), is("Accept-Encoding"));
+        assertThat(response.headers.get("Accept-Ranges"), nullValue());
+        assertThat(response.headers.get("ETag"), is(resource.getEntityTag(request.facesContext, true)));
+        assertThat(response.contentLength, is(content.getCompressedBytes().length));
+    }
+
+    @Test
+    public void identityCopyIsSentWithoutGzip() throws IOException {
+        String script = repeat(SCRIPT, 20);
+        ResourceImpl resource = publish("app.js", script, true, null);
+        FastPathRequest get = get("app.js");
+        get.headers.put("Accept-Encoding", "identity");
+        FastPathResponse response = new FastPathResponse();
+
+        assertThat(fastPath.serve(get, response), is(true));
+
+        assertArrayEquals(script.getBytes(StandardCharsets.UTF_8), response.body.toByteArray());
+        assertThat(response.headers.get("Content-Encoding"), nullValue());
+        assertThat(response.headers.get("Vary"), is("Accept-Encoding"));
+        assertThat(response.headers.get("ETag"), is(resource.getEntityTag(request.facesContext, false)));
+    }
+
+    @Test
+    public void matchingEntityTagIsAnswered304() throws IOException {
+        ResourceImpl resource = publish("app.js", repeat(SCRIPT, 20), true, null);
+
+        FastPathRequest get = get("app.js");
+        get.headers.put("If-None-Match", resource.getEntityTag(request.facesContext, false));
+        FastPathResponse response = new FastPathResponse();
+        assertThat(fastPath.serve(get, response), is(true));
+        assertThat(response.getStatus(), is(304));
+        assertThat(response.body.size(), is(0));
+
+        // the gzip copy has a different entity tag
+        get.headers.put("Accept-Encoding", "gzip");
+        response = new FastPathResponse();
+        assertThat(fastPath.serve(get, response), is(true));
+        assertThat(response.getStatus(), is(0));
+        assertThat(response.headers.get("Content-Encoding"), is("gzip"));
+    }
+
+    @Test
+    public void requestsTheEntityTagCannotAnswerAreLeftToTheFacesServlet() throws IOException {
+        publish("app.js", SCRIPT, false, null);
+
+        FastPathRequest post = get("app.js");
+        post.setMethod("POST");
+        assertThat(fastPath.serve(post, new FastPathResponse()), is(false));
+
+        FastPathRequest range = get("app.js");
+        range.headers.put("Range", "bytes=0-1");
+        assertThat(fastPath.serve(range, new FastPathResponse()), is(false));
+
+        FastPathRequest modifiedSince = get("app.js");
+        modifiedSince.headers.put("If-Modified-Since", LAST_MODIFIED);
+        assertThat(fastPath.serve(modifiedSince, new FastPathResponse()), is(false));
+    }
+
+    @Test
+    public void fingerprintedRequestIsImmutable() throws IOException {
+        ResourceImpl resource = publish("app.js", SCRIPT, false, null);
+        String entityTag = resource.getEntityTag(request.facesContext, false);
+
+        FastPathRequest get = get("app.js");
+        get.addParameter(ResourceImpl.FINGERPRINT_PARAM, entityTag.substring(1, entityTag.length() - 1));
+        FastPathResponse response = new FastPathResponse();
+        assertThat(fastPath.serve(get, response), is(true));
+        assertThat(response.headers.get("Cache-Control"),
+                   is("public, max-age=" + ResourceImpl.IMMUTABLE_MAX_AGE + ", immutable"));
+
+        // an outdated fingerprint only gets the configured max age
+        get = get("app.js");
+        get.addParameter(ResourceImpl.FINGERPRINT_PARAM, "outdated");
+        response = new FastPathResponse();
+        assertThat(fastPath.serve(get, response), is(true));
+        assertThat(response.headers.get("Cache-Control"), nullValue());
+    }
+
+    @Test
+    public void evictedContentIsNotServed() throws IOException {
+        // every resource takes an eighth of the cache
+        cache = new ResourceContentCache(800, -1);
+        publish("r0.js", String.format("/* %94d */", 0), false, null);
+        assertThat(fastPath.serve(get("r0.js"), new FastPathResponse()), is(true));
+
+        for (int i = 1; i < 9; i++) {
+            publish("r" + i + ".js", String.format("/* %94d */", i), false, null);
+        }
+
+        assertThat(fastPath.serve(get("r0.js"), new FastPathResponse()), is(false));
+        assertThat(fastPath.serve(get("r8.js"), new FastPathResponse()), is(true));
+    }
+
+    @Test
+    public void filterServesPublishedResources() throws IOException, ServletException {
+        publish("app.js", SCRIPT, false, null);
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setAttribute(ResourceFastPath.KEY, fastPath);
+        ResourceFastPathFilter filter = new ResourceFastPathFilter();
+        filter.init(new FastPathFilterConfig(servletContext));
+        boolean[] passedOn = new boolean[1];
+
+        FastPathResponse response = new FastPathResponse();
+        filter.doFilter(get("app.js"), response, (req, res) -> passedOn[0] = true);
+        assertThat(passedOn[0], is(false));
+        assertThat(response.body.toString("UTF-8"), is(SCRIPT));
+
+        response = new FastPathResponse();
+        filter.doFilter(get("other.js"), response, (req, res) -> passedOn[0] = true);
+        assertThat(passedOn[0], is(true));
+        assertThat(response.body.size(), is(0));
+    }
+
+    @Test
+    public void filterPassesRequestsOnWithoutFastPath() throws IOException, ServletException {
+        publish("app.js", SCRIPT, false, null);
+        ResourceFastPathFilter filter = new ResourceFastPathFilter();
+        filter.init(new FastPathFilterConfig(new MockServletContext()));
+        boolean[] passedOn = new boolean[1];
+
+        FastPathResponse response = new FastPathResponse();
+        filter.doFilter(get("app.js"), response, (req, res) -> passedOn[0] = true);
+
+        assertThat(passedOn[0], is(true));
+        assertThat(response.body.size(), is(0));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * Publishes a resource like {@link ResourceHandlerImpl} does after it
+     * has served it from the content cache.
+     */
+    private ResourceImpl publish(String name, String content, boolean compressable, String libraryName)
+    throws IOException {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+        ResourceImpl resource = new ResourceImpl(helper.createResourceInfo(name, compressable), "text/javascript", 0, 0);
+        fastPath.publish(request.facesContext,
+                         name,
+                         libraryName,
+                         resource,
+                         cache.get(request.facesContext, resource.getResourceInfo()),
+                         LAST_MODIFIED);
+        return resource;
+    }
+
+    private boolean serve(String name, String libraryName, String localePrefix, String contract)
+    throws IOException {
+        FastPathRequest get = get(name);
+        if (libraryName != null) {
+            get.addParameter("ln", libraryName);
+        }
+        if (localePrefix != null) {
+            get.addParameter("loc", localePrefix);
+        }
+        if (contract != null) {
+            get.addParameter("con", contract);
+        }
+        return fastPath.serve(get, new FastPathResponse());
+    }
+
+    private static FastPathRequest get(String name) {
+        FastPathRequest request = new FastPathRequest();
+        request.setPathElements("/app", "/faces", ResourceHandler.RESOURCE_IDENTIFIER + '/' + name, null);
+        return request;
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    private static class FastPathRequest extends MockHttpServletRequest {
+
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        @Override
+        public String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        @Override
+        public Enumeration getHeaders(String name) {
+            String value = headers.get(name);
+            return Collections.enumeration((value != null)
+                                           ? Collections.singletonList(value)
+                                           : Collections.emptyList());
+        }
+
+    }
+
+
+    private static class FastPathResponse extends MockHttpServletResponse {
+
+        final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int contentLength = -1;
+
+        @Override
+        public void setHeader(String name, String value) {
+            headers.put(name, value);
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            contentLength = length;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                }
+            };
+        }
+
+    }
+
+
+    private static class FastPathFilterConfig implements FilterConfig {
+
+        private final ServletContext servletContext;
+
+        FastPathFilterConfig(ServletContext servletContext) {
+            this.servletContext = servletContext;
+        }
+
+        @Override
+        public String getFilterName() {
+            return ResourceFastPathFilter.class.getName();
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return servletContext;
+        }
+
+        @Override
+        public String getInitParameter(String name) {
+            return null;
+        }
+
+        @Override
+        public Enumeration<String> getInitParameterNames() {
+            return Collections.emptyEnumeration();
+        }
+
+    }
+
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceHandlerImplTest {
+
+    private static final String SCRIPT = repeat("function f() { return 42; }\n", 40);
+
+    private Path directory;
+    private TestResourceHelper helper;
+    private TestResourceRequest request;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("resources");
+        helper = new TestResourceHelper(directory);
+        request = new TestResourceRequest();
+        // compression is only available with a temporary directory
+        File tempDir = Files.createDirectory(directory.resolve("tmp")).toFile();
+        request.applicationMap.put("javax.servlet.context.tempdir", tempDir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void cachedResourceIsSentWithContentLength() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, true);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(new ResourceContentCache(1 << 20, -1), null);
+
+        assertThat(handler.handleCachedResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        byte[] expected = SCRIPT.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, request.responseBody.toByteArray());
+        assertThat(request.responseContentLength, is(expected.length));
+        assertThat(request.responseContentType, is("text/javascript"));
+        assertThat(request.responseHeaders.get("Content-Encoding"), nullValue());
+        assertThat(request.responseHeaders.get("Vary"), is("Accept-Encoding"));
+        assertThat(request.responseHeaders.get("ETag"), is(resource.getEntityTag(request.facesContext, false)));
+    }
+
+    @Test
+    public void gzipCopyIsSentWhenAccepted() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, true);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(new ResourceContentCache(1 << 20, -1), null);
+        request.requestHeaders.put("Accept-Encoding", "gzip, deflate");
+
+        assertThat(handler.handleCachedResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        byte[] body = request.responseBody.toByteArray();
+        assertThat(request.responseHeaders.get("Content-Encoding"), is("gzip"));
+        assertThat(request.responseHeaders.get("Vary"), is("Accept-Encoding"));
+        assertThat(request.responseContentLength, is(body.length));
+        assertArrayEquals(SCRIPT.getBytes(StandardCharsets.UTF_8), gunzip(body));
+        String entityTag = request.responseHeaders.get("ETag");
+        assertThat(entityTag, is(resource.getEntityTag(request.facesContext, true)));
+        assertThat(entityTag, not(resource.getEntityTag(request.facesContext, false)));
+    }
+
+    @Test
+    public void incompressibleResourceIsNeverGzipped() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, false);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(new ResourceContentCache(1 << 20, -1), null);
+        request.requestHeaders.put("Accept-Encoding", "gzip");
+
+        assertThat(handler.handleCachedResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        assertArrayEquals(SCRIPT.getBytes(StandardCharsets.UTF_8), request.responseBody.toByteArray());
+        assertThat(request.responseHeaders.get("Content-Encoding"), nullValue());
+        assertThat(request.responseHeaders.get("Vary"), nullValue());
+    }
+
+    @Test
+    public void matchingEntityTagIsAnswered304() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, true);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(new ResourceContentCache(1 << 20, -1), null);
+        request.requestHeaders.put("If-None-Match", resource.getEntityTag(request.facesContext, false));
+
+        assertThat(handler.handleCachedResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        assertThat(request.responseStatus, is(304));
+        assertThat(request.responseBody.size(), is(0));
+    }
+
+    @Test
+    public void resourceIsServedFromFullCache() throws IOException {
+        // every resource takes an eighth of the cache
+        ResourceContentCache cache = new ResourceContentCache(800, -1);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(cache, null);
+        for (int i = 0; i < 8; i++) {
+            ResourceImpl resource = createResource("r" + i + ".js", content(i), false);
+            assertThat(cache.get(request.facesContext, resource.getResourceInfo()), not(nullValue()));
+        }
+
+        ResourceImpl resource = createResource("last.js", content(8), false);
+        assertThat(handler.handleCachedResourceRequest(request.facesContext, resource, "last.js", null), is(true));
+        assertThat(request.responseBody.toString("UTF-8"), is(content(8)));
+        assertThat(request.responseContentLength, is(100));
+    }
+
+    @Test
+    public void leastRecentlyUsedContentIsEvicted() throws IOException {
+        ResourceContentCache cache = new ResourceContentCache(800, -1);
+        ResourceInfo[] infos = new ResourceInfo[9];
+        ResourceContentCache.Content[] contents = new ResourceContentCache.Content[9];
+        for (int i = 0; i < 8; i++) {
+            infos[i] = createResource("r" + i + ".js", content(i), false).getResourceInfo();
+            contents[i] = cache.get(request.facesContext, infos[i]);
+        }
+        // r1 is now the one used least recently
+        assertThat(cache.get(request.facesContext, infos[0]), sameInstance(contents[0]));
+
+        infos[8] = createResource("r8.js", content(8), false).getResourceInfo();
+        contents[8] = cache.get(request.facesContext, infos[8]);
+
+        assertThat(cache.get(request.facesContext, infos[8]), sameInstance(contents[8]));
+        assertThat(cache.get(request.facesContext, infos[0]), sameInstance(contents[0]));
+        assertThat(cache.get(request.facesContext, infos[2]), sameInstance(contents[2]));
+        assertThat(cache.get(request.facesContext, infos[1]), not(sameInstance(contents[1])));
+    }
+
+    @Test
+    public void tooLargeResourceIsNotCached() throws IOException {
+        ResourceImpl resource = createResource("large.js", repeat("x", 101), false);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(new ResourceContentCache(800, -1), null);
+
+        assertThat(handler.handleCachedResourceRequest(request.facesContext, resource, "large.js", null), is(false));
+        assertThat(request.responseBody.size(), is(0));
+    }
+
+
+    @Test
+    public void fileResourceIsSentWithContentLength() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, true);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(null, null);
+
+        assertThat(handler.handleFileResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        byte[] expected = SCRIPT.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected, request.responseBody.toByteArray());
+        assertThat(request.responseStatus, is(200));
+        assertThat(request.responseContentLength, is(expected.length));
+        assertThat(request.responseContentType, is("text/javascript"));
+        assertThat(request.responseHeaders.get("Accept-Ranges"), is("bytes"));
+        assertThat(request.responseHeaders.get("Content-Range"), nullValue());
+        assertThat(request.responseHeaders.get("Vary"), is("Accept-Encoding"));
+    }
+
+    @Test
+    public void fileResourceRangeIsSentAsPartialContent() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, false);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(null, null);
+        request.requestHeaders.put("Range", "bytes=2-5");
+
+        assertThat(handler.handleFileResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        assertThat(request.responseStatus, is(206));
+        assertThat(request.responseHeaders.get("Content-Range"), is("bytes 2-5/" + SCRIPT.length()));
+        assertThat(request.responseContentLength, is(4));
+        assertThat(request.responseBody.toString("UTF-8"), is(SCRIPT.substring(2, 6)));
+    }
+
+    @Test
+    public void fileResourceSuffixRangeIsSentAsPartialContent() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, false);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(null, null);
+        request.requestHeaders.put("Range", "bytes=-10");
+
+        assertThat(handler.handleFileResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        int length = SCRIPT.length();
+        assertThat(request.responseStatus, is(206));
+        assertThat(request.responseHeaders.get("Content-Range"),
+                   is("bytes " + (length - 10) + "-" + (length - 1) + "/" + length));
+        assertThat(request.responseContentLength, is(10));
+        assertThat(request.responseBody.toString("UTF-8"), is(SCRIPT.substring(length - 10)));
+    }
+
+    @Test
+    public void unsatisfiableFileResourceRangeIsAnswered416() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, false);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(null, null);
+        request.requestHeaders.put("Range", "bytes=" + SCRIPT.length() + "-");
+
+        assertThat(handler.handleFileResourceRequest(request.facesContext, resource, "app.js", null), is(true));
+
+        assertThat(request.responseStatus, is(416));
+        assertThat(request.responseHeaders.get("Content-Range"), is("bytes */" + SCRIPT.length()));
+        assertThat(request.responseBody.size(), is(0));
+    }
+
+    @Test
+    public void gzipRequestIsLeftToStreamBasedCode() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT, true);
+        ResourceHandlerImpl handler = new ResourceHandlerImpl(null, null);
+        request.requestHeaders.put("Accept-Encoding", "gzip");
+
+        assertThat(handler.handleFileResourceRequest(request.facesContext, resource, "app.js", null), is(false));
+        assertThat(request.responseBody.size(), is(0));
+        assertThat(request.responseContentLength, is(-1));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private ResourceImpl createResource(String name, String content, boolean compressable) throws IOException {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+        return new ResourceImpl(helper.createResourceInfo(name, compressable), "text/javascript", 0, 0);
+    }
+
+    /**
+     * @return 100 characters of content unique to <code>i</code>
+     */
+    private static String content(int i) {
+        return String.format("/* %94d */", i);
+    }
+
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] buf = new byte[512];
+            for (int read = in.read(buf); read != -1; read = in.read(buf)) {
+                out.write(buf, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+}
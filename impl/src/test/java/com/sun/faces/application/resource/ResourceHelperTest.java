@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.faces.context.ExternalContext;
+
+import org.junit.Test;
+
+import com.sun.faces.mock.MockExternalContext;
+
+public class ResourceHelperTest {
+
+    @Test
+    public void resourceURLsWithoutSessionIdAreShared() {
+        assertThat(ResourceHelper.encodesResourceURLs(externalContext(null)), is(false));
+    }
+
+    @Test
+    public void resourceURLsWithSessionIdAreNotShared() {
+        assertThat(ResourceHelper.encodesResourceURLs(externalContext("0123456789ABCDEF")), is(true));
+    }
+
+    /**
+     * @return an <code>ExternalContext</code> that rewrites URLs like a
+     *  container tracking the session <code>sessionId</code> without a cookie
+     */
+    private static ExternalContext externalContext(final String sessionId) {
+        return new MockExternalContext(null, null, null) {
+            @Override
+            public String getRequestContextPath() {
+                return "/app";
+            }
+
+            @Override
+            public String encodeResourceURL(String url) {
+                return ((sessionId != null) ? url + ";jsessionid=" + sessionId : url);
+            }
+        };
+    }
+
+}
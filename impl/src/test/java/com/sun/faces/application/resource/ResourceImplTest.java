@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.faces.application.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.util.RequestStateManager;
+
+public class ResourceImplTest {
+
+    private static final String SCRIPT = "function f() { return 42; }\n";
+
+    private Path directory;
+    private TestResourceHelper helper;
+    private TestResourceRequest request;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("resources");
+        helper = new TestResourceHelper(directory);
+        request = new TestResourceRequest();
+        RequestStateManager.set(request.facesContext, RequestStateManager.INVOCATION_PATH, "/faces");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        request.facesContext.release();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void requestPathHasNoFingerprintByDefault() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT);
+
+        assertThat(resource.getRequestPath(), is("/app/faces/javax.faces.resource/app.js"));
+    }
+
+    @Test
+    public void requestPathCarriesTheFingerprint() throws IOException {
+        enableFingerprints();
+        ResourceImpl resource = createResource("app.js", SCRIPT);
+
+        assertThat(resource.getRequestPath(),
+                   is("/app/faces/javax.faces.resource/app.js?" + ResourceImpl.FINGERPRINT_PARAM + '=' + getFingerprint(resource)));
+    }
+
+    @Test
+    public void fingerprintFollowsTheContent() throws IOException {
+        enableFingerprints();
+        String path = createResource("app.js", SCRIPT).getRequestPath();
+
+        assertThat(createResource("app.js", SCRIPT).getRequestPath(), is(path));
+        assertThat(createResource("app.js", SCRIPT + SCRIPT).getRequestPath(), not(is(path)));
+    }
+
+    @Test
+    public void developmentStageHasNoFingerprint() throws IOException {
+        enableFingerprints();
+        Files.write(directory.resolve("app.js"), SCRIPT.getBytes(StandardCharsets.UTF_8));
+        ClientResourceInfo info = new ClientResourceInfo(null, "app.js", null, null, helper, false, false, true, true);
+        ResourceImpl resource = new ResourceImpl(info, "text/javascript", 0, 0);
+
+        assertThat(resource.getRequestPath(), is("/app/faces/javax.faces.resource/app.js"));
+    }
+
+    @Test
+    public void fingerprintedRequestIsImmutable() throws IOException, ParseException {
+        ResourceImpl resource = createResource("app.js", SCRIPT);
+        request.requestParameters.put(ResourceImpl.FINGERPRINT_PARAM, getFingerprint(resource));
+        long now = System.currentTimeMillis();
+
+        Map<String, String> headers = resource.getResponseHeaders();
+
+        assertThat(headers.get("Cache-Control"),
+                   is("public, max-age=" + ResourceImpl.IMMUTABLE_MAX_AGE + ", immutable"));
+        // Expires has a resolution of seconds
+        long expires = parseDate(headers.get("Expires"));
+        assertThat(expires >= now - 1000L + (ResourceImpl.IMMUTABLE_MAX_AGE * 1000L), is(true));
+        assertThat(headers.get("ETag"), is(resource.getEntityTag(request.facesContext)));
+    }
+
+    @Test
+    public void staleFingerprintGetsTheRegularHeaders() throws IOException, ParseException {
+        ResourceImpl resource = createResource("app.js", SCRIPT);
+        request.requestParameters.put(ResourceImpl.FINGERPRINT_PARAM, "outdated");
+        long now = System.currentTimeMillis();
+
+        Map<String, String> headers = resource.getResponseHeaders();
+
+        assertThat(headers.get("Cache-Control"), nullValue());
+        assertThat(parseDate(headers.get("Expires")) < now + 60000L, is(true));
+    }
+
+    @Test
+    public void requestWithoutFingerprintGetsTheRegularHeaders() throws IOException {
+        ResourceImpl resource = createResource("app.js", SCRIPT);
+
+        assertThat(resource.getResponseHeaders().get("Cache-Control"), nullValue());
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private void enableFingerprints() {
+        request.servletContext.addInitParameter("com.sun.faces.fingerprintResourceUrls", "true");
+    }
+
+    private ResourceImpl createResource(String name, String content) throws IOException {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+        return new ResourceImpl(helper.createResourceInfo(name, false), "text/javascript", 0, 0);
+    }
+
+    /**
+     * @return the strong entity tag of <code>resource</code> without quotes
+     */
+    private String getFingerprint(ResourceImpl resource) {
+        String entityTag = resource.getEntityTag(request.facesContext);
+        return entityTag.substring(1, entityTag.length() - 1);
+    }
+
+    private static long parseDate(String date) throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.parse(date).getTime();
+    }
+
+}
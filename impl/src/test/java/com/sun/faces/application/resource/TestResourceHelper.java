@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.faces.context.FacesContext;
+
+/**
+ * A {@link ResourceHelper} serving the files of a directory, for
+ * {@link ClientResourceInfo} instances created by the tests.
+ */
+class TestResourceHelper extends ResourceHelper {
+
+    private final Path directory;
+
+
+    TestResourceHelper(Path directory) {
+        this.directory = directory;
+    }
+
+
+    /**
+     * @return a resource for the file <code>name</code> in the directory
+     *  of this helper
+     */
+    ClientResourceInfo createResourceInfo(String name, boolean compressable) {
+        return new ClientResourceInfo(null, name, null, null, this, compressable, false, false, true);
+    }
+
+
+    @Override
+    public String getBaseResourcePath() {
+        return "/resources";
+    }
+
+    @Override
+    public String getBaseContractsPath() {
+        return "/contracts";
+    }
+
+    @Override
+    public URL getURL(ResourceInfo resource, FacesContext ctx) {
+        try {
+            return directory.resolve(resource.getName()).toUri().toURL();
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public LibraryInfo findLibrary(String libraryName, String localePrefix, String contract, FacesContext ctx) {
+        return null;
+    }
+
+    @Override
+    public ResourceInfo findResource(LibraryInfo library, String resourceName, String localePrefix, boolean compressable, FacesContext ctx) {
+        return null;
+    }
+
+    @Override
+    protected InputStream getNonCompressedInputStream(ResourceInfo info, FacesContext ctx) throws IOException {
+        return Files.newInputStream(directory.resolve(info.getName()));
+    }
+
+}
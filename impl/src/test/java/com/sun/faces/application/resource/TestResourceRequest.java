@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockResourceHandler;
+import com.sun.faces.mock.MockServletContext;
+
+/**
+ * A resource request made current with {@link FacesContext#getCurrentInstance()},
+ * which records the response it gets.
+ */
+class TestResourceRequest {
+
+    final MockServletContext servletContext = new MockServletContext();
+    final Map<String, String> requestHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    final Map<String, String> requestParameters = new HashMap<>();
+    final Map<String, Object> applicationMap = new HashMap<>();
+    final Map<String, String> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    int responseStatus = 200;
+    int responseContentLength = -1;
+    String responseContentType;
+
+    final FacesContext facesContext;
+
+
+    TestResourceRequest() {
+
+        ExternalContext externalContext = new MockExternalContext(servletContext, null, null) {
+            @Override
+            public Map getApplicationMap() {
+                return applicationMap;
+            }
+
+            @Override
+            public Map getRequestParameterMap() {
+                return requestParameters;
+            }
+
+            @Override
+            public Map getRequestHeaderMap() {
+                return requestHeaders;
+            }
+
+            @Override
+            public Map getRequestHeaderValuesMap() {
+                Map<String, String[]> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                    values.put(header.getKey(), new String[] { header.getValue() });
+                }
+                return values;
+            }
+
+            @Override
+            public String getRequestContextPath() {
+                return "/app";
+            }
+
+            @Override
+            public void setResponseHeader(String name, String value) {
+                responseHeaders.put(name, value);
+            }
+
+            @Override
+            public void addResponseHeader(String name, String value) {
+                String current = responseHeaders.get(name);
+                responseHeaders.put(name, (current != null) ? current + ", " + value : value);
+            }
+
+            @Override
+            public void setResponseStatus(int statusCode) {
+                responseStatus = statusCode;
+            }
+
+            @Override
+            public void setResponseContentLength(int length) {
+                responseContentLength = length;
+            }
+
+            @Override
+            public void setResponseContentType(String contentType) {
+                responseContentType = contentType;
+            }
+
+            @Override
+            public OutputStream getResponseOutputStream() {
+                return responseBody;
+            }
+
+            @Override
+            public boolean isResponseCommitted() {
+                return false;
+            }
+        };
+
+        MockApplication application = new MockApplication();
+        application.setResourceHandler(new MockResourceHandler() {
+            @Override
+            public boolean isResourceRequest(FacesContext context) {
+                return true;
+            }
+        });
+        MockFacesContext context = new MockFacesContext(externalContext);
+        context.setApplication(application);
+        this.facesContext = context;
+
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.faces.context.ExternalContext;
+
+import org.junit.Test;
+
+import com.sun.faces.mock.MockExternalContext;
+
+public class WebappResourceIndexTest {
+
+    @Test
+    public void lookups() {
+        WebappResourceIndex index = WebappResourceIndex.build(webapp(), -1, "/resources", "/contracts");
+        assertThat(index.exists("/resources/lib/1_0/script.js"), is(true));
+        assertThat(index.exists("/resources/lib/1_0"), is(true));
+        assertThat(index.exists("/resources/img.png"), is(true));
+        assertThat(index.exists("/contracts/c1/a.css"), is(true));
+        assertThat(index.exists("/resources/lib/missing.js"), is(false));
+        assertThat(index.exists("/resources/img.png/x"), is(false));
+        assertThat(index.getResourcePaths("/resources/lib"),
+                   is(paths("/resources/lib/1_0/", "/resources/lib/style.css")));
+        assertThat(index.getResourcePaths("/resources/lib/"),
+                   is(paths("/resources/lib/1_0/", "/resources/lib/style.css")));
+        assertThat(index.getResourcePaths("/resources/img.png"), is(nullValue()));
+        assertThat(index.getResourcePaths("/resources/missing"), is(nullValue()));
+    }
+
+    @Test
+    public void onlyBaseDirectoriesAreIndexed() {
+        WebappResourceIndex index = WebappResourceIndex.build(webapp(), -1, "/resources", "/contracts");
+        assertThat(index.isIndexed("/resources"), is(true));
+        assertThat(index.isIndexed("/resources/"), is(true));
+        assertThat(index.isIndexed("/resources/lib/missing.js"), is(true));
+        assertThat(index.isIndexed("/contracts/c1"), is(true));
+        assertThat(index.isIndexed("/resourcesX/lib"), is(false));
+        assertThat(index.isIndexed("/resource"), is(false));
+        assertThat(index.isIndexed("/WEB-INF/web.xml"), is(false));
+    }
+
+    @Test
+    public void indexExpires() {
+        assertThat(WebappResourceIndex.build(webapp(), -1, "/resources").isExpired(), is(false));
+        assertThat(WebappResourceIndex.build(webapp(), 1, "/resources").isExpired(), is(false));
+        WebappResourceIndex index = WebappResourceIndex.build(webapp(), 0, "/resources");
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException ignored) {
+        }
+        assertThat(index.isExpired(), is(true));
+    }
+
+    @Test
+    public void tooManyEntriesAreNotIndexed() {
+        Map<String,Set<String>> dirs = new HashMap<>();
+        Set<String> files = new HashSet<>();
+        for (int i = 0; i <= WebappResourceIndex.MAX_ENTRIES; i++) {
+            files.add("/resources/file" + i + ".js");
+        }
+        dirs.put("/resources/", files);
+        WebappResourceIndex index = WebappResourceIndex.build(externalContext(dirs), -1, "/resources");
+        assertThat(index.isIndexed("/resources/file0.js"), is(false));
+        assertThat(index.isIndexed("/resources"), is(false));
+    }
+
+    private static ExternalContext webapp() {
+        Map<String,Set<String>> dirs = new HashMap<>();
+        dirs.put("/resources/", paths("/resources/lib/", "/resources/img.png"));
+        dirs.put("/resources/lib/", paths("/resources/lib/1_0/", "/resources/lib/style.css"));
+        dirs.put("/resources/lib/1_0/", paths("/resources/lib/1_0/script.js"));
+        dirs.put("/contracts/", paths("/contracts/c1/"));
+        dirs.put("/contracts/c1/", paths("/contracts/c1/a.css"));
+        return externalContext(dirs);
+    }
+
+    private static ExternalContext externalContext(final Map<String,Set<String>> dirs) {
+        return new MockExternalContext(null, null, null) {
+            @Override
+            public Set<String> getResourcePaths(String path) {
+                return dirs.get(path);
+            }
+        };
+    }
+
+    private static Set<String> paths(String... paths) {
+        return new HashSet<>(Arrays.asList(paths));
+    }
+
+}
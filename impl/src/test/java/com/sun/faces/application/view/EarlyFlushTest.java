@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.view;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import javax.faces.component.UIForm;
+import javax.faces.component.UIOutput;
+import javax.faces.context.FacesContext;
+import javax.faces.context.ResponseWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockServletContext;
+import com.sun.faces.renderkit.html_basic.HtmlResponseWriter;
+
+public class EarlyFlushTest {
+
+    private final StringWriter flushed = new StringWriter();
+    private final StringWriter response = new StringWriter() {
+        @Override
+        public void flush() {
+            flushed.getBuffer().setLength(0);
+            flushed.write(toString());
+        }
+    };
+
+    private FacesContext context;
+    private UIOutput output;
+
+    @Before
+    public void setUp() {
+        context = new MockFacesContext(new MockExternalContext(new MockServletContext(), null, null) {
+            @Override
+            public Writer getResponseOutputWriter() {
+                return response;
+            }
+
+            @Override
+            public void responseFlushBuffer() {
+                throw new AssertionError("the Flash must not be finalized during rendering");
+            }
+
+        });
+
+        UIForm form = new UIForm();
+        form.setId("form");
+        form.setRendererType(null);
+        output = new UIOutput();
+        output.setId("out");
+        output.setRendererType(null);
+        form.getChildren().add(output);
+    }
+
+    @After
+    public void tearDown() {
+        context.release();
+    }
+
+    @Test
+    public void flushWritesThroughResponseWriter() throws IOException {
+        ResponseWriter writer = createWriter();
+        writer.startElement("head", null);
+        writer.startElement("title", null);
+
+        EarlyFlush.flush(context);
+
+        assertThat(flushed.toString(), is("<head><title>"));
+        assertThat(EarlyFlush.isFlushed(context), is(true));
+    }
+
+    @Test
+    public void responseIsFlushedAfterComponentWithClientId() throws IOException {
+        ResponseWriter writer = createWriter("form:out");
+        writer.startElement("div", output);
+        writer.startElement("span", output);
+        writer.endElement("span");
+        assertThat(EarlyFlush.isFlushed(context), is(false));
+        writer.endElement("div");
+
+        assertThat(flushed.toString(), is("<div><span></span></div>"));
+        writer.startElement("p", null);
+        writer.endElement("p");
+        assertThat(flushed.toString(), is("<div><span></span></div>"));
+    }
+
+    @Test
+    public void componentIdIsNotClientId() throws IOException {
+        ResponseWriter writer = createWriter("out");
+        writer.startElement("div", output);
+        writer.endElement("div");
+
+        assertThat(EarlyFlush.isFlushed(context), is(false));
+        assertThat(flushed.toString(), is(""));
+    }
+
+    @Test
+    public void errorIsWrittenInline() throws IOException {
+        ResponseWriter writer = createWriter();
+        writer.startElement("body", null);
+        EarlyFlush.flush(context);
+
+        EarlyFlush.writeError(context);
+
+        assertThat(flushed.toString(), is("<body><div role=\"alert\">An error occurred while rendering this page.</div>"));
+        assertThat(context.getResponseComplete(), is(true));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private ResponseWriter createWriter(String... clientIds) {
+        context.getAttributes().put(EarlyFlush.COMPONENT_IDS_KEY, new HashSet<>(Arrays.asList(clientIds)));
+        ResponseWriter writer = new HtmlResponseWriter(response, "text/html", "UTF-8");
+        context.setResponseWriter(writer);
+        return writer;
+    }
+
+}
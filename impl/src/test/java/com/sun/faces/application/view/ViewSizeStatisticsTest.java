@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.view;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.application.view.ViewSizeStatistics.ViewSize;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockServletContext;
+
+public class ViewSizeStatisticsTest {
+
+    private MockServletContext servletContext;
+    private ViewSizeStatistics statistics;
+
+    @Before
+    public void setUp() {
+        servletContext = new MockServletContext();
+        statistics = ViewSizeStatistics.getInstance(new MockExternalContext(servletContext, null, null));
+    }
+
+    @Test
+    public void instanceIsSharedByTheApplication() {
+        assertThat(ViewSizeStatistics.getInstance(new MockExternalContext(servletContext, null, null)),
+                   sameInstance(statistics));
+    }
+
+    @Test
+    public void concurrentRequestsGetTheSameInstance() throws Exception {
+        MockServletContext servletContext = new MockServletContext();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<ViewSizeStatistics>> instances = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                instances.add(executor.submit((Callable<ViewSizeStatistics>) () -> {
+                    MockExternalContext extContext = new MockExternalContext(servletContext, null, null);
+                    start.await();
+                    return ViewSizeStatistics.getInstance(extContext);
+                }));
+            }
+            start.countDown();
+            ViewSizeStatistics first = instances.get(0).get();
+            for (Future<ViewSizeStatistics> instance : instances) {
+                assertThat(instance.get(), sameInstance(first));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void unknownViewHasNoEstimates() {
+        assertThat(statistics.getRenderedSize("/index.xhtml", false), is(-1));
+        assertThat(statistics.getStateSize("/index.xhtml", false), is(-1));
+    }
+
+    @Test
+    public void firstRenderIsTheEstimate() {
+        statistics.record("/index.xhtml", false, 1000, 200);
+
+        assertThat(statistics.getRenderedSize("/index.xhtml", false), is(1000));
+        assertThat(statistics.getStateSize("/index.xhtml", false), is(200));
+    }
+
+    @Test
+    public void laterRendersWeighAnEighth() {
+        statistics.record("/index.xhtml", false, 1000, 200);
+        statistics.record("/index.xhtml", false, 1800, 40);
+
+        assertThat(statistics.getRenderedSize("/index.xhtml", false), is(1100));
+        assertThat(statistics.getStateSize("/index.xhtml", false), is(180));
+
+        statistics.record("/index.xhtml", false, 300, 180);
+
+        assertThat(statistics.getRenderedSize("/index.xhtml", false), is(1000));
+        assertThat(statistics.getStateSize("/index.xhtml", false), is(180));
+    }
+
+    @Test
+    public void rendersWithoutStateKeepTheStateEstimate() {
+        statistics.record("/index.xhtml", false, 1000, 200);
+        statistics.record("/index.xhtml", false, 1000, -1);
+
+        assertThat(statistics.getStateSize("/index.xhtml", false), is(200));
+        assertThat(statistics.getViewSizes().get("/index.xhtml").getRenderCount(false), is(2L));
+    }
+
+    @Test
+    public void partialRendersAreTrackedSeparately() {
+        statistics.record("/index.xhtml", false, 1000, 200);
+        statistics.record("/index.xhtml", true, 100, 200);
+
+        assertThat(statistics.getRenderedSize("/index.xhtml", false), is(1000));
+        assertThat(statistics.getRenderedSize("/index.xhtml", true), is(100));
+        ViewSize size = statistics.getViewSizes().get("/index.xhtml");
+        assertThat(size.getRenderCount(false), is(1L));
+        assertThat(size.getRenderCount(true), is(1L));
+    }
+
+    @Test
+    public void viewSizesAreASnapshot() {
+        statistics.record("/index.xhtml", false, 1000, 200);
+        Map<String, ViewSize> sizes = statistics.getViewSizes();
+        statistics.record("/index.xhtml", false, 1800, 200);
+
+        assertThat(sizes.get("/index.xhtml").getRenderedSize(false), is(1000));
+        assertThat(sizes.get("/index.xhtml").getRenderCount(false), is(1L));
+    }
+
+    @Test
+    public void numberOfViewsIsBounded() {
+        for (int i = 0; i < 1024; i++) {
+            statistics.record("/view" + i + ".xhtml", false, 1000, -1);
+        }
+        statistics.record("/view1024.xhtml", false, 1000, -1);
+        statistics.record("/view0.xhtml", false, 1800, -1);
+
+        assertThat(statistics.getRenderedSize("/view1024.xhtml", false), is(-1));
+        assertThat(statistics.getRenderedSize("/view0.xhtml", false), is(1100));
+        assertThat(statistics.getViewSizes().size(), is(1024));
+    }
+
+    @Test
+    public void responseBufferFitsTheEstimate() {
+        // 1000 chars of ISO-8859-1 are 1000 bytes, plus a quarter
+        assertThat(FaceletViewHandlingStrategy.getResponseBufferSize(1000, "ISO-8859-1", 8192), is(2048));
+        // UTF-8 takes up to three bytes per char
+        assertThat(FaceletViewHandlingStrategy.getResponseBufferSize(1000, "UTF-8", 8192), is(4096));
+    }
+
+    @Test
+    public void responseBufferIsBounded() {
+        assertThat(FaceletViewHandlingStrategy.getResponseBufferSize(10, "UTF-8", 8192), is(512));
+        assertThat(FaceletViewHandlingStrategy.getResponseBufferSize(100000, "UTF-8", 8192), is(8192));
+    }
+
+    @Test
+    public void responseBufferIsNotShrunkWithoutEstimate() {
+        assertThat(FaceletViewHandlingStrategy.getResponseBufferSize(-1, "UTF-8", 8192), is(8192));
+        assertThat(FaceletViewHandlingStrategy.getResponseBufferSize(1000, "x-no-such-charset", 8192), is(8192));
+    }
+
+}
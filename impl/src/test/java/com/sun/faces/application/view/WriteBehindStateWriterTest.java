@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.application.view;
+
+import static com.sun.faces.RIConstants.SAVESTATE_FIELD_MARKER;
+import static com.sun.faces.config.WebConfiguration.BooleanWebContextInitParameter.StreamServerState;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import javax.faces.application.StateManager;
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockServletContext;
+import com.sun.faces.renderkit.html_basic.HtmlResponseWriter;
+
+public class WriteBehindStateWriterTest {
+
+    private final StringWriter response = new StringWriter();
+
+    private MockServletContext servletContext;
+    private MockFacesContext context;
+    private TestStateManager stateManager;
+    private WriteBehindStateWriter writer;
+
+    @Before
+    public void setUp() {
+        servletContext = new MockServletContext();
+        context = new MockFacesContext(new MockExternalContext(servletContext, null, null));
+        MockApplication application = new MockApplication();
+        stateManager = new TestStateManager();
+        application.setStateManager(stateManager);
+        context.setApplication(application);
+        context.setViewRoot(new UIViewRoot());
+    }
+
+    @After
+    public void tearDown() {
+        if (writer != null) {
+            writer.release();
+        }
+        context.release();
+    }
+
+    @Test
+    public void stateIsWrittenIntoEveryForm() throws IOException {
+        writer = createWriter(1024);
+        writer.write("<html>");
+        writeMarker();
+        writer.write("</form><form>");
+        writeMarker();
+        writer.write("</html>");
+
+        assertThat(response.toString(), is("<html>"));
+        writer.flushToWriter();
+
+        String expected = "<html><state1/></form><form><state2/></html>";
+        assertThat(response.toString(), is(expected));
+        assertThat(stateManager.saves, is(1));
+        assertThat(writer.getRenderedSize(), is(expected.length()));
+        assertThat(writer.getStateSize(), is("<state1/>".length()));
+    }
+
+    @Test
+    public void contentIsCopiedInChunksOfTheBufferSize() throws IOException {
+        // markers and states straddle the chunks written to the response
+        writer = createWriter(5);
+        writer.write("<html>");
+        writeMarker();
+        writer.write("<p>");
+        writeMarker();
+        writer.write("</html>");
+        writer.flushToWriter();
+
+        assertThat(response.toString(), is("<html><state1/><p><state2/></html>"));
+    }
+
+    @Test
+    public void markerSplitAcrossWritesIsFound() throws IOException {
+        writer = createWriter(1024);
+        writer.write("<html>");
+        writer.writingState();
+        int half = SAVESTATE_FIELD_MARKER.length() / 2;
+        writer.write(SAVESTATE_FIELD_MARKER.substring(0, half));
+        writer.write(SAVESTATE_FIELD_MARKER.toCharArray(), half, SAVESTATE_FIELD_MARKER.length() - half);
+        writer.writingState();
+        writer.write("<p>" + SAVESTATE_FIELD_MARKER + "</html>");
+        writer.flushToWriter();
+
+        assertThat(response.toString(), is("<html><state1/><p><state2/></html>"));
+    }
+
+    @Test
+    public void unannouncedMarkers() throws IOException {
+        writer = createWriter(1024);
+        // nothing is buffered yet, so this one can't be replaced
+        writer.write(SAVESTATE_FIELD_MARKER);
+        writeMarker();
+        // recorded as it is written on its own once content is buffered
+        writer.write(SAVESTATE_FIELD_MARKER);
+        writer.flushToWriter();
+
+        assertThat(response.toString(), is(SAVESTATE_FIELD_MARKER + "<state1/><state2/>"));
+    }
+
+    @Test
+    public void textResemblingMarkerIsLeftAlone() throws IOException {
+        writer = createWriter(1024);
+        writeMarker();
+        String text = SAVESTATE_FIELD_MARKER.substring(0, SAVESTATE_FIELD_MARKER.length() - 1);
+        writer.write(text);
+        writer.flushToWriter();
+
+        assertThat(response.toString(), is("<state1/>" + text));
+    }
+
+    @Test
+    public void serverStateIsNotStreamedByDefault() {
+        writer = createWriter(1024);
+
+        assertThat(writer.isStreamingState(), is(false));
+    }
+
+    @Test
+    public void serverStateIsStreamedIfEnabled() {
+        servletContext.addInitParameter(StreamServerState.getQualifiedName(), "true");
+        writer = createWriter(1024);
+
+        assertThat(writer.isStreamingState(), is(true));
+    }
+
+    @Test
+    public void clientStateIsNeverStreamed() {
+        servletContext.addInitParameter(StreamServerState.getQualifiedName(), "true");
+        stateManager.client = true;
+        writer = createWriter(1024);
+
+        assertThat(writer.isStreamingState(), is(false));
+    }
+
+    @Test
+    public void stateOfTransientViewIsStreamed() {
+        stateManager.client = true;
+        context.getViewRoot().setTransient(true);
+        writer = createWriter(1024);
+
+        assertThat(writer.isStreamingState(), is(true));
+    }
+
+    @Test
+    public void streamedStateIsWrittenRightAway() throws IOException {
+        servletContext.addInitParameter(StreamServerState.getQualifiedName(), "true");
+        writer = createWriter(1024);
+        context.setResponseWriter(new HtmlResponseWriter(writer, "text/html", "UTF-8"));
+
+        writer.write("<form>");
+        writer.writeStreamingState();
+        writer.write("</form><form>");
+        writer.writeStreamingState();
+        writer.write("</form>");
+
+        assertThat(writer.stateWritten(), is(false));
+        assertThat(response.toString(), is("<form><state1/></form><form><state2/></form>"));
+        assertThat(stateManager.saves, is(1));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private WriteBehindStateWriter createWriter(int bufSize) {
+        // creates the WebConfiguration, so after the tests add parameters
+        context.setResponseWriter(new HtmlResponseWriter(new StringWriter(), "text/html", "UTF-8"));
+        return new WriteBehindStateWriter(response, context, bufSize);
+    }
+
+    /**
+     * Write the marker the way MultiViewHandler does.
+     */
+    private void writeMarker() throws IOException {
+        writer.writingState();
+        writer.write(SAVESTATE_FIELD_MARKER);
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    private static final class TestStateManager extends StateManager {
+
+        private boolean client;
+        private int saves;
+        private int writes;
+
+        @Override
+        public Object saveView(FacesContext context) {
+            saves++;
+            return "state";
+        }
+
+        @Override
+        public void writeState(FacesContext context, Object state) throws IOException {
+            context.getResponseWriter().write("<" + state + ++writes + "/>");
+        }
+
+        @Override
+        public boolean isSavingStateInClient(FacesContext context) {
+            return client;
+        }
+
+        @Override
+        public UIViewRoot restoreView(FacesContext context, String viewId, String renderKitId) {
+            return null;
+        }
+
+    }
+
+}
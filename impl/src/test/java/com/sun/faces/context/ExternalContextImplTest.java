@@ -16,6 +16,8 @@
 
 package com.sun.faces.context;
 
+import java.io.ByteArrayOutputStream;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -23,10 +25,15 @@ import java.util.Map.Entry;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 import static org.easymock.EasyMock.expect;
@@ -35,6 +42,11 @@ import static org.easymock.EasyMock.verify;
 import org.junit.Test;
 import org.powermock.api.easymock.PowerMock;
 
+import com.sun.faces.io.ByteEncodingWriter;
+import com.sun.faces.mock.MockHttpServletRequest;
+import com.sun.faces.mock.MockHttpServletResponse;
+import com.sun.faces.mock.MockServletContext;
+
 /**
  * The JUnit tests for the ExternalContextImpl class.
  */
@@ -180,6 +192,55 @@ public class ExternalContextImplTest {
         verifySupplier(() -> requestCookieMap.remove("foo"));
     }
 
+    /**
+     * Test that responseReset drops the direct response encoding writer,
+     * so the next writer uses the encoding set after the reset.
+     */
+    @Test
+    public void testResponseResetDiscardsEncodingWriter() throws Exception {
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.addInitParameter(ContextParam.EnableDirectResponseEncoding.getName(), "true");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MockHttpServletResponse response = new MockHttpServletResponse() {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(int b) {
+                        bytes.write(b);
+                    }
+                    @Override
+                    public boolean isReady() {
+                        return true;
+                    }
+                    @Override
+                    public void setWriteListener(WriteListener listener) {
+                    }
+                };
+            }
+            @Override
+            public void reset() {
+                bytes.reset();
+            }
+        };
+
+        ExternalContextImpl externalContext = new ExternalContextImpl(servletContext, request, response);
+        Writer writer = externalContext.getResponseOutputWriter();
+        assertTrue(writer instanceof ByteEncodingWriter);
+        assertTrue(request.getAttribute(ExternalContextImpl.RESPONSE_ENCODING_WRITER_KEY) == writer);
+        writer.write("discarded \u00e9");
+
+        externalContext.responseReset();
+        assertNull(request.getAttribute(ExternalContextImpl.RESPONSE_ENCODING_WRITER_KEY));
+        externalContext.setResponseCharacterEncoding("UTF-8");
+        Writer next = externalContext.getResponseOutputWriter();
+        assertNotSame(writer, next);
+        next.write("kept \u00e9");
+        ((ByteEncodingWriter) next).flushBuffer();
+        assertEquals("kept \u00e9", bytes.toString("UTF-8"));
+    }
+
     /**
      * Verify that the passed consumer throws an UnsupportedOperationException.
      *
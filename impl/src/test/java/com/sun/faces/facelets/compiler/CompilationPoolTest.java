@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.compiler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.sun.faces.facelets.el.ELText;
+
+public class CompilationPoolTest {
+
+    @Test
+    public void equalStringsAreShared() {
+        CompilationPool pool = new CompilationPool();
+        CompilationPool.Footprint footprint = new CompilationPool.Footprint();
+        String first = new String("styleClass");
+
+        assertThat(pool.intern(first, footprint), sameInstance(first));
+        assertThat(pool.intern(first, footprint), sameInstance(first));
+        assertThat(footprint.getShared(), is(0));
+
+        assertThat(pool.intern(new String("styleClass"), footprint), sameInstance(first));
+        assertThat(footprint.getShared(), is(1));
+        assertThat(footprint.getBytes(), is(40L + 2 * "styleClass".length()));
+
+        assertThat(pool.intern(null, footprint), nullValue());
+    }
+
+    @Test
+    public void textsAreSharedBySource() {
+        CompilationPool pool = new CompilationPool();
+        CompilationPool.Footprint footprint = new CompilationPool.Footprint();
+        ELText first = new ELText("Hello");
+
+        assertThat(pool.intern("Hello", first, footprint), sameInstance(first));
+        assertThat(pool.intern("Hello", new ELText("Hello"), footprint), sameInstance(first));
+        assertThat(pool.intern("World", new ELText("World"), footprint), not(sameInstance(first)));
+        assertThat(footprint.getShared(), is(1));
+
+        assertThat(pool.intern("Hello", null, footprint), nullValue());
+    }
+
+    @Test
+    public void unusedEntriesAreReleased() throws InterruptedException {
+        CompilationPool pool = new CompilationPool();
+        CompilationPool.Footprint footprint = new CompilationPool.Footprint();
+        WeakReference<String> string = new WeakReference<>(pool.intern(new String("released"), footprint));
+        WeakReference<ELText> text = new WeakReference<>(pool.intern("released", new ELText("released"), footprint));
+
+        for (int i = 0; i < 50 && (string.get() != null || text.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(string.get(), nullValue());
+        assertThat(text.get(), nullValue());
+        ELText replacement = new ELText("released");
+        assertThat(pool.intern("released", replacement, footprint), sameInstance(replacement));
+        assertThat(footprint.getShared(), is(0));
+    }
+
+    @Test
+    public void concurrentCompilationsShareOneInstance() throws Exception {
+        final CompilationPool pool = new CompilationPool();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String[]>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<String[]>() {
+                    @Override
+                    public String[] call() throws InterruptedException {
+                        CompilationPool.Footprint footprint = new CompilationPool.Footprint();
+                        String[] interned = new String[100];
+                        start.await();
+                        for (int i = 0; i < interned.length; i++) {
+                            interned[i] = pool.intern(new String("value" + i), footprint);
+                        }
+                        return interned;
+                    }
+                }));
+            }
+            start.countDown();
+
+            String[] expected = results.get(0).get();
+            for (Future<String[]> result : results) {
+                String[] interned = result.get();
+                for (int i = 0; i < interned.length; i++) {
+                    assertThat(interned[i], sameInstance(expected[i]));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
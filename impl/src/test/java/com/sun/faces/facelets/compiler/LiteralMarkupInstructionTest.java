@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.compiler;
+
+import com.sun.faces.renderkit.html_basic.HtmlResponseWriter;
+
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import javax.faces.context.FacesContext;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LiteralMarkupInstructionTest {
+
+    @Before
+    public void setUp() throws Exception {
+        Method method = FacesContext.class.getDeclaredMethod("setCurrentInstance", FacesContext.class);
+        method.setAccessible(true);
+        method.invoke(null, new Object[] { null });
+    }
+
+    /**
+     * A balanced run is collapsed into one block that matches the output
+     * of the HtmlResponseWriter for the same calls.
+     */
+    @Test
+    public void testCoalesceBalancedRun() throws Exception {
+        Instruction[] instructions = new Instruction[] {
+            new LiteralTextInstruction("\n  "),
+            new StartElementInstruction("div"),
+            new LiteralAttributeInstruction("class", "a&b"),
+            new StartElementInstruction("br"),
+            new EndElementInstruction("br"),
+            new StartElementInstruction("span"),
+            new EndElementInstruction("span"),
+            new LiteralTextInstruction("text"),
+            new EndElementInstruction("div")
+        };
+
+        Instruction[] coalesced = LiteralMarkupInstruction.coalesce(instructions);
+        assertEquals(1, coalesced.length);
+        assertTrue(coalesced[0] instanceof LiteralMarkupInstruction);
+
+        StringWriter expected = new StringWriter();
+        HtmlResponseWriter writer = new HtmlResponseWriter(expected, "text/html", "UTF-8");
+        writer.write("\n  ");
+        writer.startElement("div", null);
+        writer.writeAttribute("class", "a&b", null);
+        writer.startElement("br", null);
+        writer.endElement("br");
+        writer.startElement("span", null);
+        writer.endElement("span");
+        writer.write("text");
+        writer.endElement("div");
+        writer.flush();
+
+        assertEquals(expected.toString(), coalesced[0].toString());
+    }
+
+    /**
+     * Unbalanced elements and text that needs escaping are left alone.
+     */
+    @Test
+    public void testCoalesceStopsAtUnbalancedOrEscapedContent() throws Exception {
+        Instruction[] instructions = new Instruction[] {
+            new StartElementInstruction("p"),
+            new EndElementInstruction("p"),
+            new StartElementInstruction("div"),
+            new LiteralTextInstruction("a < b")
+        };
+
+        Instruction[] coalesced = LiteralMarkupInstruction.coalesce(instructions);
+        assertEquals(3, coalesced.length);
+        assertEquals("<p></p>", coalesced[0].toString());
+        assertSame(instructions[2], coalesced[1]);
+        assertSame(instructions[3], coalesced[2]);
+    }
+
+    /**
+     * Elements the writer tracks state for are never coalesced.
+     */
+    @Test
+    public void testCoalesceSkipsScriptElements() throws Exception {
+        Instruction[] instructions = new Instruction[] {
+            new StartElementInstruction("script"),
+            new LiteralAttributeInstruction("src", "a.js"),
+            new EndElementInstruction("script")
+        };
+
+        assertSame(instructions, LiteralMarkupInstruction.coalesce(instructions));
+    }
+}
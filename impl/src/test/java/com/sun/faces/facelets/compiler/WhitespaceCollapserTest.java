@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.sun.faces.facelets.tag.jsf.html.HtmlDecorator;
+
+public class WhitespaceCollapserTest {
+
+    private static final String XHTML = HtmlDecorator.XhtmlNamespace;
+    private static final String JSF_HTML = "http://xmlns.jcp.org/jsf/html";
+    private static final String SVG = "http://www.w3.org/2000/svg";
+
+    /**
+     * Whitespace next to block-level elements is removed.
+     */
+    @Test
+    public void testBlockBoundaries() {
+        WhitespaceCollapser collapser = new WhitespaceCollapser();
+        StringBuilder out = new StringBuilder();
+        out.append(start(collapser, "\n  ", XHTML, "div"));
+        out.append(start(collapser, "\n    ", XHTML, "p"));
+        out.append(end(collapser, "  text  "));
+        out.append(end(collapser, "\n  "));
+        out.append(collapser.flush());
+        assertEquals("text", out.toString());
+    }
+
+    /**
+     * Whitespace between inline elements is kept as a single space.
+     */
+    @Test
+    public void testInlineBoundaries() {
+        WhitespaceCollapser collapser = new WhitespaceCollapser();
+        assertEquals("", start(collapser, "", XHTML, "p"));
+        assertEquals("", start(collapser, "", JSF_HTML, "link"));
+        assertEquals("", end(collapser, ""));
+        assertEquals(" ", start(collapser, " \n ", JSF_HTML, "link"));
+        assertEquals("", end(collapser, ""));
+        assertEquals(" ", start(collapser, "\n\t", XHTML, "span"));
+        assertEquals(" a  b ", end(collapser, "  a  b  "));
+        assertEquals("", end(collapser, "\n"));
+    }
+
+    /**
+     * Block element names outside of the (X)HTML namespace are inline, on
+     * both sides of the element.
+     */
+    @Test
+    public void testNonHtmlNamespaces() {
+        WhitespaceCollapser collapser = new WhitespaceCollapser();
+        assertEquals("", start(collapser, "", XHTML, "div"));
+        assertEquals("a ", start(collapser, "  a  ", JSF_HTML, "form"));
+        assertEquals(" b ", start(collapser, "  b  ", SVG, "title"));
+        assertEquals(" c ", end(collapser, "  c  "));
+        assertEquals(" d ", end(collapser, "  d  "));
+        assertEquals(" e", end(collapser, "  e  "));
+        assertEquals("", collapser.flush());
+    }
+
+    /**
+     * Text inside pre, textarea and script is left untouched, and
+     * collapsing resumes after the element.
+     */
+    @Test
+    public void testPreservedElements() {
+        for (String name : new String[] { "pre", "textarea", "script" }) {
+            WhitespaceCollapser collapser = new WhitespaceCollapser();
+            assertEquals("", start(collapser, "\n", XHTML, "div"));
+            start(collapser, "", XHTML, name);
+            assertEquals(name, "  x\n  y  ", end(collapser, "  x\n  y  "));
+            assertEquals(name, "pre".equals(name) ? "z" : " z", end(collapser, "  z\n"));
+        }
+    }
+
+    /**
+     * Elements nested in a preserved element don't end the preservation.
+     */
+    @Test
+    public void testNestedPreservedElement() {
+        WhitespaceCollapser collapser = new WhitespaceCollapser();
+        start(collapser, "", XHTML, "div");
+        start(collapser, "", XHTML, "pre");
+        assertEquals("  a  ", start(collapser, "  a  ", XHTML, "span"));
+        assertEquals("  b  ", end(collapser, "  b  "));
+        assertEquals("  c  ", end(collapser, "  c  "));
+        assertEquals("d", end(collapser, "  d\n"));
+    }
+
+    /**
+     * Text inside CDATA is left untouched.
+     */
+    @Test
+    public void testCDATA() {
+        WhitespaceCollapser collapser = new WhitespaceCollapser();
+        start(collapser, "", XHTML, "div");
+        collapser.startCDATA();
+        collapser.text("  a\n  b  ");
+        assertEquals("  a\n  b  ", collapser.flush());
+        collapser.endCDATA();
+        assertEquals("c", end(collapser, "  c  "));
+    }
+
+    private static String start(WhitespaceCollapser collapser, String text, String ns, String name) {
+        collapser.text(text);
+        return collapser.startElement(ns, name);
+    }
+
+    private static String end(WhitespaceCollapser collapser, String text) {
+        collapser.text(text);
+        return collapser.endElement();
+    }
+
+}
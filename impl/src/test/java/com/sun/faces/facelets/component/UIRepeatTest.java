@@ -20,9 +20,14 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 
 import javax.faces.application.FacesMessage;
 import javax.faces.application.FacesMessage.Severity;
+import javax.faces.component.UIColumn;
+import javax.faces.component.UIData;
+import javax.faces.component.UIOutput;
+import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
 
 import junit.framework.TestCase;
@@ -31,6 +36,12 @@ import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.Test;
 
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockHttpServletRequest;
+import com.sun.faces.mock.MockServletContext;
+
 public class UIRepeatTest extends TestCase {
 
 	private FacesContext jsf;
@@ -60,6 +71,111 @@ public class UIRepeatTest extends TestCase {
 		assertEquals(true, hasErrorMessages(jsf));
 	}
 
+	@Test
+	public void testRowClientId() throws Exception {
+		FacesContext context = createFacesContext();
+		try {
+			UIRepeat repeat = createRepeat(context, "r");
+			UIOutput out = new UIOutput();
+			out.setRendererType(null);
+			out.setId("out");
+			repeat.getChildren().add(out);
+
+			setIndex(context, repeat, 0);
+			String clientId = repeat.getClientId(context);
+			assertEquals("r:0", clientId);
+			assertSame(clientId, repeat.getClientId(context));
+			assertEquals("r:0:out", out.getClientId(context));
+
+			setIndex(context, repeat, 1);
+			assertEquals("r:1", repeat.getClientId(context));
+			assertEquals("r:1:out", out.getClientId(context));
+
+			setIndex(context, repeat, -1);
+			assertEquals("r", repeat.getClientId(context));
+		} finally {
+			context.release();
+		}
+	}
+
+	@Test
+	public void testRowClientIdAfterSetId() throws Exception {
+		FacesContext context = createFacesContext();
+		try {
+			UIRepeat repeat = createRepeat(context, "r");
+			setIndex(context, repeat, 0);
+			assertEquals("r:0", repeat.getClientId(context));
+
+			repeat.setId("other");
+			assertEquals("other:0", repeat.getClientId(context));
+		} finally {
+			context.release();
+		}
+	}
+
+	@Test
+	public void testNestedDataClientId() throws Exception {
+		FacesContext context = createFacesContext();
+		try {
+			UIRepeat repeat = createRepeat(context, "r");
+			UIData data = new UIData();
+			data.setRendererType(null);
+			data.setId("data");
+			data.setVar("item");
+			data.setValue(Arrays.asList("a", "b"));
+			UIColumn column = new UIColumn();
+			UIOutput out = new UIOutput();
+			out.setRendererType(null);
+			out.setId("out");
+			column.getChildren().add(out);
+			data.getChildren().add(column);
+			repeat.getChildren().add(data);
+
+			setIndex(context, repeat, 0);
+			data.setRowIndex(0);
+			assertEquals("r:0:data:0", data.getClientId(context));
+			assertEquals("r:0:data:0:out", out.getClientId(context));
+			data.setRowIndex(1);
+			assertEquals("r:0:data:1", data.getClientId(context));
+			assertEquals("r:0:data:1:out", out.getClientId(context));
+			data.setRowIndex(-1);
+
+			// same row index of the table in another row of the repeat
+			setIndex(context, repeat, 1);
+			data.setRowIndex(1);
+			assertEquals("r:1:data:1", data.getClientId(context));
+			assertEquals("r:1:data:1:out", out.getClientId(context));
+			data.setRowIndex(-1);
+			assertEquals("r:1:data", data.getClientId(context));
+		} finally {
+			context.release();
+		}
+	}
+
+	private static FacesContext createFacesContext() {
+		MockFacesContext context = new MockFacesContext(new MockExternalContext(
+				new MockServletContext(), new MockHttpServletRequest(), null));
+		context.setApplication(new MockApplication());
+		context.setViewRoot(new UIViewRoot());
+		return context;
+	}
+
+	private static UIRepeat createRepeat(FacesContext context, String id) {
+		UIRepeat repeat = new UIRepeat();
+		repeat.setRendererType(null);
+		repeat.setId(id);
+		repeat.setVar("row");
+		repeat.setValue(Arrays.asList("x", "y"));
+		context.getViewRoot().getChildren().add(repeat);
+		return repeat;
+	}
+
+	private static void setIndex(FacesContext context, UIRepeat repeat, int index) throws Exception {
+		Method setIndex = UIRepeat.class.getDeclaredMethod("setIndex", FacesContext.class, int.class);
+		setIndex.setAccessible(true);
+		setIndex.invoke(repeat, context, index);
+	}
+
 	private boolean hasErrorMessages(FacesContext context) throws Exception {
 		if (uiRepeatHasErrorMessages == null) {
 			Class<?> uiRepeatClass = Class.forName(UIRepeat.class.getName());
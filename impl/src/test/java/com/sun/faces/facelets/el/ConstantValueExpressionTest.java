@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.el;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import javax.el.PropertyNotWritableException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConstantValueExpressionTest {
+
+    /**
+     * Expressions made of literals and operators only are constant.
+     */
+    @Test
+    public void testLiteralOnly() throws Exception {
+        assertTrue(ConstantValueExpression.isLiteralOnly("#{'a'}"));
+        assertTrue(ConstantValueExpression.isLiteralOnly("#{2 * 60}"));
+        assertTrue(ConstantValueExpression.isLiteralOnly("#{not true}"));
+        assertTrue(ConstantValueExpression.isLiteralOnly("#{1.5e3 ge 10 ? \"x}\" : 'y'}"));
+        assertTrue(ConstantValueExpression.isLiteralOnly("${1 += 2}"));
+    }
+
+    /**
+     * Anything that may resolve a variable, invoke a method or assign a
+     * value is not.
+     */
+    @Test
+    public void testNotLiteralOnly() throws Exception {
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{bean.value}"));
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{fn:length('a')}"));
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{x = 1}"));
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{(x -> x)(1)}"));
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{[1, 2]}"));
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{'a'.length()}"));
+        assertFalse(ConstantValueExpression.isLiteralOnly("#{1}#{2}"));
+    }
+
+    /**
+     * Properties of immutable roots are reported so they can be checked
+     * against the VariableMapper.
+     */
+    @Test
+    public void testImmutableRoots() throws Exception {
+        Set<String> roots = ConstantValueExpression.getReferencedRoots(
+              "#{config.title} #{empty labels.missing}", Arrays.asList("config", "labels"));
+        assertNull(roots);
+
+        roots = ConstantValueExpression.getReferencedRoots(
+              "#{config.title += ' - ' += labels.suffix}", Arrays.asList("config", "labels"));
+        assertEquals(2, roots.size());
+        assertTrue(roots.contains("config"));
+        assertTrue(roots.contains("labels"));
+
+        assertNull(ConstantValueExpression.getReferencedRoots(
+              "#{config.}", Collections.singletonList("config")));
+        assertNull(ConstantValueExpression.getReferencedRoots(
+              "#{other.title}", Collections.singletonList("config")));
+    }
+
+    /**
+     * Only the expression is serialized, not the value it was folded to.
+     */
+    @Test
+    public void testSerialization() throws Exception {
+        ConstantValueExpression cve = new ConstantValueExpression("#{config.value}", Object.class, new Object());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cve);
+        }
+        ConstantValueExpression read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (ConstantValueExpression) in.readObject();
+        }
+
+        assertEquals(cve, read);
+        assertEquals("#{config.value}", read.getExpressionString());
+        assertEquals(Object.class, read.getExpectedType());
+    }
+
+    /**
+     * The expression is read only, so it has no type a value could be set
+     * with, whatever it was folded to.
+     */
+    @Test
+    public void testReadOnly() throws Exception {
+        ConstantValueExpression cve = new ConstantValueExpression("#{2 * 60}", Object.class, 120L);
+
+        assertNull(cve.getType(null));
+        assertTrue(cve.isReadOnly(null));
+        assertFalse(cve.isLiteralText());
+        assertEquals(120L, cve.getValue(null));
+        try {
+            cve.setValue(null, 60L);
+            fail();
+        } catch (PropertyNotWritableException expected) {
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.facelets.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.faces.application.ViewResource;
+import javax.faces.context.FacesContext;
+import javax.faces.view.facelets.FaceletCache;
+import javax.faces.view.facelets.ResourceResolver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.facelets.compiler.SAXCompiler;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockResourceHandler;
+
+public class DefaultFaceletFactoryTest {
+
+    private static final URL BASE = url("file:/app/");
+
+    private final List<String> resolved = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        new MockFacesContext();
+    }
+
+    @After
+    public void tearDown() {
+        FacesContext.getCurrentInstance().release();
+    }
+
+    @Test
+    public void resolvedURLIsCached() throws IOException {
+        DefaultFaceletFactory factory = createFactory(new DefaultResourceResolver(new ResolvingHandler()), -1);
+
+        assertThat(factory.resolveURL(BASE, "/page.xhtml"), is(url("file:/app/page.xhtml")));
+        assertThat(factory.resolveURL(BASE, "/page.xhtml"), is(url("file:/app/page.xhtml")));
+        assertThat(factory.resolveURL(BASE, "/other.xhtml"), is(url("file:/app/other.xhtml")));
+
+        assertThat(resolved.toString(), is("[/page.xhtml, /other.xhtml]"));
+    }
+
+    @Test
+    public void resolvedURLExpires() throws Exception {
+        DefaultFaceletFactory factory = createFactory(new DefaultResourceResolver(new ResolvingHandler()), 1);
+
+        factory.resolveURL(BASE, "/page.xhtml");
+        factory.resolveURL(BASE, "/page.xhtml");
+        assertThat(resolved.size(), is(1));
+
+        Thread.sleep(1100);
+        factory.resolveURL(BASE, "/page.xhtml");
+        assertThat(resolved.size(), is(2));
+    }
+
+    @Test
+    public void customResolverIsAlwaysAsked() throws IOException {
+        ResourceResolver custom = new ResourceResolver() {
+            @Override
+            public URL resolveUrl(String path) {
+                resolved.add(path);
+                return url("file:/custom" + path);
+            }
+        };
+        DefaultFaceletFactory factory = createFactory(custom, -1);
+
+        factory.resolveURL(BASE, "/page.xhtml");
+        factory.resolveURL(BASE, "/page.xhtml");
+
+        assertThat(resolved.toString(), is("[/page.xhtml, /page.xhtml]"));
+    }
+
+    @Test
+    public void relativePathIsResolvedAgainstSource() throws IOException {
+        DefaultFaceletFactory factory = createFactory(new DefaultResourceResolver(new ResolvingHandler()), -1);
+
+        assertThat(factory.resolveURL(url("file:/app/a/page.xhtml"), "inc.xhtml"), is(url("file:/app/a/inc.xhtml")));
+        assertThat(factory.resolveURL(url("file:/app/b/page.xhtml"), "inc.xhtml"), is(url("file:/app/b/inc.xhtml")));
+
+        assertThat(resolved.isEmpty(), is(true));
+    }
+
+    @Test
+    public void idMappersAreKeptPerView() throws Exception {
+        DefaultFaceletFactory factory = createFactory(new DefaultResourceResolver(new ResolvingHandler()), -1);
+
+        IdMapper mapper = factory.idMappers.get("/page.xhtml");
+        assertThat(factory.idMappers.get("/page.xhtml"), sameInstance(mapper));
+        assertThat(factory.idMappers.get("/other.xhtml"), not(sameInstance(mapper)));
+        assertThat(mapper.getAliasedId("id"), is("t1"));
+    }
+
+    @Test
+    public void idMappersFollowCompactIds() throws Exception {
+        DefaultFaceletFactory factory = createFactory(new DefaultResourceResolver(new ResolvingHandler()), -1);
+        factory.setCompactIds(true);
+
+        IdMapper mapper = factory.idMappers.get("/page.xhtml");
+        for (int i = 1; i < 36; i++) {
+            mapper.getAliasedId("id" + i);
+        }
+        assertThat(mapper.getAliasedId("id36"), is("t10"));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private DefaultFaceletFactory createFactory(ResourceResolver resolver, long refreshPeriod) {
+        DefaultFaceletFactory factory = new DefaultFaceletFactory(new SAXCompiler(), resolver, refreshPeriod, new EmptyFaceletCache());
+        // forget the base URL resolved by init()
+        resolved.clear();
+        return factory;
+    }
+
+    private static URL url(String spec) {
+        try {
+            return new URL(spec);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    private final class ResolvingHandler extends MockResourceHandler {
+
+        @Override
+        public ViewResource createViewResource(FacesContext context, final String path) {
+            resolved.add(path);
+            return new ViewResource() {
+                @Override
+                public URL getURL() {
+                    return url("file:/app" + path);
+                }
+            };
+        }
+
+    }
+
+    private static final class EmptyFaceletCache extends FaceletCache<DefaultFacelet> {
+
+        @Override
+        public DefaultFacelet getFacelet(URL url) {
+            return null;
+        }
+
+        @Override
+        public boolean isFaceletCached(URL url) {
+            return false;
+        }
+
+        @Override
+        public DefaultFacelet getViewMetadataFacelet(URL url) {
+            return null;
+        }
+
+        @Override
+        public boolean isViewMetadataFaceletCached(URL url) {
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.faces.facelets.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import javax.faces.component.UIViewRoot;
+import javax.faces.context.FacesContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.mock.MockFacesContext;
+
+public class IdMapperTest {
+
+    private FacesContext context;
+
+    @Before
+    public void setUp() {
+        context = new MockFacesContext();
+    }
+
+    @After
+    public void tearDown() {
+        context.release();
+    }
+
+    @Test
+    public void aliasesAreDecimalByDefault() {
+        IdMapper mapper = new IdMapper();
+
+        assertThat(aliasUpTo(mapper, 1234), is("t1234"));
+    }
+
+    @Test
+    public void compactAliasesAreBase36() {
+        IdMapper mapper = new IdMapper(true);
+
+        assertThat(mapper.getAliasedId("id1"), is("t1"));
+        assertThat(aliasUpTo(mapper, 35), is("tz"));
+        assertThat(mapper.getAliasedId("id36"), is("t10"));
+        assertThat(aliasUpTo(mapper, 1234), is("tya"));
+    }
+
+    @Test
+    public void sameIdKeepsItsAlias() {
+        IdMapper mapper = new IdMapper(true);
+        String alias = mapper.getAliasedId("/page.xhtml@12,7");
+        mapper.getAliasedId("/page.xhtml@13,7");
+
+        assertThat(mapper.getAliasedId("/page.xhtml@12,7"), sameInstance(alias));
+        assertThat(mapper.getAliasedId("/page.xhtml@13,7"), is("t2"));
+    }
+
+    @Test
+    public void compactGeneratedIdsDontCollideWithUnseededIds() {
+        UIViewRoot root = new UIViewRoot();
+        IdMapper mapper = new IdMapper(true);
+
+        assertThat(root.createUniqueId(context, null).matches("j_id[0-9]+"), is(true));
+        assertThat(root.createUniqueId(context, mapper.getAliasedId("id1")), is("j_idt1"));
+        assertThat(root.createUniqueId(context, aliasUpTo(mapper, 1234)), is("j_idtya"));
+    }
+
+    @Test
+    public void mapperIsSetOnTheContext() {
+        IdMapper mapper = new IdMapper(true);
+
+        IdMapper.setMapper(context, mapper);
+        assertThat(IdMapper.getMapper(context), sameInstance(mapper));
+
+        IdMapper.setMapper(context, null);
+        assertThat(IdMapper.getMapper(context), nullValue());
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * Aliases distinct ids until the mapper has handed out <code>count</code>
+     * aliases, and returns the last one.
+     */
+    private static String aliasUpTo(IdMapper mapper, int count) {
+        String alias = null;
+        for (int i = 1; i <= count; i++) {
+            alias = mapper.getAliasedId("id" + i);
+        }
+        return alias;
+    }
+
+}
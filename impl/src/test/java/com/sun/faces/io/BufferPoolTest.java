@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.io;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BufferPoolTest {
+
+    /**
+     * Arrays are handed out in size classes and reused once released.
+     */
+    @Test
+    public void testCharsReused() {
+        BufferPool pool = BufferPool.getInstance();
+        char[] chars = pool.acquireChars(1000);
+        assertTrue(chars.length >= 1000);
+        pool.release(chars);
+        assertSame(chars, pool.acquireChars(900));
+
+        // too large to be pooled
+        assertEquals(1000000, pool.acquireChars(1000000).length);
+    }
+
+    /**
+     * Released builders come back empty, with the capacity they grew to.
+     */
+    @Test
+    public void testBuildersReused() {
+        BufferPool pool = BufferPool.getInstance();
+        StringBuilder builder = pool.acquireBuilder(100);
+        for (int i = 0; i < 5000; i++) {
+            builder.append('x');
+        }
+        pool.release(builder);
+        StringBuilder reused = pool.acquireBuilder(3000);
+        assertSame(builder, reused);
+        assertEquals(0, reused.length());
+    }
+
+    @Test
+    public void testStatistics() {
+        BufferPool pool = BufferPool.getInstance();
+        BufferPool.Statistics before = pool.getStatistics();
+        pool.release(pool.acquireChars(200));
+        pool.release(pool.acquireChars(200));
+        BufferPool.Statistics after = pool.getStatistics();
+        assertEquals(2, after.getReturns() - before.getReturns());
+        assertEquals(2, (after.getHits() + after.getMisses())
+                        - (before.getHits() + before.getMisses()));
+        assertTrue(after.getHits() > before.getHits());
+    }
+}
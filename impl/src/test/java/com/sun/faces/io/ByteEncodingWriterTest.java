@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 1997, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.io;
+
+import java.io.ByteArrayOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ByteEncodingWriterTest {
+
+    private static final String TEXT =
+          "<p class=\"a\">caf\u00e9 \u20ac \ud83d\ude00 \u4e2d\u6587</p>";
+
+    /**
+     * The output matches the JDK encoders, also when multi-byte sequences
+     * straddle the buffer boundary.
+     */
+    @Test
+    public void testMatchesJdkEncoding() throws Exception {
+        for (String encoding : new String[] { "UTF-8", "ISO-8859-1" }) {
+            for (int size = 4; size < 12; size++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ByteEncodingWriter writer = new ByteEncodingWriter(out, encoding, size);
+                writer.write(TEXT);
+                writer.write(TEXT.toCharArray(), 3, 20);
+                writer.write('!');
+                writer.flush();
+
+                String expected = TEXT + TEXT.substring(3, 23) + '!';
+                assertArrayEquals(encoding + "/" + size,
+                                  expected.getBytes(encoding),
+                                  out.toByteArray());
+            }
+        }
+    }
+
+    /**
+     * A surrogate pair split across two writes is still encoded as one
+     * code point.
+     */
+    @Test
+    public void testSplitSurrogatePair() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteEncodingWriter writer = new ByteEncodingWriter(out, "UTF-8");
+        writer.write("a\ud83d");
+        writer.write("\ude00b");
+        writer.flush();
+        assertArrayEquals("a\ud83d\ude00b".getBytes("UTF-8"), out.toByteArray());
+    }
+
+    /**
+     * Nothing reaches the stream before a flush, and reset discards the
+     * buffered content.
+     */
+    @Test
+    public void testReset() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteEncodingWriter writer = new ByteEncodingWriter(out, "UTF-8");
+        writer.write("discarded");
+        assertEquals(0, out.size());
+        writer.reset();
+        writer.write("kept");
+        writer.flush();
+        assertEquals("kept", out.toString("UTF-8"));
+    }
+
+    /**
+     * flushBuffer writes the buffered bytes without flushing the stream,
+     * flush does both.
+     */
+    @Test
+    public void testFlushBuffer() throws Exception {
+        final int[] flushes = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+        ByteEncodingWriter writer = new ByteEncodingWriter(out, "UTF-8");
+        writer.write("buffered");
+        writer.flushBuffer();
+        assertEquals("buffered", out.toString("UTF-8"));
+        assertEquals(0, flushes[0]);
+        writer.flush();
+        assertEquals(1, flushes[0]);
+    }
+
+    @Test
+    public void testSupportedEncodings() {
+        assertTrue(ByteEncodingWriter.isSupported("utf-8"));
+        assertTrue(ByteEncodingWriter.isSupported("ISO-8859-1"));
+        assertFalse(ByteEncodingWriter.isSupported("UTF-16"));
+        assertFalse(ByteEncodingWriter.isSupported(null));
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.renderkit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import javax.faces.component.UIViewRoot;
+import javax.faces.component.behavior.AjaxBehavior;
+import javax.faces.component.html.HtmlInputText;
+import javax.faces.context.FacesContext;
+import javax.faces.render.ClientBehaviorRenderer;
+import javax.faces.render.RenderKit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.RIConstants;
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockRenderKit;
+import com.sun.faces.mock.MockServletContext;
+import com.sun.faces.renderkit.html_basic.AjaxBehaviorRenderer;
+import com.sun.faces.renderkit.html_basic.TestResponseWriter;
+
+public class AttributePlanTest {
+
+    private static final Attribute[] ATTRIBUTES =
+          AttributeManager.getAttributes(AttributeManager.Key.INPUTTEXT);
+
+    private FacesContext context;
+
+    @Before
+    public void setUp() {
+        final RenderKit renderKit = new MockRenderKit() {
+            private final ClientBehaviorRenderer ajaxRenderer = new AjaxBehaviorRenderer();
+
+            @Override
+            public ClientBehaviorRenderer getClientBehaviorRenderer(String type) {
+                return AjaxBehavior.BEHAVIOR_ID.equals(type) ? ajaxRenderer : null;
+            }
+        };
+        MockFacesContext context = new MockFacesContext(
+              new MockExternalContext(new MockServletContext(), null, null)) {
+            @Override
+            public RenderKit getRenderKit() {
+                return renderKit;
+            }
+        };
+        context.setApplication(new MockApplication());
+        context.setViewRoot(new UIViewRoot());
+        this.context = context;
+    }
+
+    @After
+    public void tearDown() {
+        context.release();
+    }
+
+    @Test
+    public void setAttributesAreRenderedInAlphabeticalOrder() throws IOException {
+        HtmlInputText input = populate(new HtmlInputText());
+
+        String rendered = render(input, "text/html");
+
+        assertThat(rendered, is(" accesskey=\"k\" lang=\"en\" onclick=\"c()\" size=\"10\""
+                                + " style=\"color: red\" tabindex=\"1\" title=\"t\""));
+        assertThat(rendered, is(render(populate(new UnoptimizedInputText()), "text/html")));
+    }
+
+    @Test
+    public void xhtmlNamesArePrefixed() throws IOException {
+        HtmlInputText input = populate(new HtmlInputText());
+
+        String rendered = render(input, RIConstants.XHTML_CONTENT_TYPE);
+
+        assertThat(rendered, is(" accesskey=\"k\" xml:lang=\"en\" onclick=\"c()\" size=\"10\""
+                                + " style=\"color: red\" tabindex=\"1\" title=\"t\""));
+        assertThat(rendered, is(render(populate(new UnoptimizedInputText()), RIConstants.XHTML_CONTENT_TYPE)));
+    }
+
+    @Test
+    public void defaultValuesAreNotRendered() throws IOException {
+        HtmlInputText input = new HtmlInputText();
+        input.setTitle("t");
+        input.setSize(Integer.MIN_VALUE);
+        input.setMaxlength(Integer.MIN_VALUE);
+
+        assertThat(render(input, "text/html"), is(" title=\"t\""));
+    }
+
+    @Test
+    public void attributesSetLaterAreRenderedInOrder() throws IOException {
+        HtmlInputText input = new HtmlInputText();
+        input.setTitle("t");
+        assertThat(render(input, "text/html"), is(" title=\"t\""));
+
+        // the plan of the class is reused for a different set of attributes
+        input.setAccesskey("k");
+        input.setTitle("u");
+        assertThat(render(input, "text/html"), is(" accesskey=\"k\" title=\"u\""));
+    }
+
+    @Test
+    public void behaviorAttributeIsRenderedAsHandlerOnly() throws IOException {
+        HtmlInputText input = populate(new HtmlInputText());
+        input.addClientBehavior("click", new AjaxBehavior());
+
+        String rendered = render(input, "text/html");
+
+        assertThat(rendered, is(" accesskey=\"k\" lang=\"en\""
+                                + " onclick=\"jsf.util.chain(this,event,'c()','mojarra.ab(this,event,\\'click\\',0,0)');return false\""
+                                + " size=\"10\" style=\"color: red\" tabindex=\"1\" title=\"t\""));
+        UnoptimizedInputText unoptimized = populate(new UnoptimizedInputText());
+        unoptimized.addClientBehavior("click", new AjaxBehavior());
+        assertThat(rendered, is(render(unoptimized, "text/html")));
+    }
+
+    /**
+     * The handler of a behavior whose attribute isn't set is rendered after
+     * the set attributes, like the optimized code always did, rather than
+     * in the position of the attribute.
+     */
+    @Test
+    public void behaviorWithoutUserHandlerIsRenderedLast() throws IOException {
+        HtmlInputText input = new HtmlInputText();
+        input.setTitle("t");
+        input.setAccesskey("k");
+        input.addClientBehavior("click", new AjaxBehavior());
+
+        assertThat(render(input, "text/html"),
+                   is(" accesskey=\"k\" title=\"t\" onclick=\"mojarra.ab(this,event,'click',0,0)\""));
+    }
+
+    @Test
+    public void behaviorOfOtherEventIsNotRendered() throws IOException {
+        HtmlInputText input = populate(new HtmlInputText());
+        input.addClientBehavior("valueChange", new AjaxBehavior());
+
+        assertThat(render(input, "text/html"), is(render(populate(new HtmlInputText()), "text/html")));
+    }
+
+    @Test
+    public void behaviorOfDisabledComponentIsNotRendered() throws IOException {
+        HtmlInputText input = populate(new HtmlInputText());
+        input.setDisabled(true);
+        input.addClientBehavior("click", new AjaxBehavior());
+
+        assertThat(render(input, "text/html"), is(" accesskey=\"k\" lang=\"en\" onclick=\"c()\" size=\"10\""
+                                                  + " style=\"color: red\" tabindex=\"1\" title=\"t\""));
+    }
+
+    @Test
+    public void setMaskCoversMoreThanOneWord() {
+        String[] names = new String[130];
+        Attribute[] attributes = new Attribute[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format("a%03d", i);
+            attributes[i] = Attribute.attr(names[i]);
+        }
+        AttributePlan plan = AttributePlan.getPlan(HtmlInputText.class, attributes);
+
+        long[] mask = plan.getSetMask(Arrays.asList(names[129], "unknown", names[0], names[64], names[63]));
+
+        assertThat(AttributePlan.nextSet(mask, 0), is(0));
+        assertThat(AttributePlan.nextSet(mask, 1), is(63));
+        assertThat(AttributePlan.nextSet(mask, 64), is(64));
+        assertThat(AttributePlan.nextSet(mask, 65), is(129));
+        assertThat(AttributePlan.nextSet(mask, 130), is(-1));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * Sets attributes in an order other than the alphabetical one they are
+     * rendered in.
+     */
+    private static <T extends HtmlInputText> T populate(T input) {
+        input.setTitle("t");
+        input.setSize(10);
+        input.setOnclick("c()");
+        input.setStyle("color: red");
+        input.setAccesskey("k");
+        input.setLang("en");
+        input.setTabindex("1");
+        return input;
+    }
+
+    private String render(HtmlInputText input, final String contentType) throws IOException {
+        StringWriter out = new StringWriter();
+        TestResponseWriter writer = new TestResponseWriter(out) {
+            @Override
+            public String getContentType() {
+                return contentType;
+            }
+        };
+        context.setResponseWriter(writer);
+        RenderKitUtils.renderPassThruAttributes(context, writer, input, ATTRIBUTES);
+        return out.toString();
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * Outside of <code>javax.faces.component</code>, so its attributes are
+     * rendered without a plan, by looking at every known attribute.
+     */
+    public static class UnoptimizedInputText extends HtmlInputText {
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+package com.sun.faces.renderkit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.faces.FactoryFinder;
+import javax.faces.component.UIComponent;
+import javax.faces.component.UIViewRoot;
+import javax.faces.component.behavior.AjaxBehavior;
+import javax.faces.component.behavior.ClientBehavior;
+import javax.faces.component.behavior.ClientBehaviorContext;
+import javax.faces.component.html.HtmlForm;
+import javax.faces.component.html.HtmlSelectOneMenu;
+import javax.faces.context.FacesContext;
+import javax.faces.render.ClientBehaviorRenderer;
+import javax.faces.render.RenderKit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.faces.component.search.CompositeSearchKeywordResolver;
+import com.sun.faces.component.search.SearchExpressionContextFactoryImpl;
+import com.sun.faces.component.search.SearchExpressionHandlerImpl;
+import com.sun.faces.component.search.SearchKeywordResolverImplForm;
+import com.sun.faces.component.search.SearchKeywordResolverImplThis;
+import com.sun.faces.component.visit.VisitContextFactoryImpl;
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockRenderKit;
+import com.sun.faces.mock.MockServletContext;
+import com.sun.faces.renderkit.html_basic.AjaxBehaviorRenderer;
+import com.sun.faces.renderkit.html_basic.TestResponseWriter;
+
+public class BehaviorScriptCacheTest {
+
+    private FacesContext context;
+
+    @After
+    public void tearDown() throws Exception {
+        if (context != null) {
+            context.release();
+        }
+        FactoryFinder.releaseFactories();
+        Method reInitializeFactoryManager = FactoryFinder.class.getDeclaredMethod("reInitializeFactoryManager");
+        reInitializeFactoryManager.setAccessible(true);
+        reInitializeFactoryManager.invoke(null);
+    }
+
+    @Test
+    public void behaviorScriptIsSharedByComponents() throws IOException {
+        assertSameAsUncached(false, null);
+    }
+
+    @Test
+    public void incExecScriptGetsTheClientIdOfEachComponent() throws IOException {
+        String script = assertSameAsUncached(true, null);
+        assertThat(script, containsString("form:b"));
+        assertThat(script, not(containsString("form:a")));
+    }
+
+    @Test
+    public void chainedScriptIsSharedByComponents() throws IOException {
+        String script = assertSameAsUncached(false, "alert(1)");
+        assertThat(script, containsString("jsf.util.chain("));
+    }
+
+    @Test
+    public void chainedIncExecScriptGetsTheClientIdOfEachComponent() throws IOException {
+        String script = assertSameAsUncached(true, "alert(1)");
+        assertThat(script, containsString("form:b"));
+        assertThat(script, not(containsString("form:a")));
+    }
+
+    @Test
+    public void behaviorWithComponentIdsIsNotCached() {
+        context = createContext();
+        UIComponent component = createComponent(new HtmlForm(), "a", null);
+        AjaxBehavior behavior = getBehavior(component);
+        behavior.setExecute(Collections.singletonList("other"));
+
+        assertThat(getKey(component, false), nullValue());
+    }
+
+    @Test
+    public void disabledBehaviorIsNotCached() {
+        context = createContext();
+        UIComponent component = createComponent(new HtmlForm(), "a", null);
+        getBehavior(component).setDisabled(true);
+
+        assertThat(getKey(component, false), nullValue());
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    /**
+     * Renders the same behavior on two components of one application, the
+     * second one from the cache, and on the second component in a new
+     * application, where the cache is empty.
+     *
+     * @return the script rendered for the second component
+     */
+    private String assertSameAsUncached(boolean incExec, String userHandler) throws IOException {
+
+        context = createContext();
+        HtmlForm form = new HtmlForm();
+        form.setId("form");
+        context.getViewRoot().getChildren().add(form);
+        UIComponent a = createComponent(form, "a", userHandler);
+        UIComponent b = createComponent(form, "b", userHandler);
+        String first = render(a, incExec);
+        BehaviorScriptCache.Key key = getKey(b, incExec);
+        assertThat(key, not(nullValue()));
+        assertThat(BehaviorScriptCache.getHandler(context, b, key), not(nullValue()));
+        String cached = render(b, incExec);
+        context.release();
+
+        context = createContext();
+        String uncached = render(b, incExec);
+        BehaviorScriptCache.Key newKey = getKey(b, incExec);
+        assertThat(newKey, is(key));
+
+        assertThat(cached, is(uncached));
+        assertThat(first, is(uncached.replace("form:b", "form:a")));
+        return cached;
+
+    }
+
+    private String render(UIComponent component, boolean incExec) throws IOException {
+        StringWriter out = new StringWriter();
+        context.setResponseWriter(new TestResponseWriter(out));
+        RenderKitUtils.renderOnchange(context, component, incExec);
+        return out.toString();
+    }
+
+    private BehaviorScriptCache.Key getKey(UIComponent component, boolean incExec) {
+        Collection<ClientBehaviorContext.Parameter> params;
+        if (incExec) {
+            params = new LinkedList<>();
+            params.add(new ClientBehaviorContext.Parameter("incExec", true));
+        } else {
+            params = Collections.emptyList();
+        }
+        List<ClientBehavior> behaviors = ((HtmlSelectOneMenu) component).getClientBehaviors().get("valueChange");
+        return BehaviorScriptCache.getKey(context,
+                                          component,
+                                          behaviors,
+                                          params,
+                                          "valueChange",
+                                          (String) component.getAttributes().get("onchange"),
+                                          false,
+                                          incExec);
+    }
+
+    private static AjaxBehavior getBehavior(UIComponent component) {
+        return (AjaxBehavior) ((HtmlSelectOneMenu) component).getClientBehaviors().get("valueChange").get(0);
+    }
+
+    private static UIComponent createComponent(HtmlForm form, String id, String userHandler) {
+        HtmlSelectOneMenu component = new HtmlSelectOneMenu();
+        component.setId(id);
+        if (userHandler != null) {
+            component.setOnchange(userHandler);
+        }
+        AjaxBehavior behavior = new AjaxBehavior();
+        behavior.setRender(Collections.singletonList("@form"));
+        behavior.setOnevent("handleEvent");
+        component.addClientBehavior("valueChange", behavior);
+        form.getChildren().add(component);
+        return component;
+    }
+
+    private static FacesContext createContext() {
+        final RenderKit renderKit = new MockRenderKit() {
+            private final ClientBehaviorRenderer ajaxRenderer = new AjaxBehaviorRenderer();
+
+            @Override
+            public ClientBehaviorRenderer getClientBehaviorRenderer(String type) {
+                return AjaxBehavior.BEHAVIOR_ID.equals(type) ? ajaxRenderer : null;
+            }
+        };
+        MockFacesContext context = new MockFacesContext(
+              new MockExternalContext(new MockServletContext(), null, null)) {
+            @Override
+            public RenderKit getRenderKit() {
+                return renderKit;
+            }
+        };
+        // incExec adds the client id to execute, which is resolved as a
+        // search expression
+        FactoryFinder.setFactory(FactoryFinder.SEARCH_EXPRESSION_CONTEXT_FACTORY,
+                                 SearchExpressionContextFactoryImpl.class.getName());
+        FactoryFinder.setFactory(FactoryFinder.VISIT_CONTEXT_FACTORY,
+                                 VisitContextFactoryImpl.class.getName());
+        MockApplication application = new MockApplication();
+        application.setSearchExpressionHandler(new SearchExpressionHandlerImpl());
+        CompositeSearchKeywordResolver resolvers = new CompositeSearchKeywordResolver();
+        resolvers.add(new SearchKeywordResolverImplThis());
+        resolvers.add(new SearchKeywordResolverImplForm());
+        application.setSearchKeywordResolver(resolvers);
+        context.setApplication(application);
+        context.setViewRoot(new UIViewRoot());
+        return context;
+    }
+
+}
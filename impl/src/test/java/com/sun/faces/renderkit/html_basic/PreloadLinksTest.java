@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2017, 2018 Oracle and/or its affiliates. All rights reserved.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0, which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * This Source Code may also be made available under the following Secondary
+ * Licenses when the conditions for such availability set forth in the
+ * Eclipse Public License v. 2.0 are satisfied: GNU General Public License,
+ * version 2 with the GNU Classpath Exception, which is available at
+ * https://www.gnu.org/software/classpath/license.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0 OR GPL-2.0 WITH Classpath-exception-2.0
+ */
+
+
+package com.sun.faces.renderkit.html_basic;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.faces.application.Resource;
+import javax.faces.context.FacesContext;
+import javax.faces.context.PartialViewContext;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockHttpServletResponse;
+import com.sun.faces.mock.MockPartialViewContext;
+import com.sun.faces.mock.MockServletContext;
+
+public class PreloadLinksTest {
+
+    private final List<String> links = new ArrayList<>();
+    private MockServletContext servletContext;
+    private EarlyHintsResponse response;
+    private Object currentResponse;
+    private boolean committed;
+    private boolean partial;
+    private FacesContext context;
+
+    @Before
+    public void setUp() {
+        servletContext = new MockServletContext();
+        response = new EarlyHintsResponse();
+        currentResponse = response;
+        MockExternalContext extContext = new MockExternalContext(servletContext, null, null) {
+            @Override
+            public void addResponseHeader(String name, String value) {
+                if ("Link".equals(name)) {
+                    links.add(value);
+                }
+            }
+
+            @Override
+            public String encodeResourceURL(String url) {
+                return url;
+            }
+
+            @Override
+            public boolean isResponseCommitted() {
+                return committed;
+            }
+
+            @Override
+            public Object getResponse() {
+                return currentResponse;
+            }
+        };
+        final PartialViewContext partialViewContext = new MockPartialViewContext() {
+            @Override
+            public boolean isPartialRequest() {
+                return partial;
+            }
+        };
+        MockFacesContext context = new MockFacesContext(extContext) {
+            @Override
+            public PartialViewContext getPartialViewContext() {
+                return partialViewContext;
+            }
+        };
+        context.setApplication(new MockApplication());
+        this.context = context;
+    }
+
+    @After
+    public void tearDown() {
+        context.release();
+    }
+
+    @Test
+    public void linksAreDisabledByDefault() {
+        assertThat(PreloadLinks.create(context), nullValue());
+    }
+
+    @Test
+    public void linkIsAddedForEachResource() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        PreloadLinks preloadLinks = PreloadLinks.create(context);
+
+        preloadLinks.add(new TestResource("/app/javax.faces.resource/app.js.xhtml?ln=lib"), "script");
+        preloadLinks.add(new TestResource("/app/javax.faces.resource/app.css.xhtml"), "style");
+
+        assertThat(links.toString(), is("[</app/javax.faces.resource/app.js.xhtml?ln=lib>; rel=preload; as=script,"
+                                         + " </app/javax.faces.resource/app.css.xhtml>; rel=preload; as=style]"));
+    }
+
+    @Test
+    public void linksAreNotSentForPartialRequests() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        partial = true;
+
+        assertThat(PreloadLinks.create(context), nullValue());
+    }
+
+    @Test
+    public void linksAreNotSentOnceCommitted() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        committed = true;
+
+        assertThat(PreloadLinks.create(context), nullValue());
+    }
+
+    @Test
+    public void numberOfLinksIsBounded() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        PreloadLinks preloadLinks = PreloadLinks.create(context);
+
+        for (int i = 0; i < 40; i++) {
+            preloadLinks.add(new TestResource("/app/javax.faces.resource/r" + i + ".js"), "script");
+        }
+
+        assertThat(links.size(), is(32));
+        assertThat(links.get(31), is("</app/javax.faces.resource/r31.js>; rel=preload; as=script"));
+    }
+
+    @Test
+    public void urlsThatCantBeWrittenAsIsAreSkipped() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        PreloadLinks preloadLinks = PreloadLinks.create(context);
+
+        preloadLinks.add(new TestResource("/app/a b.js"), "script");
+        preloadLinks.add(new TestResource("/app/a>.js"), "script");
+        preloadLinks.add(new TestResource("/app/\u00e4.js"), "script");
+        preloadLinks.add(new TestResource("/app/a\r\nX-Injected: 1"), "script");
+        preloadLinks.add(new TestResource("/app/a.js"), "script");
+
+        assertThat(links.toString(), is("[</app/a.js>; rel=preload; as=script]"));
+    }
+
+    @Test
+    public void earlyHintsAreOnlySentWhenEnabled() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        PreloadLinks preloadLinks = PreloadLinks.create(context);
+        preloadLinks.add(new TestResource("/app/a.js"), "script");
+
+        preloadLinks.sendEarlyHints();
+
+        assertThat(response.earlyHints, is(0));
+    }
+
+    @Test
+    public void earlyHintsAreSentThroughWrappers() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        enable("com.sun.faces.sendEarlyHints");
+        currentResponse = new HttpServletResponseWrapper(response);
+        PreloadLinks preloadLinks = PreloadLinks.create(context);
+
+        preloadLinks.sendEarlyHints();
+        assertThat(response.earlyHints, is(0));
+
+        preloadLinks.add(new TestResource("/app/a.js"), "script");
+        preloadLinks.sendEarlyHints();
+        assertThat(response.earlyHints, is(1));
+    }
+
+    @Test
+    public void earlyHintsAreSkippedWithoutContainerSupport() {
+        enable("com.sun.faces.enablePreloadHeaders");
+        enable("com.sun.faces.sendEarlyHints");
+        currentResponse = new MockHttpServletResponse();
+        PreloadLinks preloadLinks = PreloadLinks.create(context);
+        preloadLinks.add(new TestResource("/app/a.js"), "script");
+
+        // nothing to call, the links are only sent with the response
+        preloadLinks.sendEarlyHints();
+
+        assertThat(links.size(), is(1));
+    }
+
+
+    // --------------------------------------------------------- Private Methods
+
+
+    private void enable(String name) {
+        servletContext.addInitParameter(name, "true");
+    }
+
+
+    // ---------------------------------------------------------- Nested Classes
+
+
+    /**
+     * A response of a container supporting <code>103 Early Hints</code>.
+     */
+    public static class EarlyHintsResponse extends MockHttpServletResponse {
+
+        int earlyHints;
+
+        public void sendEarlyHints() {
+            earlyHints++;
+        }
+
+    }
+
+    private static final class TestResource extends Resource {
+
+        private final String requestPath;
+
+        TestResource(String requestPath) {
+            this.requestPath = requestPath;
+        }
+
+        @Override
+        public String getRequestPath() {
+            return requestPath;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return null;
+        }
+
+        @Override
+        public Map<String, String> getResponseHeaders() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public URL getURL() {
+            return null;
+        }
+
+        @Override
+        public boolean userAgentNeedsUpdate(FacesContext context) {
+            return true;
+        }
+
+    }
+
+}
@@ -132,6 +132,50 @@ public class TestHtmlUtils extends TestCase {
         }
     }
 
+    public void testEscaping() throws IOException {
+        // plain ASCII, short and long enough to go through the text buffer
+        assertEquals("plain", text("plain", false, false));
+        assertEquals("plain text without markup", text("plain text without markup", false, false));
+
+        // escape heavy text, with runs longer than the output buffer
+        String runs = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+        assertEquals("&lt;a&gt; &amp; \"b\"" + runs + "&lt;",
+                     text("<a> & \"b\"" + runs + "<", false, false));
+        assertEquals("&lt;a&gt; &amp; &quot;b&quot;" + runs + "&{x}",
+                     attribute("<a> & \"b\"" + runs + "&{x}", false, false));
+
+        // mixed unicode
+        String mixed = "caf\u00e9 \u20ac \u4e2d\u6587 <ok>";
+        assertEquals("caf\u00e9 \u20ac \u4e2d\u6587 &lt;ok&gt;", text(mixed, false, false));
+        assertEquals("caf&eacute; \u20ac \u4e2d\u6587 &lt;ok&gt;", text(mixed, false, true));
+        assertEquals("caf\u00e9 &euro; &#20013;&#25991; &lt;ok&gt;", text(mixed, true, false));
+        assertEquals("caf&eacute; &euro; &#20013;&#25991; &lt;ok&gt;", attribute(mixed, true, true));
+
+        // values containing script: aren't written unless enabled
+        StringWriter writer = new StringWriter();
+        HtmlUtils.writeAttribute(writer, false, false, new char[16],
+                "javascript:alert('xss')", new char[16], false);
+        assertEquals("", writer.toString());
+    }
+
+    private static String text(String value, boolean escapeUnicode, boolean escapeIsocode)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        HtmlUtils.writeText(writer, escapeUnicode, escapeIsocode, new char[16], value, new char[1024]);
+        StringWriter arrayWriter = new StringWriter();
+        char[] chars = ("x" + value + "x").toCharArray();
+        HtmlUtils.writeText(arrayWriter, escapeUnicode, escapeIsocode, new char[16], chars, 1, value.length());
+        assertEquals(writer.toString(), arrayWriter.toString());
+        return writer.toString();
+    }
+
+    private static String attribute(String value, boolean escapeUnicode, boolean escapeIsocode)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        HtmlUtils.writeAttribute(writer, escapeUnicode, escapeIsocode, new char[16], value, new char[16], false);
+        return writer.toString();
+    }
+
     private void testURLEncoding(String urlToEncode, String expectedHTML, String expectedXML)
             throws IOException {
         char[] textBuffer = new char[1024];
@@ -21,14 +21,25 @@ import org.junit.Test;
 import org.powermock.api.easymock.PowerMock;
 import org.powermock.reflect.Whitebox;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
 import javax.faces.context.FacesContext;
 import javax.faces.render.RenderKit;
 
+import com.sun.faces.mock.MockApplication;
+import com.sun.faces.mock.MockExternalContext;
+import com.sun.faces.mock.MockFacesContext;
+import com.sun.faces.mock.MockHttpServletRequest;
+import com.sun.faces.mock.MockServletContext;
+
 import static javax.faces.component.NamingContainer.SEPARATOR_CHAR;
 import static javax.faces.component.UINamingContainer.SEPARATOR_CHAR_PARAM_NAME;
 import static org.easymock.EasyMock.*;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.*;
 import static org.powermock.api.easymock.PowerMock.createNicePartialMock;
 import static org.powermock.api.easymock.PowerMock.createNicePartialMockAndInvokeDefaultConstructor;
@@ -97,4 +108,116 @@ public class UIDataTest {
 
         assertThat(context.getAttributes().get("setRowIndexCalled"), is(nullValue()));
     }
+
+    /**
+     * Test the row client ids are built once per row.
+     */
+    @Test
+    public void testRowClientId() {
+        FacesContext context = createFacesContext();
+        try {
+            UIData data = createData(context, "data");
+            UIOutput out = (UIOutput) data.getChildren().get(0).getChildren().get(0);
+            assertThat(data.getClientId(context), is("data"));
+
+            data.setRowIndex(0);
+            String clientId = data.getClientId(context);
+            assertThat(clientId, is("data:0"));
+            assertThat(data.getClientId(context), sameInstance(clientId));
+            assertThat(out.getClientId(context), is("data:0:out"));
+
+            data.setRowIndex(1);
+            assertThat(data.getClientId(context), is("data:1"));
+            assertThat(out.getClientId(context), is("data:1:out"));
+
+            data.setRowIndex(-1);
+            assertThat(data.getClientId(context), is("data"));
+            assertThat(out.getClientId(context), is("data:out"));
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Test the row client id follows a new id set after it was cached.
+     */
+    @Test
+    public void testRowClientIdAfterSetId() {
+        FacesContext context = createFacesContext();
+        try {
+            UIData data = createData(context, "data");
+            UIOutput out = (UIOutput) data.getChildren().get(0).getChildren().get(0);
+            data.setRowIndex(0);
+            assertThat(data.getClientId(context), is("data:0"));
+
+            data.setId("other");
+            assertThat(data.getClientId(context), is("other:0"));
+            data.setRowIndex(1);
+            assertThat(out.getClientId(context), is("other:1:out"));
+
+            data.setRowIndex(-1);
+            assertThat(data.getClientId(context), is("other"));
+        } finally {
+            context.release();
+        }
+    }
+
+    /**
+     * Test the prefix of the child client ids is built once per container
+     * client id instance.
+     */
+    @Test
+    public void testChildClientIdPrefix() throws Exception {
+        FacesContext context = createFacesContext();
+        try {
+            UIData data = new UIData();
+            Method getChildClientIdPrefix = UIComponentBase.class.getDeclaredMethod(
+                    "getChildClientIdPrefix", FacesContext.class, String.class);
+            getChildClientIdPrefix.setAccessible(true);
+
+            String containerClientId = "data:0";
+            String prefix = (String) getChildClientIdPrefix.invoke(data, context, containerClientId);
+            assertThat(prefix, is("data:0:"));
+            assertThat(getChildClientIdPrefix.invoke(data, context, containerClientId), sameInstance(prefix));
+
+            // an equal id of another row client id build gets its own prefix
+            String rebuilt = new String(containerClientId);
+            String other = (String) getChildClientIdPrefix.invoke(data, context, rebuilt);
+            assertThat(other, is("data:0:"));
+            assertThat(other, not(sameInstance(prefix)));
+
+            assertThat(getChildClientIdPrefix.invoke(data, context, "data:1"), is("data:1:"));
+        } finally {
+            context.release();
+        }
+    }
+
+    private static FacesContext createFacesContext() {
+        MockFacesContext context = new MockFacesContext(new MockExternalContext(
+                new MockServletContext(), new MockHttpServletRequest(), null));
+        context.setApplication(new MockApplication());
+        context.setViewRoot(new UIViewRoot());
+        return context;
+    }
+
+    /**
+     * Creates a table of two rows with one column holding an output with id
+     * <code>out</code>, without renderers to convert the client ids.
+     */
+    static UIData createData(FacesContext context, String id) {
+        UIData data = new UIData();
+        data.setRendererType(null);
+        data.setId(id);
+        data.setVar("item");
+        data.setValue(Arrays.asList("a", "b"));
+        UIColumn column = new UIColumn();
+        column.setId("column");
+        UIOutput out = new UIOutput();
+        out.setRendererType(null);
+        out.setId("out");
+        column.getChildren().add(out);
+        data.getChildren().add(column);
+        context.getViewRoot().getChildren().add(data);
+        return data;
+    }
 }